@@ -0,0 +1,133 @@
+#!/usr/bin/env bash
+#
+# Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+# https://apps4net.eu
+# Date: 17/10/26
+#
+# Μετρήσεις κλιμάκωσης: φτιάχνει συνθετικά movies.csv με το MoviesGenerator σε κάθε
+# μέγεθος, τρέχει κάθε ανάλυση και γράφει τον χρόνο και τις γραμμές ανά δευτερόλεπτο
+# σε ένα CSV, για τις καμπύλες κλιμάκωσης.
+#
+# Τα jobs του Hadoop διαβάζουν τα δεδομένα από το HDFS_DIR και ο χρόνος τους βγαίνει
+# από το JSON του JobReport (movies.report.json). Το LocalMoviesEngine διαβάζει ένα
+# αρχείο, οπότε για αυτό φτιάχνεται ένα ξεχωριστό αρχείο του ίδιου μεγέθους, και τρέχει
+# με κάθε πλήθος threads του THREADS, για την κλιμάκωση σε cores.
+#
+# Χρήση: scripts/scaling.sh [μεγέθη...]        π.χ. scripts/scaling.sh 1g 10g 100g
+#
+# Ρυθμίσεις από το περιβάλλον:
+#   JAR        το jar του project (target/MoviesHadoop-1.0-SNAPSHOT.jar)
+#   HADOOP     η εντολή του hadoop (hadoop)
+#   SOURCE     το πραγματικό movies.csv για τις κατανομές (input/movies.csv)
+#   DATA_DIR   ο τοπικός φάκελος των δεδομένων (/tmp/movies-scaling)
+#   HDFS_DIR   ο φάκελος των δεδομένων στο HDFS (movies-scaling)
+#   JOBS       οι αναλύσεις ("MoviesInYear MoviesInGenres WordsInMovies MoviesStatistics",
+#              κενό για να μην τρέξουν)
+#   THREADS    τα threads του LocalMoviesEngine ("1 2 4 8", κενό για να μην τρέξει)
+#   REPEAT     πόσες φορές τρέχει κάθε μέτρηση (1)
+#   SEED       το seed του MoviesGenerator (42)
+#   RESULTS    το CSV των αποτελεσμάτων (scaling-results.csv)
+#
+
+set -euo pipefail
+
+JAR=${JAR:-target/MoviesHadoop-1.0-SNAPSHOT.jar}
+HADOOP=${HADOOP:-hadoop}
+SOURCE=${SOURCE:-input/movies.csv}
+DATA_DIR=${DATA_DIR:-/tmp/movies-scaling}
+HDFS_DIR=${HDFS_DIR:-movies-scaling}
+JOBS=${JOBS-MoviesInYear MoviesInGenres WordsInMovies MoviesStatistics}
+THREADS=${THREADS-1 2 4 8}
+REPEAT=${REPEAT:-1}
+SEED=${SEED:-42}
+RESULTS=${RESULTS:-scaling-results.csv}
+
+SIZES=("$@")
+if [ ${#SIZES[@]} -eq 0 ]; then
+    SIZES=(1g 10g 100g)
+fi
+
+if [ ! -f "$RESULTS" ]; then
+    echo "size,bytes,job,threads,run,seconds,records,records_per_second,mb_per_second" > "$RESULTS"
+fi
+
+# Η τιμή ενός αριθμητικού πεδίου του JSON του JobReport
+json_field() {
+    sed -n "s/.*\"$2\":\([0-9.]*\).*/\1/p" "$1"
+}
+
+record() {
+    local size=$1 bytes=$2 job=$3 threads=$4 run=$5 seconds=$6 records=$7
+
+    awk -v size="$size" -v bytes="$bytes" -v job="$job" -v threads="$threads" -v run="$run" \
+        -v seconds="$seconds" -v records="$records" 'BEGIN {
+            rate = 0
+            throughput = 0
+            if (seconds > 0) {
+                rate = records / seconds
+                throughput = bytes / seconds / 1048576
+            }
+            printf "%s,%d,%s,%s,%d,%.3f,%d,%.1f,%.2f\n", size, bytes, job, threads, run, seconds, records, rate, throughput
+        }' | tee -a "$RESULTS"
+}
+
+for size in "${SIZES[@]}"; do
+    local_dir="$DATA_DIR/$size"
+    hdfs_dir="$HDFS_DIR/$size"
+
+    # Τα δεδομένα φτιάχνονται μία φορά για κάθε μέγεθος και seed
+    if [ -n "$JOBS" ]; then
+        if [ ! -d "$local_dir" ]; then
+            "$HADOOP" jar "$JAR" eu.apps4net.bench.MoviesGenerator "$SOURCE" "$local_dir" "$size" "$SEED"
+        fi
+        bytes=$(du -sb "$local_dir" | cut -f1)
+
+        if ! "$HADOOP" fs -test -d "$hdfs_dir"; then
+            "$HADOOP" fs -mkdir -p "$HDFS_DIR"
+            "$HADOOP" fs -put "$local_dir" "$hdfs_dir"
+        fi
+    fi
+
+    for job in $JOBS; do
+        for run in $(seq 1 "$REPEAT"); do
+            output="$HDFS_DIR/output-$size-$job"
+            report="$DATA_DIR/report-$size-$job-$run.json"
+
+            "$HADOOP" fs -rm -r -f "$output" > /dev/null
+
+            # Το cache θα έδινε το αποτέλεσμα χωρίς να τρέξει το job
+            "$HADOOP" jar "$JAR" "eu.apps4net.$job" \
+                -D movies.report.json="file://$report" \
+                -D movies.cache.bypass=true \
+                "$hdfs_dir" "$output"
+
+            record "$size" "$bytes" "$job" "" "$run" \
+                "$(json_field "$report" seconds)" "$(json_field "$report" records)"
+        done
+    done
+
+    # Ένα αρχείο με το ίδιο seed, για το LocalMoviesEngine
+    single_dir="$DATA_DIR/$size-single"
+    input="$single_dir/part-00000.csv"
+    if [ -n "$THREADS" ] && [ ! -d "$single_dir" ]; then
+        "$HADOOP" jar "$JAR" eu.apps4net.bench.MoviesGenerator "$SOURCE" "$single_dir" "$size" "$SEED" 1
+    fi
+    if [ -n "$THREADS" ]; then
+        input_bytes=$(stat -c %s "$input")
+        records=$(($(wc -l < "$input") - 1))
+    fi
+
+    for threads in $THREADS; do
+        for run in $(seq 1 "$REPEAT"); do
+            output="$DATA_DIR/output-$size-local"
+
+            rm -rf "$output"
+            start=$(date +%s%N)
+            "$HADOOP" jar "$JAR" eu.apps4net.LocalMoviesEngine "$input" "$output" 100 "$threads"
+            end=$(date +%s%N)
+
+            record "$size" "$input_bytes" LocalMoviesEngine "$threads" "$run" \
+                "$(awk -v nanos=$((end - start)) 'BEGIN { print nanos / 1e9 }')" "$records"
+        done
+    done
+done
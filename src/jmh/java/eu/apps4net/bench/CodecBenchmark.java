@@ -0,0 +1,144 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Επίδραση κάθε codec στα bytes του shuffle, στο μέγεθος του output και στον χρόνο
+ *
+ */
+
+package eu.apps4net.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import eu.apps4net.MoviesStatistics;
+import eu.apps4net.core.Compression;
+import eu.apps4net.core.InMapperCombiner;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Τρέχει το MoviesStatistics με τον codec στο map output και στο output. Εκτός από τον
+ * χρόνο, τα ShuffleBytes δίνουν ως δευτερεύοντα αποτελέσματα:
+ *
+ *   mapOutputBytes  τα bytes του map output πριν από τη συμπίεση
+ *   shuffleBytes    τα bytes που γράφτηκαν στον δίσκο για το shuffle (μετά τη συμπίεση)
+ *   outputBytes     το μέγεθος των αρχείων του output
+ *
+ * Με inMapper=false κάθε λέξη περνάει από το shuffle, οπότε η διαφορά των codecs φαίνεται
+ * περισσότερο. Ένας codec που δεν είναι διαθέσιμος γίνεται deflate (βλ. Compression).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class CodecBenchmark {
+    @Param("input/movies.csv")
+    public String file;
+
+    @Param({"10", "100"})
+    public int scale;
+
+    @Param({"none", "snappy", "lz4", "zstd", "deflate", "gzip", "bzip2"})
+    public String codec;
+
+    @Param({"true", "false"})
+    public boolean inMapper;
+
+    private java.nio.file.Path directory;
+    private Path input;
+    private Path output;
+    private Configuration conf;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ShuffleBytes {
+        public long mapOutputBytes;
+        public long shuffleBytes;
+        public long outputBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            mapOutputBytes = 0;
+            shuffleBytes = 0;
+            outputBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createInput() throws IOException {
+        directory = Files.createTempDirectory("movies-codec");
+
+        java.nio.file.Path csv = directory.resolve("input").resolve("movies.csv");
+        MoviesData.writeScaled(Paths.get(file), csv, scale);
+
+        conf = new Configuration();
+        conf.set("mapreduce.framework.name", "local");
+        conf.set("fs.defaultFS", "file:///");
+        conf.set(Compression.MAP_OUTPUT_CODEC, codec);
+        conf.set(Compression.OUTPUT_CODEC, codec);
+        conf.setBoolean(InMapperCombiner.ENABLED, inMapper);
+
+        input = new Path(csv.toUri());
+        output = new Path(directory.resolve("output").toUri());
+    }
+
+    @Setup(Level.Iteration)
+    public void deleteOutput() throws IOException {
+        FileSystem.getLocal(conf).delete(output, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteInput() throws IOException {
+        FileSystem.getLocal(conf).delete(new Path(directory.toUri()), true);
+    }
+
+    @Benchmark
+    public boolean run(ShuffleBytes bytes) throws Exception {
+        Job job = MoviesStatistics.createJob(conf, input, output);
+        boolean success = job.waitForCompletion(false);
+
+        Counters counters = job.getCounters();
+        bytes.mapOutputBytes += counters.findCounter(TaskCounter.MAP_OUTPUT_BYTES).getValue();
+        bytes.shuffleBytes += counters.findCounter(TaskCounter.MAP_OUTPUT_MATERIALIZED_BYTES).getValue();
+        bytes.outputBytes += outputSize();
+
+        return success;
+    }
+
+    /**
+     * Το μέγεθος των part αρχείων του output, χωρίς τα .crc
+     */
+    private long outputSize() throws IOException {
+        try (Stream<java.nio.file.Path> files = Files.walk(Paths.get(output.toUri()))) {
+            return files.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().startsWith("part-"))
+                    .mapToLong(path -> path.toFile().length())
+                    .sum();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Διάβασμα μιας γραμμής του movies.csv: regex split και MoviesCsvParser
+ *
+ */
+
+package eu.apps4net.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import eu.apps4net.core.MoviesCsvParser;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Κάθε κλήση διαβάζει την επόμενη γραμμή του αρχείου, οπότε τα ops/s είναι γραμμές
+ * το δευτερόλεπτο και το gc.alloc.rate.norm τα bytes που δεσμεύονται ανά γραμμή
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvSplitBenchmark {
+    private static final String CSV_SPLIT = ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)";
+
+    private final MoviesCsvParser parser = new MoviesCsvParser();
+    private final Text value = new Text();
+    private final Text title = new Text();
+    private int next;
+
+    private byte[] nextLine(MoviesData data) {
+        byte[] line = data.lines[next];
+        next = next + 1 == data.lines.length ? 0 : next + 1;
+
+        return line;
+    }
+
+    /**
+     * Το παλιό getMovie των jobs
+     */
+    @Benchmark
+    public void regexSplit(MoviesData data, Blackhole blackhole) {
+        value.set(nextLine(data));
+
+        String[] lineFields = value.toString().split(CSV_SPLIT);
+
+        blackhole.consume(Long.parseLong(lineFields[0]));
+        blackhole.consume(lineFields[1].replace("\"", ""));
+        blackhole.consume(lineFields[2].split("[|]"));
+    }
+
+    @Benchmark
+    public void parser(MoviesData data, Blackhole blackhole) {
+        value.set(nextLine(data));
+
+        blackhole.consume(parser.parse(value));
+        blackhole.consume(parser.getMovieId());
+        blackhole.consume(parser.getGenreCount());
+    }
+
+    /**
+     * Ο parser μαζί με την αντιγραφή του τίτλου, όπως τον χρειάζονται τα MoviesInYear
+     * και WordsInMovies
+     */
+    @Benchmark
+    public Text parserWithTitle(MoviesData data) {
+        value.set(nextLine(data));
+        parser.parse(value);
+        parser.getTitle(title);
+
+        return title;
+    }
+
+    @Benchmark
+    public String parserWithTitleString(MoviesData data) {
+        byte[] line = nextLine(data);
+        parser.parse(line, 0, line.length);
+
+        return parser.getTitle();
+    }
+
+    /**
+     * Μόνο η μετατροπή της γραμμής σε String, για σύγκριση με τα παραπάνω
+     */
+    @Benchmark
+    public String decodeOnly(MoviesData data) {
+        byte[] line = nextLine(data);
+
+        return new String(line, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Ολόκληρα τα jobs (map, combine, shuffle, reduce) στον local job runner του Hadoop
+ *
+ */
+
+package eu.apps4net.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import eu.apps4net.LocalMoviesEngine;
+import eu.apps4net.MoviesInGenres;
+import eu.apps4net.MoviesInYear;
+import eu.apps4net.MoviesStatistics;
+import eu.apps4net.WordsInMovies;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Το input είναι το movies.csv γραμμένο scale φορές (με διαφορετικά id σε κάθε
+ * αντίγραφο). Κάθε μέτρηση είναι μία εκτέλεση του job, οπότε το gc.alloc.rate.norm
+ * δείχνει τα bytes που δεσμεύει όλο το job.
+ *
+ * Το job "local" είναι το LocalMoviesEngine, για σύγκριση με τον local job runner.
+ *
+ * Τα μεγάλα scale θέλουν αρκετό χώρο στο /tmp (περίπου 3MB ανά αντίγραφο), γι' αυτό
+ * μπορούν να περιοριστούν με -p scale=1,10
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class EndToEndBenchmark {
+    @Param("input/movies.csv")
+    public String file;
+
+    @Param({"1", "10", "100", "1000"})
+    public int scale;
+
+    @Param({"genres", "years", "words", "statistics", "local"})
+    public String job;
+
+    private java.nio.file.Path directory;
+    private Path input;
+    private Path output;
+    private Configuration conf;
+
+    @Setup(Level.Trial)
+    public void createInput() throws IOException {
+        directory = Files.createTempDirectory("movies-bench");
+
+        java.nio.file.Path csv = directory.resolve("input").resolve("movies.csv");
+        MoviesData.writeScaled(Paths.get(file), csv, scale);
+
+        conf = new Configuration();
+        conf.set("mapreduce.framework.name", "local");
+        conf.set("fs.defaultFS", "file:///");
+
+        input = new Path(csv.toUri());
+        output = new Path(directory.resolve("output").toUri());
+    }
+
+    @Setup(Level.Iteration)
+    public void deleteOutput() throws IOException {
+        FileSystem.getLocal(conf).delete(output, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteInput() throws IOException {
+        FileSystem.getLocal(conf).delete(new Path(directory.toUri()), true);
+    }
+
+    @Benchmark
+    public boolean run() throws Exception {
+        if (job.equals("local")) {
+            LocalMoviesEngine.main(new String[]{Paths.get(input.toUri()).toString(), Paths.get(output.toUri()).toString()});
+            return true;
+        }
+
+        return createJob().waitForCompletion(false);
+    }
+
+    private Job createJob() throws IOException, InterruptedException {
+        switch (job) {
+            case "genres":
+                return MoviesInGenres.createJob(conf, input, output);
+            case "years":
+                return MoviesInYear.createJob(conf, input, output);
+            case "words":
+                return WordsInMovies.createJob(conf, input, output);
+            case "statistics":
+                return MoviesStatistics.createJob(conf, input, output);
+            default:
+                throw new IllegalArgumentException("Unknown job: " + job);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Οι γραμμές του movies.csv στη μνήμη, κοινές για όλα τα benchmarks
+ *
+ */
+
+package eu.apps4net.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.apps4net.core.MoviesCsvParser;
+import eu.apps4net.core.YearExtractor;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Φορτώνει μία φορά το αρχείο και κρατάει κάθε γραμμή ως bytes, μαζί με τον τίτλο της
+ * (ως String και ως UTF-8 bytes) και το έτος, ώστε τα benchmarks να μετράνε μόνο τον
+ * κώδικα που τους αφορά.
+ *
+ * Το αρχείο ορίζεται με -p file=... (default input/movies.csv)
+ */
+@State(Scope.Benchmark)
+public class MoviesData {
+    @Param("input/movies.csv")
+    public String file;
+
+    public byte[][] lines;
+    public String[] titles;
+    public byte[][] titleBytes;
+    public int[] years;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        List<byte[]> allLines = new ArrayList<>();
+        List<String> allTitles = new ArrayList<>();
+        MoviesCsvParser parser = new MoviesCsvParser();
+
+        for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+
+            if (MoviesCsvParser.isHeader(bytes, 0, bytes.length) || !parser.parse(bytes, 0, bytes.length)) {
+                continue;
+            }
+
+            allLines.add(bytes);
+            allTitles.add(parser.getTitle());
+        }
+
+        lines = allLines.toArray(new byte[0][]);
+        titles = allTitles.toArray(new String[0]);
+
+        titleBytes = new byte[titles.length][];
+        years = new int[titles.length];
+        for (int i = 0; i < titles.length; i++) {
+            titleBytes[i] = titles[i].getBytes(StandardCharsets.UTF_8);
+            years[i] = YearExtractor.getYear(titles[i]);
+        }
+    }
+
+    /**
+     * Γράφει το αρχείο scale φορές στο target. Κάθε αντίγραφο έχει διαφορετικά id,
+     * ώστε το input να μοιάζει με ένα μεγαλύτερο dataset
+     *
+     * @param source
+     * @param target
+     * @param scale
+     */
+    public static void writeScaled(Path source, Path target, int scale) throws IOException {
+        List<String> sourceLines = Files.readAllLines(source, StandardCharsets.UTF_8);
+
+        // Το μεγαλύτερο id του αρχείου, για να μην επικαλύπτονται τα αντίγραφα
+        long maxId = 0;
+        for (String line : sourceLines) {
+            int comma = line.indexOf(',');
+
+            if (comma > 0 && Character.isDigit(line.charAt(0))) {
+                maxId = Math.max(maxId, Long.parseLong(line.substring(0, comma)));
+            }
+        }
+
+        Files.createDirectories(target.getParent());
+
+        try (BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            writer.write(sourceLines.get(0));
+            writer.write('\n');
+
+            for (int copy = 0; copy < scale; copy++) {
+                for (int i = 1; i < sourceLines.size(); i++) {
+                    String line = sourceLines.get(i);
+                    int comma = line.indexOf(',');
+
+                    writer.write(String.valueOf(Long.parseLong(line.substring(0, comma)) + copy * maxId));
+                    writer.write(line, comma, line.length() - comma);
+                    writer.write('\n');
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Σπάσιμο του τίτλου σε λέξεις, όπως στον mapper του WordsInMovies
+ *
+ */
+
+package eu.apps4net.bench;
+
+import java.io.IOException;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+
+import eu.apps4net.core.BytesIntHashMap;
+import eu.apps4net.core.KeyCounter;
+import eu.apps4net.core.TitleTokenizer;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Το legacy είναι το παλιό σπάσιμο με StringTokenizer, toLowerCase και replaceAll.
+ * Τα tokenize* μετράνε μόνο το σπάσιμο, με έναν counter που απλά αθροίζει τα μήκη,
+ * και το tokenizeAndCount προσθέτει και το μέτρημα στον BytesIntHashMap του in-mapper
+ * combining, όπως γίνεται στον mapper
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizeBenchmark {
+    private final Text word = new Text();
+    private final BytesIntHashMap counts = new BytesIntHashMap();
+
+    private final TitleTokenizer asciiTokenizer = new TitleTokenizer(false);
+    private final TitleTokenizer unicodeTokenizer = new TitleTokenizer(true);
+
+    private long tokenBytes;
+    private final KeyCounter lengthCounter = (bytes, start, length) -> tokenBytes += length;
+    private final KeyCounter mapCounter = (bytes, start, length) -> counts.add(bytes, start, length, 1);
+
+    private int next;
+
+    private int nextIndex(MoviesData data) {
+        int index = next;
+        next = next + 1 == data.titles.length ? 0 : next + 1;
+
+        return index;
+    }
+
+    @Benchmark
+    public long legacy(MoviesData data) {
+        String title = data.titles[nextIndex(data)];
+        int year = YearBenchmark.legacyYear(title);
+
+        title = title.replace(" (" + String.valueOf(year) + ")", "");
+
+        StringTokenizer itr = new StringTokenizer(title);
+        while (itr.hasMoreTokens()) {
+            String token = itr.nextToken().toLowerCase().replaceAll("[^a-zA-Z0-9]", "");
+
+            if (token.length() < 4) {
+                continue;
+            }
+
+            word.set(token);
+            tokenBytes += word.getLength();
+        }
+
+        return tokenBytes;
+    }
+
+    @Benchmark
+    public long tokenize(MoviesData data) throws IOException, InterruptedException {
+        int index = nextIndex(data);
+        byte[] title = data.titleBytes[index];
+
+        asciiTokenizer.tokenize(title, 0, title.length, data.years[index], lengthCounter);
+
+        return tokenBytes;
+    }
+
+    @Benchmark
+    public long tokenizeUnicode(MoviesData data) throws IOException, InterruptedException {
+        int index = nextIndex(data);
+        byte[] title = data.titleBytes[index];
+
+        unicodeTokenizer.tokenize(title, 0, title.length, data.years[index], lengthCounter);
+
+        return tokenBytes;
+    }
+
+    @Benchmark
+    public int tokenizeAndCount(MoviesData data) throws IOException, InterruptedException {
+        int index = nextIndex(data);
+        byte[] title = data.titleBytes[index];
+
+        asciiTokenizer.tokenize(title, 0, title.length, data.years[index], mapCounter);
+
+        return counts.size();
+    }
+}
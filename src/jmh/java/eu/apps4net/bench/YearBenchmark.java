@@ -0,0 +1,73 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Εξαγωγή του έτους από τον τίτλο
+ *
+ */
+
+package eu.apps4net.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import eu.apps4net.core.YearExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Οι τίτλοι διαβάζονται με τη σειρά του αρχείου, οπότε μετράνε και οι τίτλοι χωρίς
+ * έτος, που στο legacy περνάνε από exception
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YearBenchmark {
+    private final YearExtractor extractor = new YearExtractor();
+    private int next;
+
+    /**
+     * Το παλιό getYearFromTitle των jobs
+     */
+    static int legacyYear(String title) {
+        try {
+            return Integer.parseInt(title.substring(title.length() - 5, title.length() - 1));
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private int nextIndex(MoviesData data) {
+        int index = next;
+        next = next + 1 == data.titles.length ? 0 : next + 1;
+
+        return index;
+    }
+
+    @Benchmark
+    public int legacy(MoviesData data) {
+        return legacyYear(data.titles[nextIndex(data)]);
+    }
+
+    @Benchmark
+    public int extractor(MoviesData data) {
+        byte[] title = data.titleBytes[nextIndex(data)];
+
+        return extractor.extract(title, 0, title.length);
+    }
+
+    @Benchmark
+    public int extractorString(MoviesData data) {
+        return YearExtractor.getYear(data.titles[nextIndex(data)]);
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Τοπική εκτέλεση των MoviesInGenres, MoviesInYear και WordsInMovies χωρίς Hadoop
+ *
+ */
+
+package eu.apps4net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import eu.apps4net.core.BytesIntHashMap;
+import eu.apps4net.core.GenreCountsWritable;
+import eu.apps4net.core.GenreDictionary;
+import eu.apps4net.core.KeyCounter;
+import eu.apps4net.core.LocalResultWriter;
+import eu.apps4net.core.MoviesCsvParser;
+import eu.apps4net.core.MoviesRecordScanner;
+import eu.apps4net.core.TitleTokenizer;
+import eu.apps4net.core.YearExtractor;
+
+/**
+ * Το αρχείο χωρίζεται σε κομμάτια, όπως τα splits του MoviesInputFormat, και κάθε κομμάτι
+ * διαβάζεται με το MoviesRecordScanner, οπότε οι τίτλοι σε εισαγωγικά μπορούν να έχουν
+ * αλλαγές γραμμής. Κάθε κομμάτι γίνεται memory-mapped, από την αρχή του μέχρι το τέλος
+ * του αρχείου, γιατί η τελευταία του εγγραφή μπορεί να συνεχίζει μετά το τέλος του. Ο
+ * χώρος που γίνεται map είναι μόνο διευθύνσεις, και διαβάζονται μόνο οι σελίδες που
+ * χρειάζονται. Το MoviesRecordScanner διαβάζει από InputStream, οπότε τα bytes
+ * αντιγράφονται από το MappedByteBuffer στον buffer του, όπως και στο MoviesInputFormat.
+ *
+ * Τα κομμάτια μοιράζονται σε ένα ForkJoinPool και κάθε thread μετράει στους δικούς του
+ * μετρητές, με την ίδια λογική που έχουν οι mappers των jobs. Στο τέλος οι μετρητές των
+ * threads ενώνονται και γράφονται με το LocalResultWriter στους φακέλους genres/, years/
+ * και words/ του output, στο ίδιο format με το MoviesStatistics.
+ *
+ * Χρήση: LocalMoviesEngine input output [minimumWordAppearances] [threads]
+ * Δεν υπάρχει Configuration, οπότε το movies.words.unicode είναι ιδιότητα της JVM και
+ * δίνεται πριν από την κλάση, π.χ. java -Dmovies.words.unicode=true ... LocalMoviesEngine,
+ * και τότε οι λέξεις κρατάνε όλα τα γράμματα unicode.
+ */
+public class LocalMoviesEngine {
+    // Το μέγιστο μέγεθος κάθε κομματιού, ώστε τα κομμάτια να μοιράζονται ομοιόμορφα στα threads
+    private static final long MAX_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    // Όπως τα default του MoviesInputFormat
+    private static final int BUFFER_BYTES = 1024 * 1024;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    // Τα έτη είναι το πολύ τετραψήφια
+    private static final int MAX_YEAR = 9999;
+
+    /**
+     * Οι μετρητές ενός thread
+     */
+    private static class Counts {
+        private final GenreCountsWritable genres = new GenreCountsWritable();
+        private final int[] years = new int[MAX_YEAR + 1];
+        private final BytesIntHashMap words = new BytesIntHashMap(64 * 1024);
+
+        private final MoviesCsvParser parser = new MoviesCsvParser();
+        private final YearExtractor yearExtractor = new YearExtractor();
+        // Ιδιότητα της JVM, όχι του Configuration
+        private final TitleTokenizer tokenizer = new TitleTokenizer(Boolean.getBoolean(WordsInMovies.UNICODE_WORDS));
+        private final KeyCounter wordCounter = (bytes, start, length) -> words.add(bytes, start, length, 1);
+
+        /**
+         * Η λογική των mappers για μία εγγραφή
+         */
+        private void map(byte[] bytes, int start, int end, long offset) throws IOException, InterruptedException {
+            // Αν η εγγραφή είναι η επικεφαλίδα ή δεν είναι έγκυρη, τότε την παραλείπει
+            if ((offset == 0 && MoviesCsvParser.isHeader(bytes, start, end)) || !parser.parse(bytes, start, end)) {
+                return;
+            }
+
+            // MoviesInGenres
+            if (parser.getGenreCount() > 0) {
+                genres.add(genres.getDictionary().toBitmask(parser));
+            }
+
+            // MoviesInYear
+            int year = yearExtractor.extract(bytes, parser.getTitleStart(), parser.getTitleEnd());
+            years[year]++;
+
+            // WordsInMovies
+            tokenizer.tokenize(bytes, parser.getTitleStart(), yearExtractor.getTitleEnd(), year, wordCounter);
+        }
+
+        /**
+         * Διαβάζει τις εγγραφές του κομματιού και τις περνάει στη map()
+         */
+        private void scan(MoviesRecordScanner scanner) throws IOException, InterruptedException {
+            while (scanner.next()) {
+                map(scanner.getBytes(), scanner.getRecordStart(), scanner.getRecordEnd(), scanner.getRecordOffset());
+            }
+        }
+
+        private void merge(Counts other) throws IOException, InterruptedException {
+            genres.merge(other.genres);
+            for (int year = 0; year <= MAX_YEAR; year++) {
+                years[year] += other.years[year];
+            }
+            other.words.forEach((bytes, start, length, count) -> words.add(bytes, start, length, count));
+        }
+    }
+
+    /**
+     * Χωρίζει το αρχείο σε κομμάτια ίσου μεγέθους. Τα όρια δεν χρειάζεται να είναι σε
+     * αλλαγή γραμμής, γιατί το MoviesRecordScanner κάθε κομματιού δίνει τις εγγραφές που
+     * ξεκινάνε μέσα σε αυτό, όπως στα splits του MoviesInputFormat
+     *
+     * @param size
+     * @param pieces
+     * @return long[] με τα όρια των κομματιών
+     */
+    private static long[] split(long size, int pieces) {
+        long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(1, size / pieces));
+        int chunks = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+
+        long[] bounds = new long[chunks + 1];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            bounds[chunk] = chunk * chunkSize;
+        }
+        bounds[chunks] = size;
+
+        return bounds;
+    }
+
+    /**
+     * InputStream πάνω σε ένα MappedByteBuffer, για το MoviesRecordScanner
+     */
+    private static class MappedInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        MappedInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+
+            return read;
+        }
+    }
+
+    private static void writeGenres(Path directory, GenreCountsWritable genres) throws IOException {
+        GenreDictionary dictionary = genres.getDictionary();
+        LocalResultWriter writer = new LocalResultWriter();
+
+        for (int id = 0; id < dictionary.size(); id++) {
+            if (genres.getCount(id) > 0) {
+                byte[] name = dictionary.getLowerCaseName(id);
+                writer.add(name, 0, name.length, genres.getCount(id));
+            }
+        }
+
+        writer.write(directory);
+    }
+
+    private static void writeWords(Path directory, BytesIntHashMap words, int minimum) throws IOException, InterruptedException {
+        LocalResultWriter writer = new LocalResultWriter();
+
+        words.forEach((bytes, start, length, count) -> {
+            if (count > minimum) {
+                writer.add(bytes, start, length, count);
+            }
+        });
+
+        writer.write(directory);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        int minimumWordAppearances = args.length > 2 ? Integer.parseInt(args[2]) : WordsInMovies.DEFAULT_MINIMUM_WORD_APPEARANCES;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        // Όπως και στο Hadoop, το output δεν πρέπει να υπάρχει ήδη
+        if (Files.exists(output)) {
+            throw new IOException("Output directory " + output + " already exists");
+        }
+
+        long startTime = System.nanoTime();
+
+        Queue<Counts> allCounts = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Counts> threadCounts = ThreadLocal.withInitial(() -> {
+            Counts counts = new Counts();
+            allCounts.add(counts);
+            return counts;
+        });
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = split(size, threads * 4);
+
+            pool.submit(() -> IntStream.range(0, bounds.length - 1).parallel().forEach(chunk -> {
+                // Το map συνεχίζει και μετά το τέλος του κομματιού, μέχρι να τελειώσει η
+                // τελευταία εγγραφή του. Ένα map έχει το πολύ 2GB
+                long start = bounds[chunk];
+
+                try {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                            Math.min(size - start, Integer.MAX_VALUE));
+
+                    MoviesRecordScanner scanner = new MoviesRecordScanner(new MappedInputStream(mapped),
+                            start, bounds[chunk + 1], BUFFER_BYTES, MAX_RECORD_BYTES);
+
+                    threadCounts.get().scan(scanner);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            })).get();
+        } finally {
+            pool.shutdown();
+        }
+
+        // Ένωση των μετρητών όλων των threads
+        Counts total = new Counts();
+        for (Counts counts : allCounts) {
+            total.merge(counts);
+        }
+
+        writeGenres(output.resolve("genres"), total.genres);
+        LocalResultWriter.writeYears(output.resolve("years"), Arrays.stream(total.years).asLongStream().toArray());
+        writeWords(output.resolve("words"), total.words, minimumWordAppearances);
+
+        System.out.printf("Processed %s with %d threads in %d ms%n",
+                input, threads, (System.nanoTime() - startTime) / 1_000_000);
+    }
+}
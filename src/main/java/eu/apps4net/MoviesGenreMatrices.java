@@ -0,0 +1,381 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Υπολογισμός των ειδών που εμφανίζονται μαζί και των ταινιών κάθε είδους ανά έτος,
+ * σε ένα job
+ *
+ */
+
+package eu.apps4net;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import eu.apps4net.columnar.MovieWritable;
+import eu.apps4net.columnar.MoviesColumnarInputFormat;
+import eu.apps4net.core.Compression;
+import eu.apps4net.core.GenreDictionary;
+import eu.apps4net.core.GenreStripeWritable;
+import eu.apps4net.core.JobReport;
+import eu.apps4net.core.MapperStats;
+import eu.apps4net.core.MovieRecord;
+import eu.apps4net.core.MoviesInputFormat;
+import eu.apps4net.core.ResultCache;
+import eu.apps4net.core.YearExtractor;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.util.GenericOptionsParser;
+
+/**
+ * Ο mapper κρατάει δύο πυκνούς πίνακες int, με index το id του είδους του GenreDictionary
+ * και το έτος: είδος x είδος, με τις ταινίες που έχουν και τα δύο είδη (στη διαγώνιο οι
+ * ταινίες του είδους), και έτος x είδος. Στο cleanup γράφει κάθε μη μηδενική γραμμή μία
+ * φορά, ως GenreStripeWritable, οπότε στο shuffle περνάνε το πολύ 32 + 10000 μικρά stripes
+ * ανά split, όσο μεγάλο κι αν είναι το input. Οι reducers αθροίζουν τα stripes κάθε
+ * γραμμής στοιχείο προς στοιχείο. Κάθε γραμμή εμφανίζεται μία φορά ανά mapper, οπότε
+ * ένας combiner δεν θα είχε τίποτα να αθροίσει.
+ *
+ * Το output έχει τους φακέλους:
+ *
+ *   genres/   είδος \t είδος \t ταινίες, για κάθε ζευγάρι (και τα δύο ζευγάρια i,j και j,i)
+ *   years/    έτος \t είδος \t ταινίες
+ *
+ * με τα είδη σε πεζά και χωρίς τα μηδενικά κελιά. Τα είδη που διαφέρουν μόνο στα
+ * κεφαλαία είναι ένα είδος, όπως στο MoviesInGenres, και αν το input έχει πάνω από 32
+ * διαφορετικά είδη το job αποτυγχάνει με GenreOverflowException. Οι ταινίες χωρίς έτος
+ * μετράνε στο έτος 0, όπως στο MoviesInYear, και οι ταινίες χωρίς είδη παραλείπονται,
+ * όπως στο MoviesInGenres.
+ *
+ * Χρήση: MoviesGenreMatrices movies.csv output
+ */
+public class MoviesGenreMatrices {
+    public static final byte GENRE_TAG = 'g';
+    public static final byte YEAR_TAG = 'y';
+
+    private static final int MAX_GENRES = GenreDictionary.MAX_GENRES;
+
+    // Τα έτη είναι το πολύ τετραψήφια, οπότε οι γραμμές των ετών χωράνε σε έναν πίνακα
+    private static final int MAX_YEAR = 9999;
+
+    /**
+     * Οι δύο πίνακες ενός mapper
+     */
+    private static class GenreMatrices {
+        private final GenreDictionary dictionary = new GenreDictionary();
+        private final int[] pairs = new int[MAX_GENRES * MAX_GENRES];
+        private final int[] years = new int[(MAX_YEAR + 1) * MAX_GENRES];
+
+        // Τα όρια των ετών που εμφανίστηκαν, για να μη διατρέχεται όλος ο πίνακας
+        private int minYear = MAX_YEAR + 1;
+        private int maxYear = -1;
+
+        private final Text row = new Text();
+        private byte[] rowBytes = new byte[64];
+        private final GenreStripeWritable stripe = new GenreStripeWritable();
+
+        GenreDictionary getDictionary() {
+            return dictionary;
+        }
+
+        /**
+         * Μετράει μία ταινία του έτους με τα είδη του bitmask
+         *
+         * @param year
+         * @param bitmask
+         */
+        void add(int year, int bitmask) {
+            int yearRow = year * MAX_GENRES;
+
+            for (int rest = bitmask; rest != 0; rest &= rest - 1) {
+                int id = Integer.numberOfTrailingZeros(rest);
+                int pairRow = id * MAX_GENRES;
+
+                years[yearRow + id]++;
+
+                // Όλη η γραμμή του είδους, μαζί με τη διαγώνιο
+                for (int others = bitmask; others != 0; others &= others - 1) {
+                    pairs[pairRow + Integer.numberOfTrailingZeros(others)]++;
+                }
+            }
+
+            minYear = Math.min(minYear, year);
+            maxYear = Math.max(maxYear, year);
+        }
+
+        /**
+         * Γράφει κάθε μη μηδενική γραμμή των πινάκων ως stripe
+         */
+        void flush(TaskInputOutputContext<?, ?, Text, GenreStripeWritable> context) throws IOException, InterruptedException {
+            int size = dictionary.size();
+
+            // Η διαγώνιος είναι οι ταινίες του είδους, οπότε αν είναι 0 όλη η γραμμή είναι 0
+            for (int id = 0; id < size; id++) {
+                if (pairs[id * MAX_GENRES + id] == 0) {
+                    continue;
+                }
+
+                // Με πεζά, ώστε οι γραμμές "Action" και "action" διαφορετικών mappers να
+                // πάνε στο ίδιο κλειδί του reducer
+                byte[] name = dictionary.getLowerCaseName(id);
+                if (rowBytes.length < 1 + name.length) {
+                    rowBytes = new byte[1 + name.length];
+                }
+                rowBytes[0] = GENRE_TAG;
+                System.arraycopy(name, 0, rowBytes, 1, name.length);
+                row.set(rowBytes, 0, 1 + name.length);
+
+                stripe.set(dictionary, pairs, id * MAX_GENRES);
+                context.write(row, stripe);
+            }
+
+            for (int year = minYear; year <= maxYear; year++) {
+                if (isEmpty(years, year * MAX_GENRES, size)) {
+                    continue;
+                }
+
+                // Τέσσερα ψηφία, ώστε τα έτη να ταξινομούνται σωστά ως κείμενο
+                rowBytes[0] = YEAR_TAG;
+                for (int i = 4, value = year; i > 0; i--, value /= 10) {
+                    rowBytes[i] = (byte) ('0' + value % 10);
+                }
+                row.set(rowBytes, 0, 5);
+
+                stripe.set(dictionary, years, year * MAX_GENRES);
+                context.write(row, stripe);
+            }
+        }
+
+        private static boolean isEmpty(int[] counts, int offset, int size) {
+            for (int id = 0; id < size; id++) {
+                if (counts[offset + id] != 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    public static class MoviesMapper extends Mapper<LongWritable, MovieRecord, Text, GenreStripeWritable> {
+        private final GenreMatrices matrices = new GenreMatrices();
+        private final YearExtractor years = new YearExtractor();
+
+        private MapperStats stats;
+
+        @Override
+        protected void setup(Context context) {
+            stats = new MapperStats(context.getConfiguration());
+        }
+
+        public void map(LongWritable key, MovieRecord movie, Context context) {
+            stats.start();
+
+            // Αν η ταινία δεν έχει είδη, τότε την παραλείπει
+            if (movie.getGenreCount() == 0) {
+                stats.count(MapperStats.Records.NO_GENRES);
+                return;
+            }
+
+            int year = years.extract(movie.getBytes(), movie.getTitleStart(), movie.getTitleEnd());
+            if (year == YearExtractor.NO_YEAR) {
+                stats.count(MapperStats.Records.NO_YEAR);
+            }
+
+            // Τα άγνωστα είδη προστίθενται στο λεξικό
+            int bitmask = matrices.getDictionary().toBitmask(movie);
+            stats.stage(MapperStats.Stage.EXTRACT);
+
+            matrices.add(year, bitmask);
+            stats.stage(MapperStats.Stage.AGGREGATE);
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            // Εξαγωγή των γραμμών όλου του split
+            long start = System.nanoTime();
+            matrices.flush(context);
+            stats.add(MapperStats.Stage.EMIT, System.nanoTime() - start);
+
+            stats.flush(context);
+        }
+    }
+
+    /**
+     * Mapper για input σε δυαδική μορφή (MoviesToColumnar). Διαβάζει μόνο τις στήλες του
+     * έτους και των ειδών
+     */
+    public static class ColumnarMapper extends Mapper<LongWritable, MovieWritable, Text, GenreStripeWritable> {
+        private final GenreMatrices matrices = new GenreMatrices();
+
+        private MapperStats stats;
+
+        @Override
+        protected void setup(Context context) {
+            stats = new MapperStats(context.getConfiguration());
+        }
+
+        public void map(LongWritable key, MovieWritable movie, Context context) {
+            stats.start();
+
+            if (movie.getGenres() == 0) {
+                stats.count(MapperStats.Records.NO_GENRES);
+                return;
+            }
+
+            if (movie.getYear() == YearExtractor.NO_YEAR) {
+                stats.count(MapperStats.Records.NO_YEAR);
+            }
+
+            // Το bitmask είναι γραμμένο με το λεξικό του μπλοκ
+            int bitmask = matrices.getDictionary().translate(movie.getDictionary(), movie.getGenres());
+            stats.stage(MapperStats.Stage.EXTRACT);
+
+            matrices.add(movie.getYear(), bitmask);
+            stats.stage(MapperStats.Stage.AGGREGATE);
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            // Εξαγωγή των γραμμών όλου του split
+            long start = System.nanoTime();
+            matrices.flush(context);
+            stats.add(MapperStats.Stage.EMIT, System.nanoTime() - start);
+
+            stats.flush(context);
+        }
+    }
+
+    public static class MatricesReducer extends Reducer<Text, GenreStripeWritable, Text, LongWritable> {
+        private final GenreStripeWritable total = new GenreStripeWritable();
+        private final Text cell = new Text();
+        private final LongWritable result = new LongWritable();
+
+        private MultipleOutputs<Text, LongWritable> outputs;
+
+        @Override
+        protected void setup(Context context) {
+            outputs = new MultipleOutputs<>(context);
+        }
+
+        public void reduce(Text key, Iterable<GenreStripeWritable> values, Context context) throws IOException, InterruptedException {
+            // Άθροισμα των stripes όλων των mappers, στοιχείο προς στοιχείο
+            total.clear();
+            for (GenreStripeWritable val : values) {
+                total.merge(val);
+            }
+
+            String label;
+            String output;
+            if (key.getBytes()[0] == GENRE_TAG) {
+                label = new String(key.getBytes(), 1, key.getLength() - 1, StandardCharsets.UTF_8);
+                output = "genres/part";
+            } else {
+                label = String.valueOf(Integer.parseInt(new String(key.getBytes(), 1, key.getLength() - 1, StandardCharsets.US_ASCII)));
+                output = "years/part";
+            }
+
+            GenreDictionary dictionary = total.getDictionary();
+            String[] names = new String[dictionary.size()];
+            Integer[] order = new Integer[names.length];
+            for (int id = 0; id < names.length; id++) {
+                names[id] = new String(dictionary.getLowerCaseName(id), StandardCharsets.UTF_8);
+                order[id] = id;
+            }
+
+            // Οι στήλες με τη σειρά του ονόματος, όπως στο MoviesInGenres
+            Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
+
+            for (int id : order) {
+                if (total.getCount(id) == 0) {
+                    continue;
+                }
+
+                cell.set(label + "\t" + names[id]);
+                result.set(total.getCount(id));
+
+                outputs.write(cell, result, output);
+            }
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            outputs.close();
+        }
+    }
+
+    /**
+     * Δημιουργία του job, χωρίς να ξεκινήσει
+     *
+     * @param conf
+     * @param input
+     * @param output
+     * @return Job
+     */
+    public static Job createJob(Configuration conf, Path input, Path output) throws IOException {
+        Job job = Job.getInstance(conf, "Movies genre matrices");
+        job.setJarByClass(MoviesGenreMatrices.class);
+
+        // Αν το input έχει μετατραπεί με το MoviesToColumnar, διαβάζονται μόνο το έτος και τα είδη
+        if (MoviesColumnarInputFormat.isColumnar(conf, input)) {
+            job.setInputFormatClass(MoviesColumnarInputFormat.class);
+            MoviesColumnarInputFormat.setColumns(job, "year", "genres");
+            job.setMapperClass(ColumnarMapper.class);
+        } else {
+            job.setInputFormatClass(MoviesInputFormat.class);
+            job.setMapperClass(MoviesMapper.class);
+        }
+
+        // Με -D mapreduce.job.reduces=N οι γραμμές μοιράζονται στους reducers
+        job.setReducerClass(MatricesReducer.class);
+        job.setMapOutputKeyClass(Text.class);
+        job.setMapOutputValueClass(GenreStripeWritable.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(LongWritable.class);
+        // Όλα γράφονται στους φακέλους genres/ και years/, οπότε δεν δημιουργούνται άδεια part
+        LazyOutputFormat.setOutputFormatClass(job, TextOutputFormat.class);
+        FileInputFormat.addInputPath(job, input);
+        FileOutputFormat.setOutputPath(job, output);
+        Compression.configure(job);
+
+        return job;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        String[] remainingArgs = new GenericOptionsParser(conf, args).getRemainingArgs();
+
+        Path input = new Path(remainingArgs[0]);
+        Path output = new Path(remainingArgs[1]);
+
+        ResultCache cache = ResultCache.open(conf, MoviesGenreMatrices.class, input);
+        if (cache != null && cache.restore(output)) {
+            System.exit(0);
+        }
+
+        Job job = createJob(conf, input, output);
+
+        long start = System.nanoTime();
+        boolean success = job.waitForCompletion(true);
+        JobReport.print(job, System.nanoTime() - start);
+
+        if (success && cache != null) {
+            cache.store(output);
+        }
+
+        System.exit(success ? 0 : 1);
+    }
+}
@@ -11,176 +11,249 @@
 package eu.apps4net;
 
 import java.io.IOException;
-import java.util.ArrayList;
-
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import eu.apps4net.columnar.MovieWritable;
+import eu.apps4net.columnar.MoviesColumnarInputFormat;
+import eu.apps4net.core.Compression;
+import eu.apps4net.core.GenreCountsWritable;
+import eu.apps4net.core.GenreDictionary;
+import eu.apps4net.core.JobReport;
+import eu.apps4net.core.MapperStats;
+import eu.apps4net.core.MovieRecord;
+import eu.apps4net.core.MoviesInputFormat;
+import eu.apps4net.core.ResultCache;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.util.GenericOptionsParser;
 
+/**
+ * Κάθε είδος αντιστοιχίζεται σε ένα id του GenreDictionary και τα είδη μιας ταινίας σε ένα
+ * int bitmask. Ο mapper μετράει όλες τις ταινίες του split σε ένα GenreCountsWritable
+ * και το γράφει μία φορά στο cleanup, οπότε στο shuffle περνάει ένας πίνακας ανά split.
+ * Το λεξικό δεν κάνει διάκριση πεζών-κεφαλαίων, οπότε τα "Action" και "action" μετράνε
+ * στην ίδια γραμμή action, όπως με το toLowerCase() του αρχικού mapper. Αν το input έχει
+ * πάνω από 32 διαφορετικά είδη, το job αποτυγχάνει με GenreOverflowException.
+ *
+ * Με -D movies.genres.pairs=true μετριούνται και τα ζευγάρια ειδών που εμφανίζονται
+ * μαζί, και γράφονται στον φάκελο pairs/ του output.
+ */
 public class MoviesInGenres {
+    public static final String COUNT_PAIRS = "movies.genres.pairs";
 
-    /**
-     * Βρίσκει τη λέξη στον τίτλο
-     *
-     * @param title
-     * @return int
-     */
-    private static int getYearFromTitle(String title) {
-        // Αν η λέξη που βρίσκει δεν είναι αριθμός,
-        // σημαίνει ότι στον τίτλο δεν υπάρχει έτος
-        try {
-            // Παίρνει το substring που βρίσκεται στο τέλος του τίτλου (όπου βρίσκεται το έτος)
-            return Integer.parseInt(title.substring(title.length() - 5, title.length() - 1));
-        } catch (Exception e) {
-            return 0;
+    public static class MoviesMapper extends Mapper<LongWritable, MovieRecord, NullWritable, GenreCountsWritable> {
+        private final GenreCountsWritable genres = new GenreCountsWritable();
+
+        private MapperStats stats;
+
+        @Override
+        protected void setup(Context context) {
+            genres.setCountPairs(context.getConfiguration().getBoolean(COUNT_PAIRS, false));
+            stats = new MapperStats(context.getConfiguration());
+        }
+
+        public void map(LongWritable key, MovieRecord movie, Context context) {
+            stats.start();
+
+            // Αν η ταινία δεν έχει είδη, τότε την παραλείπει
+            if(movie.getGenreCount() == 0) {
+                stats.count(MapperStats.Records.NO_GENRES);
+                return;
+            }
+
+            // Μετράει την ταινία σε κάθε είδος της. Τα άγνωστα είδη προστίθενται στο λεξικό
+            genres.add(genres.getDictionary().toBitmask(movie));
+            stats.stage(MapperStats.Stage.AGGREGATE);
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            // Εξαγωγή των μετρητών όλου του split
+            long start = System.nanoTime();
+            context.write(NullWritable.get(), genres);
+            stats.add(MapperStats.Stage.EMIT, System.nanoTime() - start);
+
+            stats.flush(context);
         }
     }
 
     /**
-     * Διάβασμα μιας γραμμής του CSV και σπάσιμο των δεδομένων που υπάρχουν σ' αυτήν
-     * Τα δεδομένα περνάνε σε αντικείμενο της κλάσης Movie
-     * ,
-     * @param line
-     * @return Movie
+     * Mapper για input σε δυαδική μορφή (MoviesToColumnar). Διαβάζει μόνο τη στήλη των ειδών
      */
-    private static Movie getMovie(String line) {
-        // Παίρνει σε array τα κομμάτια της γραμμής που χωρίζονται με ","
-        String[] lineFields = line.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
+    public static class ColumnarMapper extends Mapper<LongWritable, MovieWritable, NullWritable, GenreCountsWritable> {
+        private final GenreCountsWritable genres = new GenreCountsWritable();
 
-        // Διάβασμα του τίτλου και αφαίρεση των εισαγωγικών που υπάρχουν σε κάποιους
-        // από αυτούς
-        String title = lineFields[1].replace("\"", "");
+        private MapperStats stats;
 
-        // Διαβάζει το έτος
-        int year = getYearFromTitle(title);
+        @Override
+        protected void setup(Context context) {
+            genres.setCountPairs(context.getConfiguration().getBoolean(COUNT_PAIRS, false));
+            stats = new MapperStats(context.getConfiguration());
+        }
 
-        // Αφαιρεί το έτος από τον τίτλο, για να μείνει σκέτος αυτός
-        title = title.replace(" (" + String.valueOf(year) + ")", "");
+        public void map(LongWritable key, MovieWritable movie, Context context) {
+            stats.start();
 
-        // Δημιουργία του αντικειμένου movie
-        Movie movie = new Movie(Long.parseLong(lineFields[0]), title, String.valueOf(year));
+            if (movie.getGenres() == 0) {
+                stats.count(MapperStats.Records.NO_GENRES);
+                return;
+            }
 
-        // Διάβασμα των κατηγοριών της ταινίας και προσθήκη αυτών
-        // στο αντικείμενο movie
-        for (String genre : lineFields[2].split("[|]")) {
-            movie.addGenre(genre);
+            // Το bitmask είναι γραμμένο με το λεξικό του μπλοκ
+            genres.add(movie.getDictionary(), movie.getGenres());
+            stats.stage(MapperStats.Stage.AGGREGATE);
         }
 
-        return movie;
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            // Εξαγωγή των μετρητών όλου του split
+            long start = System.nanoTime();
+            context.write(NullWritable.get(), genres);
+            stats.add(MapperStats.Stage.EMIT, System.nanoTime() - start);
+
+            stats.flush(context);
+        }
     }
 
-    public static class MoviesMapper extends Mapper<Object, Text, Text, IntWritable> {
-        private final static IntWritable one = new IntWritable();
+    public static class MoviesReducer extends Reducer<NullWritable, GenreCountsWritable, Text, LongWritable> {
+        private final LongWritable result = new LongWritable();
         private final Text word = new Text();
+        private final GenreCountsWritable total = new GenreCountsWritable();
 
-        public void map(Object key, Text value, Context context) throws IOException, InterruptedException {
-            Movie movie = null;
+        private MultipleOutputs<Text, LongWritable> outputs;
 
-            String line = value.toString();
+        @Override
+        protected void setup(Context context) {
+            outputs = new MultipleOutputs<>(context);
+            total.setCountPairs(context.getConfiguration().getBoolean(COUNT_PAIRS, false));
+        }
 
-            // Αν η γραμμή είναι η επικεφαλίδα του αρχείου, τότε την παραλείπει
-            if (line.startsWith("movieId,")) {
-                return;
+        public void reduce(NullWritable key, Iterable<GenreCountsWritable> values, Context context) throws IOException, InterruptedException {
+            // Άθροισμα των μετρητών όλων των mappers
+            for (GenreCountsWritable val : values) {
+                total.merge(val);
             }
 
-            // Διάβασμα της γραμμής και δημιουργία του αντικειμένου Movie
-            movie = getMovie(line);
+            GenreDictionary dictionary = total.getDictionary();
+            String[] names = new String[dictionary.size()];
+            for (int id = 0; id < names.length; id++) {
+                names[id] = new String(dictionary.getLowerCaseName(id), StandardCharsets.UTF_8);
+            }
 
-            // Αν η ταινία δεν έχει είδη, τότε την παραλείπει
-            if(movie.getGenres().size() == 0) {
-                return;
+            // Τα είδη εξάγονται ταξινομημένα με το όνομα, όπως θα τα ταξινομούσε το shuffle
+            Integer[] order = new Integer[names.length];
+            for (int id = 0; id < order.length; id++) {
+                order[id] = id;
             }
+            Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
 
-            // Προσθέτει κάθε είδος ταινίας στο context του mapper
-            for(String genre : movie.getGenres()) {
-                word.set(genre.toLowerCase());
+            for (int id : order) {
+                if (total.getCount(id) == 0) {
+                    continue;
+                }
 
-                try {
-                    one.set(1);
+                word.set(names[id]);
+                result.set(total.getCount(id));
 
-                    context.write(word, one);
-                } catch (Exception e) {
-                    System.out.println(e.getMessage());
-                }
+                context.write(word, result);
             }
-        }
-    }
 
-    public static class MoviesReducer extends Reducer<Text, IntWritable, Text, IntWritable> {
-        private final IntWritable result = new IntWritable();
+            if (!total.isCountPairs()) {
+                return;
+            }
 
-        public void reduce(Text key, Iterable<IntWritable> values, Context context) throws IOException, InterruptedException {
-            int sum = 0;
+            // Ζευγάρια ειδών, με τα δύο ονόματα σε αλφαβητική σειρά
+            for (int i = 0; i < order.length; i++) {
+                for (int j = i + 1; j < order.length; j++) {
+                    long count = total.getPairCount(order[i], order[j]);
 
-            for (IntWritable val : values) {
-                sum += val.get();
-            }
+                    if (count == 0) {
+                        continue;
+                    }
 
-            result.set(sum);
+                    word.set(names[order[i]] + "|" + names[order[j]]);
+                    result.set(count);
 
-            context.write(key, result);
+                    outputs.write(word, result, "pairs/part");
+                }
+            }
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            outputs.close();
         }
     }
 
-    public static void main(String[] args) throws Exception {
-        Configuration conf = new Configuration();
+    /**
+     * Δημιουργία του job, χωρίς να ξεκινήσει
+     *
+     * @param conf
+     * @param input
+     * @param output
+     * @return Job
+     */
+    public static Job createJob(Configuration conf, Path input, Path output) throws IOException {
         Job job = Job.getInstance(conf, "Movies in genres");
         job.setJarByClass(MoviesInGenres.class);
-        job.setMapperClass(MoviesMapper.class);
+
+        // Αν το input έχει μετατραπεί με το MoviesToColumnar, διαβάζεται μόνο η στήλη των ειδών
+        if (MoviesColumnarInputFormat.isColumnar(conf, input)) {
+            job.setInputFormatClass(MoviesColumnarInputFormat.class);
+            MoviesColumnarInputFormat.setColumns(job, "genres");
+            job.setMapperClass(ColumnarMapper.class);
+        } else {
+            job.setInputFormatClass(MoviesInputFormat.class);
+            job.setMapperClass(MoviesMapper.class);
+        }
+
+        // Όλοι οι πίνακες των mappers αθροίζονται σε έναν reducer
         job.setReducerClass(MoviesReducer.class);
+        job.setNumReduceTasks(1);
+        job.setMapOutputKeyClass(NullWritable.class);
+        job.setMapOutputValueClass(GenreCountsWritable.class);
         job.setOutputKeyClass(Text.class);
-        job.setOutputValueClass(IntWritable.class);
-        FileInputFormat.addInputPath(job, new Path(args[0]));
-        FileOutputFormat.setOutputPath(job, new Path(args[1]));
-        System.exit(job.waitForCompletion(true) ? 0 : 1);
+        job.setOutputValueClass(LongWritable.class);
+        FileInputFormat.addInputPath(job, input);
+        FileOutputFormat.setOutputPath(job, output);
+        Compression.configure(job);
+
+        return job;
     }
 
-    /**
-     * Αντικείμενο για την αποθήκευση των δεδομένων της ταινίας
-     */
-    public static class Movie {
-        private final long movieId;
-        private final String title;
-        private final String year;
-        private final ArrayList<String> genres = new ArrayList<>();
-
-        public Movie(long movieId, String title, String year) {
-            this.movieId = movieId;
-            this.title = title;
-            this.year = year;
-        }
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        String[] remainingArgs = new GenericOptionsParser(conf, args).getRemainingArgs();
 
-        public String getTitle() {
-            return title;
-        }
+        Path input = new Path(remainingArgs[0]);
+        Path output = new Path(remainingArgs[1]);
 
-        public ArrayList<String> getGenres() {
-            return genres;
+        ResultCache cache = ResultCache.open(conf, MoviesInGenres.class, input);
+        if (cache != null && cache.restore(output)) {
+            System.exit(0);
         }
 
-        public void addGenre(String genre) {
-            genres.add(genre);
-        }
+        Job job = createJob(conf, input, output);
 
-        public String getYear() {
-            return year;
-        }
+        long start = System.nanoTime();
+        boolean success = job.waitForCompletion(true);
+        JobReport.print(job, System.nanoTime() - start);
 
-        @Override
-        public String toString() {
-            return "Movie{" +
-                    "movieId=" + movieId +
-                    ", title='" + title + '\'' +
-                    ", year='" + year + '\'' +
-                    ", genres=" + genres +
-                    '}';
+        if (success && cache != null) {
+            cache.store(output);
         }
+
+        System.exit(success ? 0 : 1);
     }
 
 }
@@ -10,105 +10,167 @@
 
 package eu.apps4net;
 
+import eu.apps4net.columnar.MovieWritable;
+import eu.apps4net.columnar.MoviesColumnarInputFormat;
+import eu.apps4net.core.Compression;
+import eu.apps4net.core.InMapperCombiner;
+import eu.apps4net.core.JobReport;
+import eu.apps4net.core.MapperStats;
+import eu.apps4net.core.MovieRecord;
+import eu.apps4net.core.MoviesInputFormat;
+import eu.apps4net.core.RangePartitioner;
+import eu.apps4net.core.ResultCache;
+import eu.apps4net.core.YearExtractor;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.ShortWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.GenericOptionsParser;
 
 import java.io.IOException;
-import java.util.ArrayList;
 
 public class MoviesInYear {
+    // Τα έτη είναι το πολύ τετραψήφια, οπότε οι μετρητές χωράνε σε έναν πίνακα
+    private static final int MAX_YEAR = 9999;
 
     /**
-     * Βρίσκει τη λέξη στον τίτλο
-     *
-     * @param title
-     * @return int
+     * Μετρητές ανά έτος μέσα στον mapper, σε πίνακα με index το έτος. Γράφονται στο
+     * context στο cleanup, ή αμέσως αν το in-mapper combining είναι απενεργοποιημένο
      */
-    private static int getYearFromTitle(String title) {
-        // Αν η λέξη που βρίσκει δεν είναι αριθμός,
-        // σημαίνει ότι στον τίτλο δεν υπάρχει έτος
-        try {
-            // Παίρνει το substring που βρίσκεται στο τέλος του τίτλου (όπου βρίσκεται το έτος)
-            return Integer.parseInt(title.substring(title.length() - 5, title.length() - 1));
-        } catch (Exception e) {
-            return 0;
-        }
-    }
+    private static class YearCounter {
+        private final TaskInputOutputContext<?, ?, ShortWritable, IntWritable> context;
+        private final boolean enabled;
+        private final int[] counts = new int[MAX_YEAR + 1];
 
-    /**
-     * Διάβασμα μιας γραμμής του CSV και σπάσιμο των δεδομένων που υπάρχουν σ' αυτήν
-     * Τα δεδομένα περνάνε σε αντικείμενο της κλάσης Movie
-     * ,
-     * @param line
-     * @return Movie
-     */
-    private static Movie getMovie(String line) {
-        // Παίρνει σε array τα κομμάτια της γραμμής που χωρίζονται με ","
-        String[] lineFields = line.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
+        private final ShortWritable year = new ShortWritable();
+        private final IntWritable count = new IntWritable();
 
-        // Διάβασμα του τίτλου και αφαίρεση των εισαγωγικών που υπάρχουν σε κάποιους
-        // από αυτούς
-        String title = lineFields[1].replace("\"", "");
+        YearCounter(TaskInputOutputContext<?, ?, ShortWritable, IntWritable> context) {
+            this.context = context;
+            this.enabled = context.getConfiguration().getBoolean(InMapperCombiner.ENABLED, true);
+        }
 
-        // Διαβάζει το έτος
-        int year = getYearFromTitle(title);
+        void add(int value) throws IOException, InterruptedException {
+            if (enabled) {
+                counts[value]++;
+                return;
+            }
 
-        // Αφαιρεί το έτος από τον τίτλο, για να μείνει σκέτος αυτός
-        title = title.replace(" (" + String.valueOf(year) + ")", "");
+            year.set((short) value);
+            count.set(1);
 
-        // Δημιουργία του αντικειμένου movie
-        Movie movie = new Movie(Long.parseLong(lineFields[0]), title, String.valueOf(year));
+            context.write(year, count);
+        }
 
-        // Διάβασμα των κατηγοριών της ταινίας και προσθήκη αυτών
-        // στο αντικείμενο movie
-        for (String genre : lineFields[2].split("[|]")) {
-            movie.addGenre(genre);
+        /**
+         * Το στάδιο του MapperStats για την add(): AGGREGATE, ή EMIT αν κάθε έτος
+         * γράφεται κατευθείαν στο context
+         */
+        MapperStats.Stage getAddStage() {
+            return enabled ? MapperStats.Stage.AGGREGATE : MapperStats.Stage.EMIT;
         }
 
-        return movie;
+        void flush() throws IOException, InterruptedException {
+            for (int value = 0; value <= MAX_YEAR; value++) {
+                if (counts[value] == 0) {
+                    continue;
+                }
+
+                year.set((short) value);
+                count.set(counts[value]);
+
+                context.write(year, count);
+                counts[value] = 0;
+            }
+        }
     }
 
-    public static class MoviesMapper extends Mapper<Object, Text, Text, IntWritable> {
-        private final static IntWritable one = new IntWritable();
-        private final Text word = new Text();
+    public static class MoviesMapper extends Mapper<LongWritable, MovieRecord, ShortWritable, IntWritable> {
+        private final YearExtractor years = new YearExtractor();
 
-        public void map(Object key, Text value, Context context) throws IOException, InterruptedException {
-            Movie movie = null;
+        private YearCounter counter;
+        private MapperStats stats;
 
-            String line = value.toString();
+        @Override
+        protected void setup(Context context) {
+            counter = new YearCounter(context);
+            stats = new MapperStats(context.getConfiguration());
+        }
 
-            // Αν η γραμμή είναι η επικεφαλίδα του αρχείου, τότε την παραλείπουμε
-            if (line.startsWith("movieId,")) {
-                return;
+        public void map(LongWritable key, MovieRecord movie, Context context) throws IOException, InterruptedException {
+            stats.start();
+
+            int year = years.extract(movie.getBytes(), movie.getTitleStart(), movie.getTitleEnd());
+
+            if (year == YearExtractor.NO_YEAR) {
+                stats.count(MapperStats.Records.NO_YEAR);
             }
+            stats.stage(MapperStats.Stage.EXTRACT);
 
-            // Διάβασμα της γραμμής και δημιουργία του αντικειμένου Movie
-            movie = getMovie(line);
+            // Προσθήκη του έτους στους μετρητές του mapper
+            counter.add(year);
+            stats.stage(counter.getAddStage());
+        }
 
-            // Προσθήκη του έτους στο context του mapper
-            word.set(movie.getYear());
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            // Εξαγωγή των μετρητών που έχουν μαζευτεί στον mapper
+            long start = System.nanoTime();
+            counter.flush();
+            stats.add(MapperStats.Stage.EMIT, System.nanoTime() - start);
 
-            try {
-                one.set(1);
+            stats.flush(context);
+        }
+    }
 
-                context.write(word, one);
-            } catch (Exception e) {
-                System.out.println(e.getMessage());
+    /**
+     * Mapper για input σε δυαδική μορφή (MoviesToColumnar). Διαβάζει μόνο τη στήλη του έτους
+     */
+    public static class ColumnarMapper extends Mapper<LongWritable, MovieWritable, ShortWritable, IntWritable> {
+        private YearCounter counter;
+        private MapperStats stats;
+
+        @Override
+        protected void setup(Context context) {
+            counter = new YearCounter(context);
+            stats = new MapperStats(context.getConfiguration());
+        }
+
+        public void map(LongWritable key, MovieWritable movie, Context context) throws IOException, InterruptedException {
+            stats.start();
+
+            if (movie.getYear() == YearExtractor.NO_YEAR) {
+                stats.count(MapperStats.Records.NO_YEAR);
             }
+
+            // Προσθήκη του έτους στους μετρητές του mapper
+            counter.add(movie.getYear());
+            stats.stage(counter.getAddStage());
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            // Εξαγωγή των μετρητών που έχουν μαζευτεί στον mapper
+            long start = System.nanoTime();
+            counter.flush();
+            stats.add(MapperStats.Stage.EMIT, System.nanoTime() - start);
+
+            stats.flush(context);
         }
     }
 
-    public static class MoviesReducer extends Reducer<Text, IntWritable, Text, IntWritable> {
+    public static class MoviesReducer extends Reducer<ShortWritable, IntWritable, ShortWritable, IntWritable> {
         private final IntWritable result = new IntWritable();
 
-        public void reduce(Text key, Iterable<IntWritable> values, Context context) throws IOException, InterruptedException {
+        public void reduce(ShortWritable key, Iterable<IntWritable> values, Context context) throws IOException, InterruptedException {
             int sum = 0;
 
             // Καταμέτρηση των ταινιών που έχουν δημιουργηθεί στο συγκεκριμένο έτος
@@ -123,58 +185,90 @@ public class MoviesInYear {
         }
     }
 
-    public static void main(String[] args) throws Exception {
-        Configuration conf = new Configuration();
-        Job job = Job.getInstance(conf, "Movies in year");
-        job.setJarByClass(MoviesInYear.class);
-        job.setMapperClass(MoviesMapper.class);
-        job.setReducerClass(MoviesReducer.class);
-        job.setOutputKeyClass(Text.class);
-        job.setOutputValueClass(IntWritable.class);
-        FileInputFormat.addInputPath(job, new Path(args[0]));
-        FileOutputFormat.setOutputPath(job, new Path(args[1]));
-        System.exit(job.waitForCompletion(true) ? 0 : 1);
+    /**
+     * Οι ταινίες ανά έτος σε ένα δείγμα του input, για τα όρια του RangePartitioner
+     *
+     * @param job
+     * @return long[] με index το έτος
+     */
+    private static long[] sampleYears(Job job) throws IOException, InterruptedException {
+        long[] counts = new long[MAX_YEAR + 1];
+        YearExtractor years = new YearExtractor();
+
+        RangePartitioner.sample(job, value -> {
+            if (value instanceof MovieWritable) {
+                counts[((MovieWritable) value).getYear()]++;
+            } else {
+                MovieRecord movie = (MovieRecord) value;
+                counts[years.extract(movie.getBytes(), movie.getTitleStart(), movie.getTitleEnd())]++;
+            }
+        });
+
+        return counts;
     }
 
     /**
-     * Αντικείμενο για την αποθήκευση των δεδομένων της ταινίας
+     * Δημιουργία του job, χωρίς να ξεκινήσει
+     *
+     * @param conf
+     * @param input
+     * @param output
+     * @return Job
      */
-    public static class Movie {
-        private final long movieId;
-        private final String title;
-        private final String year;
-        private final ArrayList<String> genres = new ArrayList<>();
-
-        public Movie(long movieId, String title, String year) {
-            this.movieId = movieId;
-            this.title = title;
-            this.year = year;
-        }
+    public static Job createJob(Configuration conf, Path input, Path output) throws IOException, InterruptedException {
+        Job job = Job.getInstance(conf, "Movies in year");
+        job.setJarByClass(MoviesInYear.class);
 
-        public String getTitle() {
-            return title;
+        // Αν το input έχει μετατραπεί με το MoviesToColumnar, διαβάζεται μόνο η στήλη του έτους
+        if (MoviesColumnarInputFormat.isColumnar(conf, input)) {
+            job.setInputFormatClass(MoviesColumnarInputFormat.class);
+            MoviesColumnarInputFormat.setColumns(job, "year");
+            job.setMapperClass(ColumnarMapper.class);
+        } else {
+            job.setInputFormatClass(MoviesInputFormat.class);
+            job.setMapperClass(MoviesMapper.class);
         }
 
-        public ArrayList<String> getGenres() {
-            return genres;
+        job.setCombinerClass(MoviesReducer.class);
+        job.setReducerClass(MoviesReducer.class);
+        // Τα έτη είναι ShortWritable, οπότε ταξινομούνται αριθμητικά
+        job.setOutputKeyClass(ShortWritable.class);
+        job.setOutputValueClass(IntWritable.class);
+        FileInputFormat.addInputPath(job, input);
+        FileOutputFormat.setOutputPath(job, output);
+        Compression.configure(job);
+
+        // Με -D mapreduce.job.reduces=N τα έτη μοιράζονται σε διαδοχικά διαστήματα με περίπου
+        // ίδιο πλήθος ταινιών, αφού οι περισσότερες είναι των τελευταίων δεκαετιών
+        if (job.getNumReduceTasks() > 1) {
+            RangePartitioner.ShortKeys.configure(job, sampleYears(job));
         }
 
-        public void addGenre(String genre) {
-            genres.add(genre);
-        }
+        return job;
+    }
 
-        public String getYear() {
-            return year;
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        String[] remainingArgs = new GenericOptionsParser(conf, args).getRemainingArgs();
+
+        Path input = new Path(remainingArgs[0]);
+        Path output = new Path(remainingArgs[1]);
+
+        ResultCache cache = ResultCache.open(conf, MoviesInYear.class, input);
+        if (cache != null && cache.restore(output)) {
+            System.exit(0);
         }
 
-        @Override
-        public String toString() {
-            return "Movie{" +
-                    "movieId=" + movieId +
-                    ", title='" + title + '\'' +
-                    ", year='" + year + '\'' +
-                    ", genres=" + genres +
-                    '}';
+        Job job = createJob(conf, input, output);
+
+        long start = System.nanoTime();
+        boolean success = job.waitForCompletion(true);
+        JobReport.print(job, System.nanoTime() - start);
+
+        if (success && cache != null) {
+            cache.store(output);
         }
+
+        System.exit(success ? 0 : 1);
     }
 }
@@ -0,0 +1,385 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Σταδιακός υπολογισμός των αποτελεσμάτων του MoviesStatistics, μόνο για τις ταινίες
+ * που προστέθηκαν στο τέλος του movies.csv από την προηγούμενη εκτέλεση
+ *
+ */
+
+package eu.apps4net;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import eu.apps4net.core.Compression;
+import eu.apps4net.core.JobReport;
+import eu.apps4net.core.MoviesInputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.KeyValueTextInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.MultipleInputs;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.mapreduce.lib.reduce.IntSumReducer;
+import org.apache.hadoop.util.GenericOptionsParser;
+
+/**
+ * Το output έχει τους φακέλους genres/, years/ και words/, όπως το MoviesStatistics,
+ * και τον φάκελο _incremental/ με την κατάσταση της προηγούμενης εκτέλεσης:
+ *
+ *   _incremental/state/counts/  όλοι οι μετρητές με την ετικέτα τους (και οι λέξεις κάτω
+ *                               από το minimumWordAppearances, για να αθροιστούν αργότερα)
+ *   _incremental/state/offset   μέχρι ποιο byte του αρχείου έχει διαβαστεί και ένα CRC32
+ *                               των τελευταίων bytes πριν από αυτό
+ *
+ * Το job γράφει τα πάντα, μαζί με το offset, σε έναν νέο φάκελο run-... και η κατάσταση
+ * αλλάζει με ένα rename του φακέλου αυτού σε state/, οπότε οι μετρητές και το offset
+ * αλλάζουν πάντα μαζί. Μετά τα genres/, years/ και words/ μετακινούνται από το state/
+ * στο output. Αν ο driver σταματήσει στη μέση, η επόμενη εκτέλεση επαναφέρει το
+ * προηγούμενο state/ (αν δεν πρόλαβε να γίνει το rename) ή ολοκληρώνει τη μετακίνηση
+ * των αποτελεσμάτων που έμειναν στο state/.
+ *
+ * Σε κάθε εκτέλεση οι mappers διαβάζουν μόνο τις γραμμές μετά το offset, μαζί με τους
+ * αποθηκευμένους μετρητές, και ο reducer τους αθροίζει. Αν το αρχείο δεν έχει αλλάξει,
+ * δεν τρέχει καθόλου job. Αν το αρχείο άλλαξε πριν από το offset (μίκρυνε ή το CRC32
+ * διαφέρει), γίνεται αυτόματα πλήρης υπολογισμός.
+ *
+ * Με -D movies.incremental.full=true γίνεται πλήρης υπολογισμός από την αρχή, π.χ. για
+ * σύγκριση με τα αποθηκευμένα αποτελέσματα.
+ *
+ * Χρήση: MoviesIncremental movies.csv output [minimumWordAppearances]
+ */
+public class MoviesIncremental {
+    public static final String FULL = "movies.incremental.full";
+
+    // Τα όρια του αρχείου που θα διαβαστούν, για το TailInputFormat
+    public static final String START = "movies.incremental.start";
+    public static final String END = "movies.incremental.end";
+
+    private static final String STATE_DIRECTORY = "_incremental";
+    private static final String STATE = "state";
+    private static final String PREVIOUS_STATE = "state-previous";
+    private static final String COUNTS = "counts";
+    private static final String OFFSET_FILE = "offset";
+    private static final String[] RESULTS = {"genres", "years", "words"};
+
+    // Πόσα bytes πριν από το offset ελέγχονται με το CRC32
+    private static final int CHECK_BYTES = 4096;
+
+    /**
+     * MoviesInputFormat που διαβάζει μόνο τις γραμμές στο [START, END) του αρχείου.
+     *
+     * Ο RecordReader προσπερνάει την πρώτη γραμμή κάθε split που δεν ξεκινάει στο 0
+     * και διαβάζει και τη γραμμή που ξεκινάει ακριβώς στο τέλος του. Γι' αυτό το πρώτο
+     * split ξεκινάει ένα byte πριν, στο '\n' της προηγούμενης γραμμής, και το τελευταίο
+     * τελειώνει ένα byte πριν από το END.
+     */
+    public static class TailInputFormat extends MoviesInputFormat {
+        @Override
+        public List<InputSplit> getSplits(JobContext job) throws IOException {
+            Configuration conf = job.getConfiguration();
+            long start = conf.getLong(START, 0);
+            long end = conf.getLong(END, Long.MAX_VALUE);
+
+            List<InputSplit> splits = new ArrayList<>();
+
+            for (InputSplit split : super.getSplits(job)) {
+                FileSplit fileSplit = (FileSplit) split;
+                long splitStart = Math.max(fileSplit.getStart(), start);
+                long splitEnd = Math.min(fileSplit.getStart() + fileSplit.getLength(), end);
+
+                if (splitStart >= splitEnd) {
+                    continue;
+                }
+
+                if (splitStart == start && start > 0) {
+                    splitStart--;
+                }
+                if (splitEnd == end) {
+                    splitEnd--;
+                }
+
+                // Ένα split μηδενικού μήκους διαβάζει γραμμή μόνο αν ξεκινάει στο 0
+                if (splitStart < splitEnd || splitStart == 0) {
+                    splits.add(new FileSplit(fileSplit.getPath(), splitStart, splitEnd - splitStart, fileSplit.getLocations()));
+                }
+            }
+
+            return splits;
+        }
+    }
+
+    /**
+     * Διαβάζει τους αποθηκευμένους μετρητές (κλειδί με ετικέτα \t πλήθος)
+     */
+    public static class CountsMapper extends Mapper<Text, Text, Text, IntWritable> {
+        private final IntWritable count = new IntWritable();
+
+        public void map(Text key, Text value, Context context) throws IOException, InterruptedException {
+            count.set(Integer.parseInt(value.toString()));
+
+            context.write(key, count);
+        }
+    }
+
+    /**
+     * Γράφει όλους τους μετρητές στο counts/, για την επόμενη εκτέλεση, και τα
+     * αποτελέσματα στους φακέλους του MoviesStatistics
+     */
+    public static class MergeReducer extends MoviesStatistics.MoviesReducer {
+        private final IntWritable count = new IntWritable();
+
+        public void reduce(Text key, Iterable<IntWritable> values, Context context) throws IOException, InterruptedException {
+            int sum = 0;
+
+            for (IntWritable val : values) {
+                sum += val.get();
+            }
+
+            count.set(sum);
+            outputs.write(key, count, COUNTS + "/part");
+
+            writeResult(key, sum);
+        }
+    }
+
+    /**
+     * Η κατάσταση που αποθηκεύεται στο _incremental/state/offset
+     */
+    private static class Offset {
+        long offset;
+        long checksum;
+
+        static Offset read(FileSystem fs, Path file) throws IOException {
+            if (!fs.exists(file)) {
+                return null;
+            }
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(file), StandardCharsets.UTF_8))) {
+                String[] fields = reader.readLine().split("\t");
+                Offset state = new Offset();
+                state.offset = Long.parseLong(fields[0]);
+                state.checksum = Long.parseLong(fields[1]);
+
+                return state;
+            }
+        }
+
+        void write(FileSystem fs, Path file) throws IOException {
+            try (Writer writer = new OutputStreamWriter(fs.create(file, true), StandardCharsets.UTF_8)) {
+                writer.write(offset + "\t" + checksum + "\n");
+            }
+        }
+    }
+
+    /**
+     * CRC32 των CHECK_BYTES bytes πριν από το offset
+     */
+    private static long checksum(FileSystem fs, Path input, long offset) throws IOException {
+        int length = (int) Math.min(offset, CHECK_BYTES);
+        byte[] bytes = new byte[length];
+
+        try (FSDataInputStream in = fs.open(input)) {
+            in.readFully(offset - length, bytes, 0, length);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+
+        return crc.getValue();
+    }
+
+    /**
+     * Το τέλος της τελευταίας ολόκληρης γραμμής. Μια γραμμή που δεν έχει ακόμα \n
+     * μπορεί να γράφεται εκείνη τη στιγμή, οπότε μένει για την επόμενη εκτέλεση
+     */
+    private static long lastLineEnd(FileSystem fs, Path input, long length) throws IOException {
+        byte[] buffer = new byte[CHECK_BYTES];
+
+        try (FSDataInputStream in = fs.open(input)) {
+            for (long end = length; end > 0; end -= buffer.length) {
+                int size = (int) Math.min(buffer.length, end);
+                in.readFully(end - size, buffer, 0, size);
+
+                for (int i = size - 1; i >= 0; i--) {
+                    if (buffer[i] == '\n') {
+                        return end - size + i + 1;
+                    }
+                }
+            }
+        }
+
+        return 0;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        String[] remainingArgs = new GenericOptionsParser(conf, args).getRemainingArgs();
+
+        // Αν έχει δοθεί τρίτο όρισμα, τότε είναι ο ελάχιστος αριθμός εμφανίσεων των λέξεων
+        if (remainingArgs.length == 3) {
+            conf.setInt(WordsInMovies.MINIMUM_WORD_APPEARANCES, Integer.parseInt(remainingArgs[2]));
+        }
+
+        // Οι μετρητές της κατάστασης χρειάζονται όλα τα metrics
+        conf.unset(MoviesStatistics.METRICS);
+
+        Path input = new Path(remainingArgs[0]);
+        Path output = new Path(remainingArgs[1]);
+        Path stateDirectory = new Path(output, STATE_DIRECTORY);
+        Path state = new Path(stateDirectory, STATE);
+
+        FileSystem fs = output.getFileSystem(conf);
+        FileSystem inputFs = input.getFileSystem(conf);
+
+        recover(fs, stateDirectory, output);
+
+        long end = lastLineEnd(inputFs, input, inputFs.getFileStatus(input).getLen());
+
+        // Έλεγχος αν η προηγούμενη κατάσταση ταιριάζει με το αρχείο
+        Offset previous = conf.getBoolean(FULL, false) ? null : Offset.read(fs, new Path(state, OFFSET_FILE));
+        if (previous != null && (previous.offset > end || checksum(inputFs, input, previous.offset) != previous.checksum)) {
+            System.out.println("The input has changed before offset " + previous.offset + ", running a full recompute");
+            previous = null;
+        }
+
+        long start = previous == null ? 0 : previous.offset;
+
+        if (start == end) {
+            System.out.println("No new movies after offset " + start);
+            System.exit(0);
+        }
+
+        conf.setLong(START, start);
+        conf.setLong(END, end);
+
+        Path runOutput = new Path(stateDirectory, "run-" + System.currentTimeMillis());
+
+        Job job = Job.getInstance(conf, "Movies statistics (incremental)");
+        job.setJarByClass(MoviesIncremental.class);
+
+        // Οι νέες γραμμές περνάνε από τον mapper του MoviesStatistics και οι
+        // αποθηκευμένοι μετρητές από τον CountsMapper
+        MultipleInputs.addInputPath(job, input, TailInputFormat.class, MoviesStatistics.MoviesMapper.class);
+        Path counts = new Path(state, COUNTS);
+        if (previous != null && fs.exists(counts)) {
+            MultipleInputs.addInputPath(job, counts, KeyValueTextInputFormat.class, CountsMapper.class);
+        }
+
+        job.setCombinerClass(IntSumReducer.class);
+        job.setReducerClass(MergeReducer.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(IntWritable.class);
+        LazyOutputFormat.setOutputFormatClass(job, TextOutputFormat.class);
+        FileOutputFormat.setOutputPath(job, runOutput);
+        Compression.configure(job);
+
+        long jobStart = System.nanoTime();
+        boolean success = job.waitForCompletion(true);
+        JobReport.print(job, System.nanoTime() - jobStart);
+
+        if (!success) {
+            fs.delete(runOutput, true);
+            System.exit(1);
+        }
+
+        // Ένα αποτέλεσμα χωρίς γραμμές (π.χ. καμία λέξη) πρέπει να αντικαταστήσει το παλιό
+        for (String result : RESULTS) {
+            fs.mkdirs(new Path(runOutput, result));
+        }
+
+        Offset offset = new Offset();
+        offset.offset = end;
+        offset.checksum = checksum(inputFs, input, end);
+        offset.write(fs, new Path(runOutput, OFFSET_FILE));
+
+        commit(fs, stateDirectory, runOutput);
+        publish(fs, state, output);
+
+        System.out.println("Processed bytes " + start + " to " + end + " of " + input);
+        System.exit(0);
+    }
+
+    /**
+     * Κάνει το runOutput τη νέα κατάσταση. Το rename του runOutput σε state/ είναι το
+     * μοναδικό σημείο όπου αλλάζει η κατάσταση
+     */
+    private static void commit(FileSystem fs, Path stateDirectory, Path runOutput) throws IOException {
+        Path state = new Path(stateDirectory, STATE);
+        Path previous = new Path(stateDirectory, PREVIOUS_STATE);
+
+        if (fs.exists(state)) {
+            rename(fs, state, previous);
+        }
+        rename(fs, runOutput, state);
+
+        fs.delete(previous, true);
+    }
+
+    /**
+     * Ολοκληρώνει μια εκτέλεση που σταμάτησε μετά το job. Αν το state/ μετονομάστηκε
+     * αλλά το νέο δεν πρόλαβε να πάρει τη θέση του, επαναφέρεται το προηγούμενο. Αν η
+     * νέα κατάσταση γράφτηκε, μετακινούνται τα αποτελέσματα που έμειναν σε αυτή
+     */
+    private static void recover(FileSystem fs, Path stateDirectory, Path output) throws IOException {
+        Path state = new Path(stateDirectory, STATE);
+        Path previous = new Path(stateDirectory, PREVIOUS_STATE);
+
+        if (fs.exists(previous)) {
+            if (fs.exists(state)) {
+                fs.delete(previous, true);
+            } else {
+                rename(fs, previous, state);
+                System.out.println("Restored the previous state of " + output);
+            }
+        }
+
+        publish(fs, state, output);
+    }
+
+    /**
+     * Μετακινεί τα genres/, years/ και words/ της κατάστασης στο output, αντικαθιστώντας
+     * τα παλιά. Όσα έχουν ήδη μετακινηθεί δεν υπάρχουν πια στο state/
+     */
+    private static void publish(FileSystem fs, Path state, Path output) throws IOException {
+        for (String result : RESULTS) {
+            Path source = new Path(state, result);
+            Path target = new Path(output, result);
+
+            if (!fs.exists(source)) {
+                continue;
+            }
+
+            if (fs.exists(target) && !fs.delete(target, true)) {
+                throw new IOException("Could not delete " + target);
+            }
+
+            rename(fs, source, target);
+        }
+    }
+
+    private static void rename(FileSystem fs, Path source, Path target) throws IOException {
+        if (!fs.rename(source, target)) {
+            throw new IOException("Could not rename " + source + " to " + target);
+        }
+    }
+}
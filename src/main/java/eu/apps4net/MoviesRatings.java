@@ -0,0 +1,711 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Πλήθος και μέσος όρος των βαθμολογιών του ratings.csv ανά είδος και ανά έτος,
+ * με join με το movies.csv στο movieId
+ *
+ */
+
+package eu.apps4net;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import eu.apps4net.core.Compression;
+import eu.apps4net.core.GenreDictionary;
+import eu.apps4net.core.InMapperCombiner;
+import eu.apps4net.core.MovieRecord;
+import eu.apps4net.core.MovieTable;
+import eu.apps4net.core.MoviesInputFormat;
+import eu.apps4net.core.RatingSumWritable;
+import eu.apps4net.core.ResultCache;
+import eu.apps4net.core.YearExtractor;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.MultipleInputs;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.util.GenericOptionsParser;
+
+/**
+ * Το output έχει τους φακέλους genres/ και years/, με γραμμές "κλειδί\tπλήθος\tμέσος όρος".
+ *
+ * Map-side join (default): το movies.csv μπαίνει στο distributed cache και κάθε mapper το
+ * φορτώνει σε ένα MovieTable (movieId -> bitmask ειδών, έτος). Κάθε βαθμολογία του
+ * ratings.csv προστίθεται στα (άθροισμα, πλήθος) των ειδών και του έτους της ταινίας,
+ * σε πίνακες μέσα στον mapper, που γράφονται μία φορά στο cleanup. Το ratings.csv δεν
+ * περνάει καθόλου από το shuffle.
+ *
+ * Το map-side join χρειάζεται το movies.csv ως ένα αρχείο. Αν το movies είναι φάκελος
+ * ή glob, το auto διαλέγει reduce-side join, και με -D movies.ratings.join=map ο driver
+ * σταματάει με μήνυμα πριν ξεκινήσει το job.
+ *
+ * Reduce-side join: αν το movies.csv είναι μεγαλύτερο από movies.ratings.max.table.bytes,
+ * ή με -D movies.ratings.join=reduce, οι δύο πίνακες διαβάζονται με MultipleInputs και
+ * ενώνονται στον reducer με κλειδί το movieId. Οι βαθμολογίες κάθε ταινίας αθροίζονται
+ * πρώτα στον combiner. Ένα δεύτερο job αθροίζει τα αποτελέσματα ανά είδος και έτος.
+ *
+ * Χρήση: MoviesRatings movies.csv ratings.csv output
+ */
+public class MoviesRatings {
+    // map, reduce ή auto (default), που διαλέγει με βάση το μέγεθος του movies.csv
+    public static final String JOIN = "movies.ratings.join";
+    public static final String MAX_TABLE_BYTES = "movies.ratings.max.table.bytes";
+    public static final long DEFAULT_MAX_TABLE_BYTES = 256L * 1024 * 1024;
+
+    // Το movies.csv του map-side join, γράφεται από τον driver
+    public static final String MOVIES_FILE = "movies.ratings.movies";
+
+    public static final byte GENRE_TAG = 'g';
+    public static final byte YEAR_TAG = 'y';
+
+    private static final int MAX_YEAR = 9999;
+
+    public enum Ratings {
+        JOINED,
+        UNKNOWN_MOVIE,
+        MALFORMED
+    }
+
+    /**
+     * Οι στήλες movieId και rating μιας γραμμής userId,movieId,rating,timestamp
+     */
+    private static class RatingLine {
+        private long movieId;
+        private long rating;
+
+        /**
+         * @param line
+         * @return boolean false για την επικεφαλίδα ή μια γραμμή που δεν διαβάζεται
+         */
+        boolean parse(Text line) {
+            byte[] bytes = line.getBytes();
+            int end = line.getLength();
+            int i = 0;
+
+            // userId
+            while (i < end && bytes[i] != ',') {
+                i++;
+            }
+            i++;
+
+            long id = 0;
+            int digits = 0;
+            for (; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++, digits++) {
+                id = id * 10 + (bytes[i] - '0');
+            }
+
+            if (digits == 0 || i >= end || bytes[i] != ',') {
+                return false;
+            }
+            i++;
+
+            // Η βαθμολογία σε χιλιοστά, π.χ. 3.5 -> 3500
+            long value = 0;
+            digits = 0;
+            for (; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++, digits++) {
+                value = value * 10 + (bytes[i] - '0');
+            }
+            value *= RatingSumWritable.SCALE;
+
+            if (i < end && bytes[i] == '.') {
+                int scale = RatingSumWritable.SCALE;
+
+                for (i++; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++, digits++) {
+                    scale /= 10;
+                    value += (bytes[i] - '0') * scale;
+                }
+            }
+
+            if (digits == 0 || (i < end && bytes[i] != ',' && bytes[i] != '\r')) {
+                return false;
+            }
+
+            movieId = id;
+            rating = value;
+
+            return true;
+        }
+    }
+
+    /**
+     * Τα (άθροισμα, πλήθος) ανά είδος και ανά έτος, σε πίνακες με index το id του είδους
+     * και το έτος. Γράφονται στο context στο flush(), ή αμέσως αν το in-mapper combining
+     * είναι απενεργοποιημένο
+     */
+    private static class RatingTotals {
+        private final TaskInputOutputContext<?, ?, Text, RatingSumWritable> context;
+        private final GenreDictionary dictionary;
+        private final boolean enabled;
+
+        private final long[] genreSums = new long[GenreDictionary.MAX_GENRES];
+        private final long[] genreCounts = new long[GenreDictionary.MAX_GENRES];
+        private final long[] yearSums = new long[MAX_YEAR + 1];
+        private final long[] yearCounts = new long[MAX_YEAR + 1];
+
+        private final Text key = new Text();
+        private final RatingSumWritable value = new RatingSumWritable();
+        private final byte[] tagged = new byte[5];
+
+        RatingTotals(TaskInputOutputContext<?, ?, Text, RatingSumWritable> context, GenreDictionary dictionary) {
+            this.context = context;
+            this.dictionary = dictionary;
+            this.enabled = context.getConfiguration().getBoolean(InMapperCombiner.ENABLED, true);
+        }
+
+        /**
+         * Προσθέτει τις βαθμολογίες μιας ταινίας στα είδη και στο έτος της
+         *
+         * @param genres bitmask με τα id του dictionary
+         * @param year
+         * @param sum
+         * @param count
+         */
+        void add(int genres, int year, long sum, long count) throws IOException, InterruptedException {
+            for (int bits = genres; bits != 0; bits &= bits - 1) {
+                int id = Integer.numberOfTrailingZeros(bits);
+
+                if (enabled) {
+                    genreSums[id] += sum;
+                    genreCounts[id] += count;
+                } else {
+                    writeGenre(id, sum, count);
+                }
+            }
+
+            if (enabled) {
+                yearSums[year] += sum;
+                yearCounts[year] += count;
+            } else {
+                writeYear(year, sum, count);
+            }
+        }
+
+        void flush() throws IOException, InterruptedException {
+            for (int id = 0; id < GenreDictionary.MAX_GENRES; id++) {
+                if (genreCounts[id] > 0) {
+                    writeGenre(id, genreSums[id], genreCounts[id]);
+                    genreSums[id] = 0;
+                    genreCounts[id] = 0;
+                }
+            }
+
+            for (int year = 0; year <= MAX_YEAR; year++) {
+                if (yearCounts[year] > 0) {
+                    writeYear(year, yearSums[year], yearCounts[year]);
+                    yearSums[year] = 0;
+                    yearCounts[year] = 0;
+                }
+            }
+        }
+
+        private void writeGenre(int id, long sum, long count) throws IOException, InterruptedException {
+            byte[] name = dictionary.getLowerCaseName(id);
+
+            tagged[0] = GENRE_TAG;
+            key.set(tagged, 0, 1);
+            key.append(name, 0, name.length);
+            value.set(sum, count);
+
+            context.write(key, value);
+        }
+
+        private void writeYear(int year, long sum, long count) throws IOException, InterruptedException {
+            // Το έτος ως κείμενο χωρίς μηδενικά μπροστά, όπως στο MoviesInYear
+            tagged[0] = YEAR_TAG;
+            key.set(tagged, 0, YearExtractor.writeYear(year, tagged, 1));
+            value.set(sum, count);
+
+            context.write(key, value);
+        }
+    }
+
+    /**
+     * Map-side join: κάθε βαθμολογία ενώνεται με την ταινία από το MovieTable
+     */
+    public static class RatingsMapper extends Mapper<LongWritable, Text, Text, RatingSumWritable> {
+        private final RatingLine rating = new RatingLine();
+        private final GenreDictionary dictionary = new GenreDictionary();
+
+        private MovieTable movies;
+        private RatingTotals totals;
+        private long joined;
+        private long unknown;
+
+        @Override
+        protected void setup(Context context) throws IOException, InterruptedException {
+            Configuration conf = context.getConfiguration();
+            Path file = new Path(conf.get(MOVIES_FILE));
+
+            // Στους κόμβους το αρχείο του distributed cache υπάρχει τοπικά, ως symlink
+            // στον φάκελο του task με το όνομα του αρχείου
+            File link = new File(file.getName());
+            if (link.exists()) {
+                file = new Path(link.getAbsoluteFile().toURI());
+            }
+
+            movies = MovieTable.load(conf, file, dictionary);
+            totals = new RatingTotals(context, dictionary);
+        }
+
+        public void map(LongWritable key, Text line, Context context) throws IOException, InterruptedException {
+            if (!rating.parse(line)) {
+                if (key.get() != 0) {
+                    context.getCounter(Ratings.MALFORMED).increment(1);
+                }
+                return;
+            }
+
+            int index = movies.indexOf(rating.movieId);
+            if (index == MovieTable.NOT_FOUND) {
+                unknown++;
+                return;
+            }
+
+            totals.add(movies.getGenres(index), movies.getYear(index), rating.rating, 1);
+            joined++;
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            // Εξαγωγή των αθροισμάτων που έχουν μαζευτεί στον mapper
+            totals.flush();
+
+            context.getCounter(Ratings.JOINED).increment(joined);
+            context.getCounter(Ratings.UNKNOWN_MOVIE).increment(unknown);
+        }
+    }
+
+    /**
+     * Άθροισμα των (άθροισμα, πλήθος) του ίδιου κλειδιού
+     */
+    public static class RatingsCombiner extends Reducer<Text, RatingSumWritable, Text, RatingSumWritable> {
+        private final RatingSumWritable result = new RatingSumWritable();
+
+        public void reduce(Text key, Iterable<RatingSumWritable> values, Context context) throws IOException, InterruptedException {
+            result.clear();
+
+            for (RatingSumWritable value : values) {
+                result.merge(value);
+            }
+
+            context.write(key, result);
+        }
+    }
+
+    public static class RatingsReducer extends Reducer<Text, RatingSumWritable, Text, RatingSumWritable> {
+        private final RatingSumWritable result = new RatingSumWritable();
+        private final Text name = new Text();
+
+        private MultipleOutputs<Text, RatingSumWritable> outputs;
+
+        @Override
+        protected void setup(Context context) {
+            outputs = new MultipleOutputs<>(context);
+        }
+
+        public void reduce(Text key, Iterable<RatingSumWritable> values, Context context) throws IOException, InterruptedException {
+            result.clear();
+
+            for (RatingSumWritable value : values) {
+                result.merge(value);
+            }
+
+            // Αφαίρεση της ετικέτας από το κλειδί και εξαγωγή στον φάκελό της
+            byte tag = key.getBytes()[0];
+            name.set(key.getBytes(), 1, key.getLength() - 1);
+
+            outputs.write(name, result, tag == GENRE_TAG ? "genres/part" : "years/part");
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            outputs.close();
+        }
+    }
+
+    /**
+     * Η τιμή του reduce-side join: είτε μια ταινία (έτος και τα είδη όπως είναι στο
+     * movies.csv) είτε το (άθροισμα, πλήθος) κάποιων βαθμολογιών της
+     */
+    public static class JoinValue implements Writable {
+        private boolean movie;
+        private short year;
+        private final Text genres = new Text();
+        private final RatingSumWritable ratings = new RatingSumWritable();
+
+        public void setMovie(int year, byte[] bytes, int start, int length) {
+            this.movie = true;
+            this.year = (short) year;
+            genres.set(bytes, start, length);
+        }
+
+        public void setRatings(long sum, long count) {
+            this.movie = false;
+            ratings.set(sum, count);
+        }
+
+        public boolean isMovie() {
+            return movie;
+        }
+
+        public int getYear() {
+            return year;
+        }
+
+        public Text getGenres() {
+            return genres;
+        }
+
+        public RatingSumWritable getRatings() {
+            return ratings;
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeBoolean(movie);
+
+            if (movie) {
+                out.writeShort(year);
+                genres.write(out);
+            } else {
+                ratings.write(out);
+            }
+        }
+
+        @Override
+        public void readFields(DataInput in) throws IOException {
+            movie = in.readBoolean();
+
+            if (movie) {
+                year = in.readShort();
+                genres.readFields(in);
+            } else {
+                ratings.readFields(in);
+            }
+        }
+    }
+
+    public static class MovieSideMapper extends Mapper<LongWritable, MovieRecord, LongWritable, JoinValue> {
+        private final YearExtractor years = new YearExtractor();
+        private final LongWritable movieId = new LongWritable();
+        private final JoinValue value = new JoinValue();
+
+        public void map(LongWritable key, MovieRecord movie, Context context) throws IOException, InterruptedException {
+            int year = years.extract(movie.getBytes(), movie.getTitleStart(), movie.getTitleEnd());
+
+            movieId.set(movie.getMovieId());
+            value.setMovie(year, movie.getBytes(), movie.getGenresStart(), movie.getGenresEnd() - movie.getGenresStart());
+
+            context.write(movieId, value);
+        }
+    }
+
+    public static class RatingSideMapper extends Mapper<LongWritable, Text, LongWritable, JoinValue> {
+        private final RatingLine rating = new RatingLine();
+        private final LongWritable movieId = new LongWritable();
+        private final JoinValue value = new JoinValue();
+
+        public void map(LongWritable key, Text line, Context context) throws IOException, InterruptedException {
+            if (!rating.parse(line)) {
+                if (key.get() != 0) {
+                    context.getCounter(Ratings.MALFORMED).increment(1);
+                }
+                return;
+            }
+
+            movieId.set(rating.movieId);
+            value.setRatings(rating.rating, 1);
+
+            context.write(movieId, value);
+        }
+    }
+
+    /**
+     * Αθροίζει τις βαθμολογίες κάθε ταινίας, ώστε στο shuffle να περνάει μία τιμή ανά
+     * ταινία και mapper. Οι ταινίες περνάνε όπως είναι
+     */
+    public static class JoinCombiner extends Reducer<LongWritable, JoinValue, LongWritable, JoinValue> {
+        private final JoinValue result = new JoinValue();
+        private final RatingSumWritable ratings = new RatingSumWritable();
+
+        public void reduce(LongWritable key, Iterable<JoinValue> values, Context context) throws IOException, InterruptedException {
+            ratings.clear();
+
+            for (JoinValue value : values) {
+                if (value.isMovie()) {
+                    context.write(key, value);
+                } else {
+                    ratings.merge(value.getRatings());
+                }
+            }
+
+            if (ratings.getCount() > 0) {
+                result.setRatings(ratings.getSum(), ratings.getCount());
+                context.write(key, result);
+            }
+        }
+    }
+
+    /**
+     * Ενώνει την ταινία με το άθροισμα των βαθμολογιών της και το προσθέτει στα είδη και
+     * στο έτος της. Τα αθροίσματα γράφονται στο cleanup, για το δεύτερο job
+     */
+    public static class JoinReducer extends Reducer<LongWritable, JoinValue, Text, RatingSumWritable> {
+        private final GenreDictionary dictionary = new GenreDictionary();
+        private final RatingSumWritable ratings = new RatingSumWritable();
+
+        private RatingTotals totals;
+
+        @Override
+        protected void setup(Context context) {
+            totals = new RatingTotals(context, dictionary);
+        }
+
+        public void reduce(LongWritable key, Iterable<JoinValue> values, Context context) throws IOException, InterruptedException {
+            boolean found = false;
+            int genres = 0;
+            int year = 0;
+
+            ratings.clear();
+
+            for (JoinValue value : values) {
+                if (value.isMovie()) {
+                    found = true;
+                    genres = toBitmask(value.getGenres());
+                    year = value.getYear();
+                } else {
+                    ratings.merge(value.getRatings());
+                }
+            }
+
+            if (ratings.getCount() == 0) {
+                return;
+            }
+
+            if (!found) {
+                context.getCounter(Ratings.UNKNOWN_MOVIE).increment(ratings.getCount());
+                return;
+            }
+
+            totals.add(genres, year, ratings.getSum(), ratings.getCount());
+            context.getCounter(Ratings.JOINED).increment(ratings.getCount());
+        }
+
+        /**
+         * Το bitmask των ειδών "Adventure|Animation|...", με τα id του dictionary
+         */
+        private int toBitmask(Text field) {
+            byte[] bytes = field.getBytes();
+            int bitmask = 0;
+            int start = 0;
+
+            for (int i = 0; i <= field.getLength(); i++) {
+                if (i < field.getLength() && bytes[i] != '|') {
+                    continue;
+                }
+
+                if (i > start) {
+                    bitmask |= 1 << dictionary.add(bytes, start, i - start);
+                }
+                start = i + 1;
+            }
+
+            return bitmask;
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            totals.flush();
+        }
+    }
+
+    /**
+     * Ρυθμίσεις του output που είναι ίδιες στο map-side join και στο δεύτερο job του
+     * reduce-side join
+     */
+    private static void setOutput(Job job, Path output) {
+        job.setCombinerClass(RatingsCombiner.class);
+        job.setReducerClass(RatingsReducer.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(RatingSumWritable.class);
+
+        // Τα αποτελέσματα γράφονται μόνο από τα MultipleOutputs
+        LazyOutputFormat.setOutputFormatClass(job, TextOutputFormat.class);
+
+        FileOutputFormat.setOutputPath(job, output);
+        Compression.configure(job);
+    }
+
+    /**
+     * Δημιουργία του map-side join, χωρίς να ξεκινήσει
+     *
+     * @param conf
+     * @param movies
+     * @param ratings
+     * @param output
+     * @return Job
+     */
+    public static Job createJob(Configuration conf, Path movies, Path ratings, Path output) throws IOException {
+        if (getMoviesFile(conf, movies) == null) {
+            throw new IOException("The map-side join reads the movies from a single file, but " + movies
+                    + " is a directory or a glob. Use -D " + JOIN + "=reduce");
+        }
+
+        Job job = Job.getInstance(conf, "Ratings per genre and year");
+        job.setJarByClass(MoviesRatings.class);
+
+        URI uri = movies.getFileSystem(conf).makeQualified(movies).toUri();
+        try {
+            // Το fragment είναι το όνομα του symlink στον φάκελο του task
+            job.addCacheFile(new URI(uri.getScheme(), uri.getAuthority(), uri.getPath(), null, movies.getName()));
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        job.getConfiguration().set(MOVIES_FILE, uri.toString());
+
+        job.setInputFormatClass(TextInputFormat.class);
+        job.setMapperClass(RatingsMapper.class);
+        FileInputFormat.addInputPath(job, ratings);
+        setOutput(job, output);
+
+        return job;
+    }
+
+    /**
+     * Το πρώτο job του reduce-side join, που γράφει τα αθροίσματα κάθε reducer
+     * σε SequenceFile στο joined
+     *
+     * @param conf
+     * @param movies
+     * @param ratings
+     * @param joined
+     * @return Job
+     */
+    public static Job createJoinJob(Configuration conf, Path movies, Path ratings, Path joined) throws IOException {
+        Job job = Job.getInstance(conf, "Ratings join");
+        job.setJarByClass(MoviesRatings.class);
+
+        MultipleInputs.addInputPath(job, movies, MoviesInputFormat.class, MovieSideMapper.class);
+        MultipleInputs.addInputPath(job, ratings, TextInputFormat.class, RatingSideMapper.class);
+
+        job.setCombinerClass(JoinCombiner.class);
+        job.setReducerClass(JoinReducer.class);
+        job.setMapOutputKeyClass(LongWritable.class);
+        job.setMapOutputValueClass(JoinValue.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(RatingSumWritable.class);
+        job.setOutputFormatClass(SequenceFileOutputFormat.class);
+        FileOutputFormat.setOutputPath(job, joined);
+        Compression.configure(job);
+
+        return job;
+    }
+
+    /**
+     * Το δεύτερο job του reduce-side join, που αθροίζει τα αποτελέσματα του πρώτου
+     *
+     * @param conf
+     * @param joined
+     * @param output
+     * @return Job
+     */
+    public static Job createAggregateJob(Configuration conf, Path joined, Path output) throws IOException {
+        Job job = Job.getInstance(conf, "Ratings per genre and year");
+        job.setJarByClass(MoviesRatings.class);
+        job.setInputFormatClass(SequenceFileInputFormat.class);
+        job.setMapperClass(Mapper.class);
+        FileInputFormat.addInputPath(job, joined);
+        setOutput(job, output);
+
+        return job;
+    }
+
+    /**
+     * Αν το join θα γίνει στους reducers, επειδή το movies.csv δεν χωράει στη μνήμη των
+     * mappers ή δεν είναι ένα αρχείο
+     */
+    private static boolean isReduceSide(Configuration conf, Path movies) throws IOException {
+        String join = conf.get(JOIN, "auto");
+
+        if (join.equalsIgnoreCase("map") || join.equalsIgnoreCase("reduce")) {
+            return join.equalsIgnoreCase("reduce");
+        }
+
+        FileStatus file = getMoviesFile(conf, movies);
+
+        return file == null || file.getLen() > conf.getLong(MAX_TABLE_BYTES, DEFAULT_MAX_TABLE_BYTES);
+    }
+
+    /**
+     * Το αρχείο των ταινιών, ή null αν το movies είναι φάκελος ή glob, οπότε δεν μπορεί
+     * να φορτωθεί από το MovieTable.load()
+     */
+    private static FileStatus getMoviesFile(Configuration conf, Path movies) throws IOException {
+        FileSystem fs = movies.getFileSystem(conf);
+        FileStatus[] matches = fs.globStatus(movies);
+
+        // Ένα glob που ταιριάζει σε ένα αρχείο έχει άλλο path από το αρχείο
+        if (matches == null || matches.length != 1 || !matches[0].isFile()
+                || !matches[0].getPath().equals(fs.makeQualified(movies))) {
+            return null;
+        }
+
+        return matches[0];
+    }
+
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        String[] remainingArgs = new GenericOptionsParser(conf, args).getRemainingArgs();
+
+        Path movies = new Path(remainingArgs[0]);
+        Path ratings = new Path(remainingArgs[1]);
+        Path output = new Path(remainingArgs[2]);
+
+        ResultCache cache = ResultCache.open(conf, MoviesRatings.class, movies, ratings);
+        if (cache != null && cache.restore(output)) {
+            System.exit(0);
+        }
+
+        boolean success;
+        if (!isReduceSide(conf, movies)) {
+            success = createJob(conf, movies, ratings, output).waitForCompletion(true);
+        } else {
+            // Τα ενδιάμεσα αποτελέσματα γράφονται δίπλα στο output και σβήνονται στο τέλος
+            Path joined = output.suffix("-joined");
+            FileSystem fs = joined.getFileSystem(conf);
+
+            success = createJoinJob(conf, movies, ratings, joined).waitForCompletion(true)
+                    && createAggregateJob(conf, joined, output).waitForCompletion(true);
+
+            fs.delete(joined, true);
+        }
+
+        if (success && cache != null) {
+            cache.store(output);
+        }
+
+        System.exit(success ? 0 : 1);
+    }
+}
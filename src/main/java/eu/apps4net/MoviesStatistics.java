@@ -0,0 +1,287 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Υπολογισμός των ταινιών ανά είδος, των ταινιών ανά έτος και των λέξεων των τίτλων
+ * με ένα μόνο διάβασμα του αρχείου
+ *
+ */
+
+package eu.apps4net;
+
+import java.io.IOException;
+
+import eu.apps4net.core.Compression;
+import eu.apps4net.core.InMapperCombiner;
+import eu.apps4net.core.JobReport;
+import eu.apps4net.core.KeyCounter;
+import eu.apps4net.core.MapperStats;
+import eu.apps4net.core.MovieRecord;
+import eu.apps4net.core.MoviesInputFormat;
+import eu.apps4net.core.ResultCache;
+import eu.apps4net.core.TitleTokenizer;
+import eu.apps4net.core.YearExtractor;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.mapreduce.lib.reduce.IntSumReducer;
+import org.apache.hadoop.util.GenericOptionsParser;
+
+/**
+ * Κάθε γραμμή διαβάζεται μία φορά και ο mapper βγάζει κλειδιά με ένα byte ετικέτα
+ * μπροστά (g: είδος, y: έτος, w: λέξη). Ο reducer γράφει κάθε ετικέτα στον δικό της
+ * φάκελο (genres/, years/, words/) μέσα στο output, με το ίδιο format που έχουν τα
+ * MoviesInGenres, MoviesInYear και WordsInMovies.
+ *
+ * Με το -D movies.metrics=genres,years,words επιλέγεται ποια αποτελέσματα θα υπολογιστούν.
+ */
+public class MoviesStatistics {
+    public static final String METRICS = "movies.metrics";
+
+    public static final byte GENRE_TAG = 'g';
+    public static final byte YEAR_TAG = 'y';
+    public static final byte WORD_TAG = 'w';
+
+    /**
+     * Ελέγχει αν το metric είναι ενεργό στο configuration
+     *
+     * @param conf
+     * @param metric
+     * @return boolean
+     */
+    private static boolean isEnabled(Configuration conf, String metric) {
+        for (String enabled : conf.getTrimmedStrings(METRICS, "genres", "years", "words")) {
+            if (enabled.equalsIgnoreCase(metric)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public static class MoviesMapper extends Mapper<LongWritable, MovieRecord, Text, IntWritable> {
+        private final Text word = new Text();
+        private final Text genre = new Text();
+        private final byte[] tag = new byte[1];
+
+        private final YearExtractor yearExtractor = new YearExtractor();
+        private final byte[] yearBytes = new byte[4];
+
+        private InMapperCombiner combiner;
+        private TitleTokenizer tokenizer;
+        private final KeyCounter wordCounter = (bytes, start, length) -> writeTagged(WORD_TAG, bytes, start, length);
+        private MapperStats stats;
+
+        private boolean genres;
+        private boolean years;
+        private boolean words;
+
+        @Override
+        protected void setup(Context context) {
+            Configuration conf = context.getConfiguration();
+
+            combiner = new InMapperCombiner(context);
+            tokenizer = new TitleTokenizer(conf.getBoolean(WordsInMovies.UNICODE_WORDS, false));
+            stats = new MapperStats(conf);
+
+            genres = isEnabled(conf, "genres");
+            years = isEnabled(conf, "years");
+            words = isEnabled(conf, "words");
+        }
+
+        public void map(LongWritable key, MovieRecord movie, Context context) throws IOException, InterruptedException {
+            stats.start();
+
+            if (movie.getGenreCount() == 0) {
+                stats.count(MapperStats.Records.NO_GENRES);
+            }
+
+            // Είδη της ταινίας
+            if (genres) {
+                for (int i = 0; i < movie.getGenreCount(); i++) {
+                    movie.getGenreLowerCase(i, genre);
+                    writeTagged(GENRE_TAG, genre.getBytes(), 0, genre.getLength());
+                }
+                stats.stage(combiner.getAddStage());
+            }
+
+            if (!years && !words) {
+                return;
+            }
+
+            int year = yearExtractor.extract(movie.getBytes(), movie.getTitleStart(), movie.getTitleEnd());
+
+            if (year == YearExtractor.NO_YEAR) {
+                stats.count(MapperStats.Records.NO_YEAR);
+            }
+            stats.stage(MapperStats.Stage.EXTRACT);
+
+            // Έτος της ταινίας, ως κείμενο χωρίς μηδενικά μπροστά
+            if (years) {
+                writeTagged(YEAR_TAG, yearBytes, 0, YearExtractor.writeYear(year, yearBytes, 0));
+                stats.stage(combiner.getAddStage());
+            }
+
+            // Λέξεις του τίτλου, χωρίς το έτος
+            if (words) {
+                tokenizer.tokenize(movie.getBytes(), movie.getTitleStart(), yearExtractor.getTitleEnd(), year, wordCounter);
+                stats.stage(MapperStats.Stage.TOKENIZE);
+            }
+        }
+
+        /**
+         * Γράφει στο context το κλειδί με την ετικέτα στο πρώτο byte
+         */
+        private void writeTagged(byte metric, byte[] bytes, int start, int length) throws IOException, InterruptedException {
+            tag[0] = metric;
+            word.set(tag, 0, 1);
+            word.append(bytes, start, length);
+
+            combiner.add(word);
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            // Εξαγωγή των μετρητών που έχουν μαζευτεί στον mapper
+            long start = System.nanoTime();
+            combiner.flush();
+            stats.add(MapperStats.Stage.EMIT, System.nanoTime() - start);
+
+            stats.count(MapperStats.Records.TOKENS_FILTERED, tokenizer.takeFilteredTokens());
+            stats.flush(context);
+        }
+    }
+
+    public static class MoviesReducer extends Reducer<Text, IntWritable, Text, IntWritable> {
+        private final IntWritable result = new IntWritable();
+        private final Text word = new Text();
+
+        protected MultipleOutputs<Text, IntWritable> outputs;
+        private int minimumWordAppearances;
+
+        @Override
+        protected void setup(Context context) {
+            outputs = new MultipleOutputs<>(context);
+            minimumWordAppearances = context.getConfiguration().getInt(WordsInMovies.MINIMUM_WORD_APPEARANCES,
+                    WordsInMovies.DEFAULT_MINIMUM_WORD_APPEARANCES);
+        }
+
+        public void reduce(Text key, Iterable<IntWritable> values, Context context) throws IOException, InterruptedException {
+            int sum = 0;
+
+            for (IntWritable val : values) {
+                sum += val.get();
+            }
+
+            writeResult(key, sum);
+        }
+
+        /**
+         * Γράφει το άθροισμα του κλειδιού στον φάκελο της ετικέτας του
+         *
+         * @param key
+         * @param sum
+         */
+        protected void writeResult(Text key, int sum) throws IOException, InterruptedException {
+            byte tag = key.getBytes()[0];
+
+            // Οι λέξεις εξάγονται μόνο αν έχουν εμφανιστεί περισσότερες από minimumWordAppearances φορές
+            if (tag == WORD_TAG && sum <= minimumWordAppearances) {
+                return;
+            }
+
+            // Αφαίρεση της ετικέτας από το κλειδί
+            word.set(key.getBytes(), 1, key.getLength() - 1);
+            result.set(sum);
+
+            outputs.write(word, result, getBaseOutputPath(tag));
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            outputs.close();
+        }
+
+        private static String getBaseOutputPath(byte tag) {
+            switch (tag) {
+                case GENRE_TAG:
+                    return "genres/part";
+                case YEAR_TAG:
+                    return "years/part";
+                default:
+                    return "words/part";
+            }
+        }
+    }
+
+    /**
+     * Δημιουργία του job, χωρίς να ξεκινήσει
+     *
+     * @param conf
+     * @param input
+     * @param output
+     * @return Job
+     */
+    public static Job createJob(Configuration conf, Path input, Path output) throws IOException {
+        Job job = Job.getInstance(conf, "Movies statistics");
+        job.setJarByClass(MoviesStatistics.class);
+        job.setInputFormatClass(MoviesInputFormat.class);
+        job.setMapperClass(MoviesMapper.class);
+        // Ο reducer γράφει στα MultipleOutputs, οπότε ο combiner κάνει μόνο το άθροισμα
+        job.setCombinerClass(IntSumReducer.class);
+        job.setReducerClass(MoviesReducer.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(IntWritable.class);
+
+        // Τα αποτελέσματα γράφονται μόνο από τα MultipleOutputs, οπότε δεν χρειάζονται
+        // τα κενά part-r αρχεία στη ρίζα του output
+        LazyOutputFormat.setOutputFormatClass(job, TextOutputFormat.class);
+
+        FileInputFormat.addInputPath(job, input);
+        FileOutputFormat.setOutputPath(job, output);
+        Compression.configure(job);
+
+        return job;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        String[] remainingArgs = new GenericOptionsParser(conf, args).getRemainingArgs();
+
+        // Αν έχει δοθεί τρίτο όρισμα, τότε είναι ο ελάχιστος αριθμός εμφανίσεων των λέξεων
+        if (remainingArgs.length == 3) {
+            conf.setInt(WordsInMovies.MINIMUM_WORD_APPEARANCES, Integer.parseInt(remainingArgs[2]));
+        }
+
+        Path input = new Path(remainingArgs[0]);
+        Path output = new Path(remainingArgs[1]);
+
+        ResultCache cache = ResultCache.open(conf, MoviesStatistics.class, input);
+        if (cache != null && cache.restore(output)) {
+            System.exit(0);
+        }
+
+        Job job = createJob(conf, input, output);
+
+        long start = System.nanoTime();
+        boolean success = job.waitForCompletion(true);
+        JobReport.print(job, System.nanoTime() - start);
+
+        if (success && cache != null) {
+            cache.store(output);
+        }
+
+        System.exit(success ? 0 : 1);
+    }
+}
@@ -0,0 +1,498 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Συνεχής υπολογισμός των ταινιών ανά είδος, ανά έτος και των λέξεων των τίτλων, καθώς
+ * έρχονται νέες γραμμές, χωρίς Hadoop
+ *
+ */
+
+package eu.apps4net;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import eu.apps4net.core.BytesIntHashMap;
+import eu.apps4net.core.LocalResultWriter;
+import eu.apps4net.core.MoviesCsvParser;
+import eu.apps4net.core.TitleTokenizer;
+import eu.apps4net.core.YearExtractor;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Οι γραμμές έρχονται από έναν φάκελο ή από ένα socket στο localhost:
+ *
+ *   - φάκελος: διαβάζονται όλα τα αρχεία του και μετά, κάθε POLL_MILLIS, ό,τι έχει
+ *     προστεθεί στο τέλος τους ή τα νέα αρχεία
+ *   - socket: κάθε σύνδεση στέλνει γραμμές του movies.csv, π.χ. με nc localhost 9999
+ *
+ * Οι γραμμές μπαίνουν σε μια ουρά και τις επεξεργάζονται τα worker threads, με την ίδια
+ * λογική που έχουν οι mappers των jobs. Κάθε worker μαζεύει τους μετρητές μιας ομάδας
+ * γραμμών τοπικά και μετά τους προσθέτει στους κοινούς μετρητές, που είναι LongAdder.
+ *
+ * Κάθε snapshotSeconds γράφεται ένα snapshot-<millis>/ στο output, με τους φακέλους
+ * genres/, years/ και words/ στο format του MoviesStatistics, με το LocalResultWriter.
+ * Το αρχείο LATEST έχει το όνομα του τελευταίου snapshot και κρατιούνται μόνο τα
+ * KEEP_SNAPSHOTS τελευταία.
+ *
+ * Χρήση: MoviesStreaming (φάκελος | port) output [minimumWordAppearances] [snapshotSeconds] [threads]
+ * Δεν υπάρχει Configuration, οπότε το movies.words.unicode είναι ιδιότητα της JVM και
+ * δίνεται πριν από την κλάση, π.χ. java -Dmovies.words.unicode=true ... MoviesStreaming,
+ * και τότε οι λέξεις κρατάνε όλα τα γράμματα unicode.
+ */
+public class MoviesStreaming {
+    private static final int MAX_YEAR = 9999;
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_SIZE = 64 * 1024;
+    private static final long POLL_MILLIS = 500;
+    private static final int KEEP_SNAPSHOTS = 5;
+
+    private final ConcurrentHashMap<String, LongAdder> genres = new ConcurrentHashMap<>();
+    private final LongAdder[] years = new LongAdder[MAX_YEAR + 1];
+    private final ConcurrentHashMap<String, LongAdder> words = new ConcurrentHashMap<>();
+    private final LongAdder movies = new LongAdder();
+
+    private final BlockingQueue<byte[]> lines = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final Path output;
+    private final int minimumWordAppearances;
+
+    // Τα millis του τελευταίου snapshot, ώστε δύο snapshots να μην έχουν ποτέ το ίδιο όνομα
+    private long lastSnapshot;
+
+    private volatile boolean running = true;
+
+    public MoviesStreaming(Path output, int minimumWordAppearances) {
+        this.output = output;
+        this.minimumWordAppearances = minimumWordAppearances;
+
+        for (int year = 0; year <= MAX_YEAR; year++) {
+            years[year] = new LongAdder();
+        }
+    }
+
+    /**
+     * Επεξεργάζεται τις γραμμές της ουράς σε ομάδες των BATCH_SIZE
+     */
+    private class Worker implements Runnable {
+        private final MoviesCsvParser parser = new MoviesCsvParser();
+        private final YearExtractor yearExtractor = new YearExtractor();
+        // Ιδιότητα της JVM, όχι του Configuration
+        private final TitleTokenizer tokenizer = new TitleTokenizer(Boolean.getBoolean(WordsInMovies.UNICODE_WORDS));
+        private final Text genre = new Text();
+
+        private final BytesIntHashMap batchGenres = new BytesIntHashMap(64);
+        private final BytesIntHashMap batchWords = new BytesIntHashMap(4096);
+        private final List<byte[]> batch = new ArrayList<>(BATCH_SIZE);
+
+        @Override
+        public void run() {
+            try {
+                while (running || !lines.isEmpty()) {
+                    byte[] first = lines.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+
+                    batch.add(first);
+                    lines.drainTo(batch, BATCH_SIZE - 1);
+
+                    for (byte[] line : batch) {
+                        map(line);
+                    }
+
+                    batch.clear();
+                    flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void map(byte[] line) throws IOException, InterruptedException {
+            // Αν η γραμμή είναι η επικεφαλίδα ή δεν είναι έγκυρη, τότε την παραλείπει
+            if (MoviesCsvParser.isHeader(line, 0, line.length) || !parser.parse(line, 0, line.length)) {
+                return;
+            }
+
+            movies.increment();
+
+            for (int i = 0; i < parser.getGenreCount(); i++) {
+                parser.getGenreLowerCase(i, genre);
+                batchGenres.add(genre.getBytes(), 0, genre.getLength(), 1);
+            }
+
+            int year = yearExtractor.extract(line, parser.getTitleStart(), parser.getTitleEnd());
+            years[year].increment();
+
+            tokenizer.tokenize(line, parser.getTitleStart(), yearExtractor.getTitleEnd(), year,
+                    (bytes, start, length) -> batchWords.add(bytes, start, length, 1));
+        }
+
+        /**
+         * Προσθέτει τους μετρητές της ομάδας στους κοινούς μετρητές
+         */
+        private void flush() throws IOException, InterruptedException {
+            batchGenres.forEach((bytes, start, length, count) -> add(genres, bytes, start, length, count));
+            batchWords.forEach((bytes, start, length, count) -> add(words, bytes, start, length, count));
+
+            batchGenres.clear();
+            batchWords.clear();
+        }
+
+        private void add(ConcurrentHashMap<String, LongAdder> counts, byte[] bytes, int start, int length, int count) {
+            String key = new String(bytes, start, length, StandardCharsets.UTF_8);
+
+            counts.computeIfAbsent(key, k -> new LongAdder()).add(count);
+        }
+    }
+
+    /**
+     * Διαβάζει τα αρχεία του φακέλου και ό,τι προστίθεται σε αυτά
+     */
+    private class DirectorySource implements Runnable {
+        private final Path directory;
+        private final Map<Path, Long> offsets = new HashMap<>();
+        // Τα αρχεία που βρίσκονται μέσα σε μια γραμμή μεγαλύτερη από τον buffer
+        private final Set<Path> skipping = new HashSet<>();
+        private final ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+
+        DirectorySource(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    poll();
+
+                    Thread.sleep(POLL_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Διαβάζει μία φορά τα αρχεία του φακέλου. Ένα αρχείο που σβήστηκε ή δεν
+         * διαβάζεται προσπερνιέται, και ξαναδοκιμάζεται στο επόμενο poll
+         */
+        private void poll() throws InterruptedException {
+            List<Path> files = new ArrayList<>();
+
+            try (Stream<Path> list = Files.list(directory)) {
+                list.sorted().forEach(files::add);
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("Cannot list " + directory + ": " + e.getMessage());
+                return;
+            }
+
+            for (Path file : files) {
+                if (!Files.isRegularFile(file) || isHidden(file)) {
+                    continue;
+                }
+
+                try {
+                    readNewLines(file);
+                } catch (IOException e) {
+                    System.err.println("Cannot read " + file + ": " + e.getMessage());
+                }
+            }
+        }
+
+        private boolean isHidden(Path file) {
+            String name = file.getFileName().toString();
+
+            return name.startsWith(".") || name.startsWith("_");
+        }
+
+        /**
+         * Διαβάζει τις ολόκληρες γραμμές μετά το offset του αρχείου. Η τελευταία γραμμή
+         * διαβάζεται μόνο όταν γραφτεί και το \n της. Μια γραμμή μεγαλύτερη από τον buffer
+         * δεν μπορεί να είναι γραμμή του movies.csv, οπότε προσπερνιέται ολόκληρη, μέχρι
+         * το \n της, ακόμα κι αν γράφεται σε περισσότερα polls
+         */
+        private void readNewLines(Path file) throws IOException, InterruptedException {
+            long offset = offsets.getOrDefault(file, 0L);
+            boolean skip = skipping.contains(file);
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                // Αν το αρχείο μίκρυνε, γράφτηκε από την αρχή
+                if (channel.size() < offset) {
+                    offset = 0;
+                    skip = false;
+                }
+
+                while (offset < channel.size()) {
+                    buffer.clear();
+                    int read = channel.read(buffer, offset);
+                    if (read <= 0) {
+                        break;
+                    }
+
+                    int lineStart = 0;
+                    for (int i = 0; i < read; i++) {
+                        if (buffer.get(i) == '\n') {
+                            if (skip) {
+                                skip = false;
+                            } else {
+                                putLine(buffer.array(), lineStart, i);
+                            }
+                            lineStart = i + 1;
+                        }
+                    }
+
+                    if (lineStart == 0 && (skip || read == buffer.capacity())) {
+                        // Ο buffer δεν έχει \n: τα bytes είναι μέρος μιας πολύ μεγάλης γραμμής
+                        skip = true;
+                        lineStart = read;
+                    }
+
+                    if (lineStart == 0) {
+                        break;
+                    }
+
+                    offset += lineStart;
+                }
+            } finally {
+                offsets.put(file, offset);
+
+                if (skip) {
+                    skipping.add(file);
+                } else {
+                    skipping.remove(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Δέχεται συνδέσεις στο localhost και διαβάζει γραμμές από κάθε μία
+     */
+    private class SocketSource implements Runnable {
+        private final ServerSocket server;
+
+        SocketSource(int port) throws IOException {
+            this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    Socket socket = server.accept();
+                    Thread reader = new Thread(() -> readLines(socket), "movies-socket-" + socket.getPort());
+
+                    reader.setDaemon(true);
+                    reader.start();
+                } catch (IOException e) {
+                    if (running) {
+                        System.err.println("Cannot accept connection: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        private void readLines(Socket socket) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+            try (Socket connection = socket; InputStream in = new BufferedInputStream(connection.getInputStream())) {
+                int b;
+                while ((b = in.read()) != -1) {
+                    if (b != '\n') {
+                        line.write(b);
+                        continue;
+                    }
+
+                    lines.put(line.toByteArray());
+                    line.reset();
+                }
+
+                if (line.size() > 0) {
+                    lines.put(line.toByteArray());
+                }
+            } catch (IOException e) {
+                System.err.println("Connection closed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void close() throws IOException {
+            server.close();
+        }
+    }
+
+    private void putLine(byte[] bytes, int start, int end) throws InterruptedException {
+        // Γραμμές με \r\n
+        if (end > start && bytes[end - 1] == '\r') {
+            end--;
+        }
+
+        lines.put(Arrays.copyOfRange(bytes, start, end));
+    }
+
+    /**
+     * Γράφει ένα snapshot των μετρητών. Γράφεται πρώτα σε κρυφό φάκελο και μετά
+     * μετονομάζεται, ώστε όποιος το διαβάζει να βλέπει πάντα ολόκληρα αρχεία. Δύο
+     * snapshots στο ίδιο millisecond παίρνουν διαδοχικά millis, και αν ο φάκελος υπάρχει
+     * ήδη (π.χ. από άλλη εκτέλεση στο ίδιο output) το snapshot αποτυγχάνει
+     */
+    public synchronized void snapshot() throws IOException {
+        lastSnapshot = Math.max(System.currentTimeMillis(), lastSnapshot + 1);
+
+        String name = "snapshot-" + lastSnapshot;
+        Path temporary = Files.createDirectory(output.resolve("." + name));
+
+        writeCounts(temporary.resolve("genres"), genres, 0);
+        LocalResultWriter.writeYears(temporary.resolve("years"), Arrays.stream(years).mapToLong(LongAdder::sum).toArray());
+        writeCounts(temporary.resolve("words"), words, minimumWordAppearances);
+
+        Path snapshot = output.resolve(name);
+        if (Files.exists(snapshot)) {
+            throw new FileAlreadyExistsException(snapshot.toString());
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+
+        Path latest = output.resolve(".LATEST");
+        Files.write(latest, (name + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(latest, output.resolve("LATEST"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        deleteOldSnapshots();
+    }
+
+    private static void writeCounts(Path directory, Map<String, LongAdder> counts, int minimum) throws IOException {
+        LocalResultWriter writer = new LocalResultWriter();
+
+        counts.forEach((key, adder) -> {
+            long sum = adder.sum();
+
+            if (sum > minimum) {
+                writer.add(key, sum);
+            }
+        });
+
+        writer.write(directory);
+    }
+
+    private void deleteOldSnapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+
+        try (Stream<Path> files = Files.list(output)) {
+            files.filter(path -> path.getFileName().toString().startsWith("snapshot-")).forEach(snapshots::add);
+        }
+
+        snapshots.sort(Comparator.comparingLong(path -> Long.parseLong(path.getFileName().toString().substring("snapshot-".length()))));
+
+        for (int i = 0; i < snapshots.size() - KEEP_SNAPSHOTS; i++) {
+            try (Stream<Path> files = Files.walk(snapshots.get(i))) {
+                for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String source = args[0];
+        Path output = Paths.get(args[1]);
+        int minimumWordAppearances = args.length > 2 ? Integer.parseInt(args[2]) : WordsInMovies.DEFAULT_MINIMUM_WORD_APPEARANCES;
+        int snapshotSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        Files.createDirectories(output);
+
+        MoviesStreaming streaming = new MoviesStreaming(output, minimumWordAppearances);
+
+        // Αν το πρώτο όρισμα είναι αριθμός, είναι το port του socket
+        SocketSource socketSource = null;
+        Runnable reader;
+        if (source.matches("\\d+")) {
+            socketSource = streaming.new SocketSource(Integer.parseInt(source));
+            reader = socketSource;
+        } else {
+            reader = streaming.new DirectorySource(Paths.get(source));
+        }
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(streaming.new Worker(), "movies-worker-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        Thread readerThread = new Thread(reader, "movies-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        ScheduledExecutorService snapshots = Executors.newSingleThreadScheduledExecutor();
+        snapshots.scheduleAtFixedRate(() -> {
+            try {
+                streaming.snapshot();
+                System.out.println("Snapshot with " + streaming.movies.sum() + " movies");
+            } catch (IOException e) {
+                System.err.println("Cannot write snapshot: " + e.getMessage());
+            }
+        }, snapshotSeconds, snapshotSeconds, TimeUnit.SECONDS);
+
+        // Με Ctrl-C οι workers τελειώνουν την ουρά και γράφεται ένα τελευταίο snapshot
+        SocketSource server = socketSource;
+        Thread shutdown = new Thread(() -> {
+            streaming.running = false;
+            snapshots.shutdown();
+
+            try {
+                if (server != null) {
+                    server.close();
+                }
+
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+
+                streaming.snapshot();
+            } catch (IOException | InterruptedException e) {
+                System.err.println("Cannot write final snapshot: " + e.getMessage());
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(shutdown);
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+}
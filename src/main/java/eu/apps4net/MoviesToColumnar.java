@@ -0,0 +1,101 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Μετατροπή του movies.csv σε δυαδική μορφή, ανά στήλη, για γρηγορότερα επόμενα διαβάσματα
+ *
+ */
+
+package eu.apps4net;
+
+import java.io.IOException;
+
+import eu.apps4net.columnar.MovieBlockWritable;
+import eu.apps4net.core.Compression;
+import eu.apps4net.core.MovieRecord;
+import eu.apps4net.core.MoviesInputFormat;
+import eu.apps4net.core.YearExtractor;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.GenericOptionsParser;
+
+/**
+ * Job χωρίς reducers. Κάθε mapper μαζεύει τις ταινίες σε MovieBlockWritable και γράφει
+ * ένα μπλοκ στο SequenceFile κάθε movies.columnar.block.rows ταινίες.
+ *
+ * Τα MoviesInGenres, MoviesInYear και WordsInMovies αναγνωρίζουν μόνα τους αν το input
+ * είναι σε αυτή τη μορφή και διαβάζουν μόνο τις στήλες που χρειάζονται. Τα συμπιεσμένα
+ * SequenceFile χωρίζονται σε splits κανονικά, στα sync markers μεταξύ των μπλοκ.
+ */
+public class MoviesToColumnar {
+    public static final String BLOCK_ROWS = "movies.columnar.block.rows";
+
+    public static class MoviesMapper extends Mapper<LongWritable, MovieRecord, NullWritable, MovieBlockWritable> {
+        private final YearExtractor years = new YearExtractor();
+        private final MovieBlockWritable block = new MovieBlockWritable();
+        private final Text title = new Text();
+
+        private int blockRows;
+
+        @Override
+        protected void setup(Context context) {
+            blockRows = context.getConfiguration().getInt(BLOCK_ROWS, 4096);
+        }
+
+        public void map(LongWritable key, MovieRecord movie, Context context) throws IOException, InterruptedException {
+            movie.getTitle(title);
+
+            int year = years.extract(movie.getBytes(), movie.getTitleStart(), movie.getTitleEnd());
+            int genres = block.getDictionary().toBitmask(movie);
+
+            block.add(movie.getMovieId(), (short) year, genres, title.getBytes(), 0, title.getLength());
+
+            if (block.size() >= blockRows) {
+                writeBlock(context);
+            }
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            writeBlock(context);
+        }
+
+        private void writeBlock(Context context) throws IOException, InterruptedException {
+            if (block.size() == 0) {
+                return;
+            }
+
+            context.write(NullWritable.get(), block);
+            block.clear();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        String[] remainingArgs = new GenericOptionsParser(conf, args).getRemainingArgs();
+
+        Job job = Job.getInstance(conf, "Movies to columnar");
+        job.setJarByClass(MoviesToColumnar.class);
+        job.setInputFormatClass(MoviesInputFormat.class);
+        job.setMapperClass(MoviesMapper.class);
+        job.setNumReduceTasks(0);
+        job.setOutputKeyClass(NullWritable.class);
+        job.setOutputValueClass(MovieBlockWritable.class);
+        job.setOutputFormatClass(SequenceFileOutputFormat.class);
+        FileInputFormat.addInputPath(job, new Path(remainingArgs[0]));
+        FileOutputFormat.setOutputPath(job, new Path(remainingArgs[1]));
+        // Με -D movies.compress.output=... το SequenceFile συμπιέζεται ανά μπλοκ
+        Compression.configure(job);
+
+        System.exit(job.waitForCompletion(true) ? 0 : 1);
+    }
+}
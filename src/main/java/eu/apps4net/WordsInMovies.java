@@ -10,117 +10,329 @@
 
 package eu.apps4net;
 
-import java.util.StringTokenizer;
+import eu.apps4net.columnar.MovieWritable;
+import eu.apps4net.columnar.MoviesColumnarInputFormat;
+import eu.apps4net.core.BytesIntHashMap;
+import eu.apps4net.core.Compression;
+import eu.apps4net.core.InMapperCombiner;
+import eu.apps4net.core.JobReport;
+import eu.apps4net.core.KeyCounter;
+import eu.apps4net.core.MapperStats;
+import eu.apps4net.core.MovieRecord;
+import eu.apps4net.core.MoviesInputFormat;
+import eu.apps4net.core.RangePartitioner;
+import eu.apps4net.core.ResultCache;
+import eu.apps4net.core.TitleTokenizer;
+import eu.apps4net.core.TopKHeap;
+import eu.apps4net.core.WordSketchWritable;
+import eu.apps4net.core.YearExtractor;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.reduce.IntSumReducer;
+import org.apache.hadoop.util.GenericOptionsParser;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 
 public class WordsInMovies {
-    private static int minimumWordAppearances = 100; // Αριθμός εμφανίσεων της λέξης για να εμφανιστεί στο αποτέλεσμα
+    // Αριθμός εμφανίσεων της λέξης για να εμφανιστεί στο αποτέλεσμα. Περνάει στους reducers
+    // μέσα από το Configuration του job
+    public static final String MINIMUM_WORD_APPEARANCES = "movies.words.minimum";
+    public static final int DEFAULT_MINIMUM_WORD_APPEARANCES = 100;
+
+    // Αν είναι μεγαλύτερο από 0, εξάγονται μόνο οι TOP_K λέξεις με τις περισσότερες εμφανίσεις
+    public static final String TOP_K = "movies.words.topk";
+
+    // Το αρχείο με τη συγχώνευση των top-K αποτελεσμάτων όλων των reducers
+    public static final String TOP_K_FILE = "top-words";
+
+    // Αν είναι true, οι λέξεις κρατάνε όλα τα γράμματα unicode και όχι μόνο τα a-z και 0-9
+    public static final String UNICODE_WORDS = "movies.words.unicode";
+
+    // Αν είναι true, οι mappers γράφουν μόνο ένα WordSketchWritable και τα αποτελέσματα είναι
+    // προσεγγιστικά, με σταθερό μέγεθος shuffle ανεξάρτητα από το μέγεθος του input
+    public static final String APPROXIMATE = "movies.words.approximate";
+
+    public static class MoviesMapper extends Mapper<LongWritable, MovieRecord, Text, IntWritable> {
+        private final YearExtractor years = new YearExtractor();
+
+        private InMapperCombiner combiner;
+        private TitleTokenizer tokenizer;
+        private MapperStats stats;
+
+        @Override
+        protected void setup(Context context) {
+            combiner = new InMapperCombiner(context);
+            tokenizer = new TitleTokenizer(context.getConfiguration().getBoolean(UNICODE_WORDS, false));
+            stats = new MapperStats(context.getConfiguration());
+        }
+
+        public void map(LongWritable key, MovieRecord movie, Context context) throws IOException, InterruptedException {
+            stats.start();
+
+            int year = years.extract(movie.getBytes(), movie.getTitleStart(), movie.getTitleEnd());
+
+            if (year == YearExtractor.NO_YEAR) {
+                stats.count(MapperStats.Records.NO_YEAR);
+            }
+            stats.stage(MapperStats.Stage.EXTRACT);
+
+            // Προσθήκη των λέξεων του τίτλου, χωρίς το έτος, στο context του mapper. Ο tokenizer
+            // διαβάζει τον τίτλο απευθείας από τη γραμμή, αφού τα εισαγωγικά ούτως ή άλλως αφαιρούνται
+            tokenizer.tokenize(movie.getBytes(), movie.getTitleStart(), years.getTitleEnd(), year, combiner);
+            stats.stage(MapperStats.Stage.TOKENIZE);
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            // Εξαγωγή των μετρητών που έχουν μαζευτεί στον mapper
+            long start = System.nanoTime();
+            combiner.flush();
+            stats.add(MapperStats.Stage.EMIT, System.nanoTime() - start);
+
+            stats.count(MapperStats.Records.TOKENS_FILTERED, tokenizer.takeFilteredTokens());
+            stats.flush(context);
+        }
+    }
 
     /**
-     * Βρίσκει τη λέξη στον τίτλο
-     *
-     * @param title
-     * @return int
+     * Mapper για input σε δυαδική μορφή (MoviesToColumnar). Διαβάζει μόνο τις στήλες του
+     * τίτλου και του έτους
+     */
+    public static class ColumnarMapper extends Mapper<LongWritable, MovieWritable, Text, IntWritable> {
+        private InMapperCombiner combiner;
+        private TitleTokenizer tokenizer;
+        private MapperStats stats;
+
+        @Override
+        protected void setup(Context context) {
+            combiner = new InMapperCombiner(context);
+            tokenizer = new TitleTokenizer(context.getConfiguration().getBoolean(UNICODE_WORDS, false));
+            stats = new MapperStats(context.getConfiguration());
+        }
+
+        public void map(LongWritable key, MovieWritable movie, Context context) throws IOException, InterruptedException {
+            stats.start();
+
+            if (movie.getYear() == YearExtractor.NO_YEAR) {
+                stats.count(MapperStats.Records.NO_YEAR);
+            }
+
+            Text title = movie.getTitle();
+
+            tokenizer.tokenize(title.getBytes(), 0, title.getLength(), movie.getYear(), combiner);
+            stats.stage(MapperStats.Stage.TOKENIZE);
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            // Εξαγωγή των μετρητών που έχουν μαζευτεί στον mapper
+            long start = System.nanoTime();
+            combiner.flush();
+            stats.add(MapperStats.Stage.EMIT, System.nanoTime() - start);
+
+            stats.count(MapperStats.Records.TOKENS_FILTERED, tokenizer.takeFilteredTokens());
+            stats.flush(context);
+        }
+    }
+
+    /**
+     * Mapper του προσεγγιστικού mode. Οι λέξεις μετριούνται στο sketch, που γράφεται μία
+     * φορά στο cleanup
      */
-    private static int getYearFromTitle(String title) {
-        // Αν η λέξη που βρίσκει δεν είναι αριθμός,
-        // σημαίνει ότι στον τίτλο δεν υπάρχει έτος
-        try {
-            // Παίρνει το substring που βρίσκεται στο τέλος του τίτλου (όπου βρίσκεται το έτος)
-            return Integer.parseInt(title.substring(title.length() - 5, title.length() - 1));
-        } catch (Exception e) {
-            return 0;
+    public static class ApproximateMapper extends Mapper<LongWritable, MovieRecord, NullWritable, WordSketchWritable> {
+        private final YearExtractor years = new YearExtractor();
+        private final WordSketchWritable sketch = new WordSketchWritable();
+
+        private TitleTokenizer tokenizer;
+        private MapperStats stats;
+
+        @Override
+        protected void setup(Context context) {
+            sketch.configure(context.getConfiguration());
+            tokenizer = new TitleTokenizer(context.getConfiguration().getBoolean(UNICODE_WORDS, false));
+            stats = new MapperStats(context.getConfiguration());
+        }
+
+        public void map(LongWritable key, MovieRecord movie, Context context) throws IOException, InterruptedException {
+            stats.start();
+
+            int year = years.extract(movie.getBytes(), movie.getTitleStart(), movie.getTitleEnd());
+
+            if (year == YearExtractor.NO_YEAR) {
+                stats.count(MapperStats.Records.NO_YEAR);
+            }
+            stats.stage(MapperStats.Stage.EXTRACT);
+
+            tokenizer.tokenize(movie.getBytes(), movie.getTitleStart(), years.getTitleEnd(), year, sketch);
+            stats.stage(MapperStats.Stage.TOKENIZE);
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            long start = System.nanoTime();
+            sketch.finish();
+            context.write(NullWritable.get(), sketch);
+            stats.add(MapperStats.Stage.EMIT, System.nanoTime() - start);
+
+            stats.count(MapperStats.Records.TOKENS_FILTERED, tokenizer.takeFilteredTokens());
+            stats.flush(context);
         }
     }
 
     /**
-     * Διάβασμα μιας γραμμής του CSV και σπάσιμο των δεδομένων που υπάρχουν σ' αυτήν
-     * Τα δεδομένα περνάνε σε αντικείμενο της κλάσης Movie
-     * ,
-     * @param line
-     * @return Movie
+     * Mapper του προσεγγιστικού mode για input σε δυαδική μορφή
      */
-    private static Movie getMovie(String line) {
-        // Παίρνει σε array τα κομμάτια της γραμμής που χωρίζονται με ","
-        String[] lineFields = line.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
+    public static class ApproximateColumnarMapper extends Mapper<LongWritable, MovieWritable, NullWritable, WordSketchWritable> {
+        private final WordSketchWritable sketch = new WordSketchWritable();
 
-        // Διάβασμα του τίτλου και αφαίρεση των εισαγωγικών που υπάρχουν σε κάποιους
-        // από αυτούς
-        String title = lineFields[1].replace("\"", "");
+        private TitleTokenizer tokenizer;
+        private MapperStats stats;
 
-        // Διαβάζει το έτος
-        int year = getYearFromTitle(title);
+        @Override
+        protected void setup(Context context) {
+            sketch.configure(context.getConfiguration());
+            tokenizer = new TitleTokenizer(context.getConfiguration().getBoolean(UNICODE_WORDS, false));
+            stats = new MapperStats(context.getConfiguration());
+        }
 
-        // Αφαιρεί το έτος από τον τίτλο, για να μείνει σκέτος αυτός
-        title = title.replace(" (" + String.valueOf(year) + ")", "");
+        public void map(LongWritable key, MovieWritable movie, Context context) throws IOException, InterruptedException {
+            stats.start();
 
-        // Δημιουργία του αντικειμένου movie
-        Movie movie = new Movie(Long.parseLong(lineFields[0]), title, String.valueOf(year));
+            if (movie.getYear() == YearExtractor.NO_YEAR) {
+                stats.count(MapperStats.Records.NO_YEAR);
+            }
+
+            Text title = movie.getTitle();
 
-        // Διάβασμα των κατηγοριών της ταινίας και προσθήκη αυτών
-        // στο αντικείμενο movie
-        for (String genre : lineFields[2].split("[|]")) {
-            movie.addGenre(genre);
+            tokenizer.tokenize(title.getBytes(), 0, title.getLength(), movie.getYear(), sketch);
+            stats.stage(MapperStats.Stage.TOKENIZE);
         }
 
-        return movie;
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            long start = System.nanoTime();
+            sketch.finish();
+            context.write(NullWritable.get(), sketch);
+            stats.add(MapperStats.Stage.EMIT, System.nanoTime() - start);
+
+            stats.count(MapperStats.Records.TOKENS_FILTERED, tokenizer.takeFilteredTokens());
+            stats.flush(context);
+        }
     }
 
-    public static class MoviesMapper extends Mapper<Object, Text, Text, IntWritable> {
-        private final static IntWritable one = new IntWritable();
+    /**
+     * Συγχωνεύει τα sketches όλων των mappers. Για κάθε υποψήφια λέξη γράφει την εκτίμηση
+     * του Count-Min και ένα κάτω όριο, "λέξη\tεκτίμηση\tκάτω όριο", από τη συχνότερη προς
+     * τη λιγότερο συχνή. Με πιθανότητα 1 - delta η πραγματική τιμή είναι ανάμεσά τους.
+     * Τα συνολικά μεγέθη και τα όρια σφάλματος γράφονται στο summary-r-00000
+     */
+    public static class ApproximateReducer extends Reducer<NullWritable, WordSketchWritable, Text, Text> {
+        private final WordSketchWritable total = new WordSketchWritable();
         private final Text word = new Text();
+        private final Text value = new Text();
 
-        public void map(Object key, Text value, Context context) throws IOException, InterruptedException {
-            Movie movie = null;
+        private MultipleOutputs<Text, Text> outputs;
+        private int minimumWordAppearances;
+        private int heavyHitters;
 
-            String line = value.toString();
+        @Override
+        protected void setup(Context context) {
+            Configuration conf = context.getConfiguration();
 
-            // Αν η γραμμή είναι η επικεφαλίδα του αρχείου, τότε την παραλείπουμε
-            if (line.startsWith("movieId,")) {
-                return;
-            }
+            outputs = new MultipleOutputs<>(context);
+            total.configure(conf);
+            minimumWordAppearances = conf.getInt(MINIMUM_WORD_APPEARANCES, DEFAULT_MINIMUM_WORD_APPEARANCES);
+            heavyHitters = conf.getInt(WordSketchWritable.HEAVY_HITTERS, WordSketchWritable.DEFAULT_HEAVY_HITTERS);
+        }
 
-            // Διάβασμα της γραμμής και δημιουργία του αντικειμένου Movie
-            movie = getMovie(line);
+        public void reduce(NullWritable key, Iterable<WordSketchWritable> values, Context context) throws IOException, InterruptedException {
+            for (WordSketchWritable sketch : values) {
+                total.merge(sketch);
+            }
 
-            // Προσθήκη των λέξεων στο context του mapper
-            StringTokenizer itr = new StringTokenizer(movie.getTitle());
-            while (itr.hasMoreTokens()) {
-                // Διαβάζει την επόμενη λέξη και τη μετατρέπει σε lowercase, αφαιρώντας και τα σημεία στίξης
-                String token = itr.nextToken().toLowerCase().replaceAll("[^a-zA-Z0-9]", "");
+            // Οι υποψήφιες με τη μεγαλύτερη εκτίμηση, πάνω από το minimumWordAppearances
+            TopKHeap topWords = new TopKHeap(heavyHitters);
+            total.getCandidates().forEach((bytes, start, length, count) -> {
+                long estimate = total.estimate(bytes, start, length);
 
-                // Αν η λέξη είναι μικρότερη από 4 χαρακτήρες, τότε την παραλείπει
-                if(token.length() < 4) {
-                    continue;
+                if (estimate > minimumWordAppearances) {
+                    topWords.offer(bytes, start, length, (int) Math.min(estimate, Integer.MAX_VALUE));
                 }
+            });
 
-                // Εξαγωγή της λέξης στο context
-                word.set(token);
+            long error = total.getCounts().getErrorBound();
+            topWords.drainDescending((bytes, start, length, estimate) -> {
+                long lower = Math.max(total.getCandidates().get(bytes, start, length), estimate - error);
 
-                try {
-                    one.set(1);
+                word.set(bytes, start, length);
+                value.set(estimate + "\t" + lower);
 
-                    context.write(word, one);
-                } catch (Exception e) {
-                    System.out.println(e.getMessage());
-                }
-            }
+                context.write(word, value);
+            });
+
+            writeSummary("tokens", Long.toString(total.getCounts().getTotal()));
+            writeSummary("distinct", Long.toString(total.getDistinct().estimate()));
+            writeSummary("distinct.error", String.format(Locale.ROOT, "%.4f", total.getDistinct().getStandardError()));
+            writeSummary("epsilon", String.format(Locale.ROOT, "%.6f", total.getCounts().getEpsilon()));
+            writeSummary("delta", String.format(Locale.ROOT, "%.6f", total.getCounts().getDelta()));
+            writeSummary("error", Long.toString(error));
+        }
+
+        private void writeSummary(String name, String summary) throws IOException, InterruptedException {
+            word.set(name);
+            value.set(summary);
+
+            outputs.write(word, value, "summary");
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            outputs.close();
         }
     }
 
-    public static class MoviesReducer extends Reducer<Text, IntWritable, Text, IntWritable> {
+    public static class MoviesReducer extends Reducer<Text, IntWritable, Text, IntWritable>
+            implements BytesIntHashMap.EntryConsumer {
         private final IntWritable result = new IntWritable();
+        private final Text word = new Text();
+
+        private int minimumWordAppearances;
+        private TopKHeap topWords;
+        private Context context;
+
+        @Override
+        protected void setup(Context context) {
+            Configuration conf = context.getConfiguration();
+
+            this.context = context;
+            minimumWordAppearances = conf.getInt(MINIMUM_WORD_APPEARANCES, DEFAULT_MINIMUM_WORD_APPEARANCES);
+
+            int topK = conf.getInt(TOP_K, 0);
+            if (topK > 0) {
+                topWords = new TopKHeap(topK);
+            }
+        }
 
         public void reduce(Text key, Iterable<IntWritable> values, Context context) throws IOException, InterruptedException {
             int sum = 0;
@@ -130,73 +342,202 @@ public class WordsInMovies {
                 sum += val.get();
             }
 
-            // Αν η λέξη έχει εμφανιστεί περισσότερες από minimumWordAppearances, τότε την εξάγει
-            if(sum > minimumWordAppearances) {
-                result.set(sum);
+            // Αν η λέξη έχει εμφανιστεί λιγότερες από minimumWordAppearances, τότε δεν την εξάγει
+            if(sum <= minimumWordAppearances) {
+                return;
+            }
 
-                context.write(key, result);
+            // Σε top-K mode η λέξη κρατιέται στον heap και εξάγεται στο cleanup
+            if (topWords != null) {
+                topWords.offer(key.getBytes(), 0, key.getLength(), sum);
+                return;
             }
+
+            result.set(sum);
+
+            context.write(key, result);
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            // Εξαγωγή των top-K λέξεων του reducer, από τη συχνότερη προς τη λιγότερο συχνή
+            if (topWords != null) {
+                topWords.drainDescending(this);
+            }
+        }
+
+        @Override
+        public void accept(byte[] bytes, int start, int length, int count) throws IOException, InterruptedException {
+            word.set(bytes, start, length);
+            result.set(count);
+
+            context.write(word, result);
         }
     }
 
-    public static void main(String[] args) throws Exception {
-        // Αν έχει δοθεί τρίτο όρισμα, τότε θέτει την τιμή του minimumWordAppearances
-        if(args.length == 3) {
-            minimumWordAppearances = Integer.parseInt(args[2]);
+    /**
+     * Συγχώνευση των top-K λέξεων που έβγαλε κάθε reducer στο αρχείο TOP_K_FILE.
+     * Κάθε part αρχείο έχει το πολύ K γραμμές, οπότε η συγχώνευση γίνεται στον driver
+     *
+     * @param conf
+     * @param output
+     * @param topK
+     */
+    private static void mergeTopWords(Configuration conf, Path output, int topK) throws IOException, InterruptedException {
+        FileSystem fs = output.getFileSystem(conf);
+        TopKHeap topWords = new TopKHeap(topK);
+
+        CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+
+        for (FileStatus part : fs.listStatus(output, path -> path.getName().startsWith("part-"))) {
+            // Αν το output είναι συμπιεσμένο, ο codec βρίσκεται από την κατάληξη του αρχείου
+            CompressionCodec codec = codecs.getCodec(part.getPath());
+            InputStream in = codec == null ? fs.open(part.getPath()) : codec.createInputStream(fs.open(part.getPath()));
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.lastIndexOf('\t');
+                    byte[] word = line.substring(0, tab).getBytes(StandardCharsets.UTF_8);
+
+                    topWords.offer(word, 0, word.length, Integer.parseInt(line.substring(tab + 1)));
+                }
+            }
         }
 
-        Configuration conf = new Configuration();
-        Job job = Job.getInstance(conf, "Movies in year");
-        job.setJarByClass(WordsInMovies.class);
-        job.setMapperClass(MoviesMapper.class);
-        job.setReducerClass(MoviesReducer.class);
-        job.setOutputKeyClass(Text.class);
-        job.setOutputValueClass(IntWritable.class);
-        FileInputFormat.addInputPath(job, new Path(args[0]));
-        FileOutputFormat.setOutputPath(job, new Path(args[1]));
-
-        System.exit(job.waitForCompletion(true) ? 0 : 1);
+        try (Writer writer = new OutputStreamWriter(fs.create(new Path(output, TOP_K_FILE), true), StandardCharsets.UTF_8)) {
+            topWords.drainDescending((bytes, start, length, count) ->
+                    writer.write(new String(bytes, start, length, StandardCharsets.UTF_8) + "\t" + count + "\n"));
+        }
     }
 
     /**
-     * Αντικείμενο για την αποθήκευση των δεδομένων της ταινίας
+     * Οι λέξεις ενός δείγματος του input, μετρημένες όπως στους mappers, για τα όρια
+     * του RangePartitioner
+     *
+     * @param job
+     * @return BytesIntHashMap
      */
-    public static class Movie {
-        private final long movieId;
-        private final String title;
-        private final String year;
-        private final ArrayList<String> genres = new ArrayList<>();
+    private static BytesIntHashMap sampleWords(Job job) throws IOException, InterruptedException {
+        BytesIntHashMap words = new BytesIntHashMap();
+        KeyCounter counter = (bytes, start, length) -> words.add(bytes, start, length, 1);
+        TitleTokenizer tokenizer = new TitleTokenizer(job.getConfiguration().getBoolean(UNICODE_WORDS, false));
+        YearExtractor years = new YearExtractor();
+
+        RangePartitioner.sample(job, value -> {
+            if (value instanceof MovieWritable) {
+                MovieWritable movie = (MovieWritable) value;
+                Text title = movie.getTitle();
+
+                tokenizer.tokenize(title.getBytes(), 0, title.getLength(), movie.getYear(), counter);
+            } else {
+                MovieRecord movie = (MovieRecord) value;
+                int year = years.extract(movie.getBytes(), movie.getTitleStart(), movie.getTitleEnd());
+
+                tokenizer.tokenize(movie.getBytes(), movie.getTitleStart(), years.getTitleEnd(), year, counter);
+            }
+        });
+
+        return words;
+    }
+
+    /**
+     * Δημιουργία του job, χωρίς να ξεκινήσει
+     *
+     * @param conf
+     * @param input
+     * @param output
+     * @return Job
+     */
+    public static Job createJob(Configuration conf, Path input, Path output) throws IOException, InterruptedException {
+        Job job = Job.getInstance(conf, "Words in movies");
+        job.setJarByClass(WordsInMovies.class);
+
+        boolean approximate = conf.getBoolean(APPROXIMATE, false);
 
-        public Movie(long movieId, String title, String year) {
-            this.movieId = movieId;
-            this.title = title;
-            this.year = year;
+        // Αν το input έχει μετατραπεί με το MoviesToColumnar, διαβάζονται μόνο ο τίτλος και το έτος
+        if (MoviesColumnarInputFormat.isColumnar(conf, input)) {
+            job.setInputFormatClass(MoviesColumnarInputFormat.class);
+            MoviesColumnarInputFormat.setColumns(job, "year", "title");
+            job.setMapperClass(approximate ? ApproximateColumnarMapper.class : ColumnarMapper.class);
+        } else {
+            job.setInputFormatClass(MoviesInputFormat.class);
+            job.setMapperClass(approximate ? ApproximateMapper.class : MoviesMapper.class);
         }
 
-        public String getTitle() {
-            return title;
+        if (approximate) {
+            // Κάθε mapper γράφει ένα sketch και όλα συγχωνεύονται σε έναν reducer
+            job.setReducerClass(ApproximateReducer.class);
+            job.setNumReduceTasks(1);
+            job.setMapOutputKeyClass(NullWritable.class);
+            job.setMapOutputValueClass(WordSketchWritable.class);
+            job.setOutputKeyClass(Text.class);
+            job.setOutputValueClass(Text.class);
+        } else {
+            // Ο reducer φιλτράρει με το minimumWordAppearances, οπότε δεν μπορεί να
+            // χρησιμοποιηθεί ως combiner. Ο combiner κάνει μόνο το άθροισμα
+            job.setCombinerClass(IntSumReducer.class);
+            job.setReducerClass(MoviesReducer.class);
+            job.setOutputKeyClass(Text.class);
+            job.setOutputValueClass(IntWritable.class);
         }
+        FileInputFormat.addInputPath(job, input);
+        FileOutputFormat.setOutputPath(job, output);
+        Compression.configure(job);
+
+        // Με -D mapreduce.job.reduces=N οι λέξεις μοιράζονται σε περιοχές με όρια από δείγμα,
+        // οπότε τα part αρχεία στη σειρά είναι ταξινομημένα και οι συχνές λέξεις δεν πέφτουν μαζί
+        if (job.getNumReduceTasks() > 1) {
+            RangePartitioner.TextKeys.configure(job, sampleWords(job));
+        }
+
+        return job;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Configuration conf = new Configuration();
+        String[] remainingArgs = new GenericOptionsParser(conf, args).getRemainingArgs();
+
+        // Αν έχει δοθεί τρίτο όρισμα, τότε θέτει την τιμή του minimumWordAppearances
+        if(remainingArgs.length >= 3) {
+            conf.setInt(MINIMUM_WORD_APPEARANCES, Integer.parseInt(remainingArgs[2]));
+        }
+
+        // Αν έχει δοθεί τέταρτο όρισμα, τότε εξάγονται μόνο οι τόσες συχνότερες λέξεις
+        if(remainingArgs.length >= 4) {
+            conf.setInt(TOP_K, Integer.parseInt(remainingArgs[3]));
+        }
+
+        Path input = new Path(remainingArgs[0]);
+        Path output = new Path(remainingArgs[1]);
 
-        public ArrayList<String> getGenres() {
-            return genres;
+        // Το κατώφλι και το top-K είναι ήδη στο conf, οπότε είναι μέρος του fingerprint
+        ResultCache cache = ResultCache.open(conf, WordsInMovies.class, input);
+        if (cache != null && cache.restore(output)) {
+            System.exit(0);
         }
 
-        public void addGenre(String genre) {
-            genres.add(genre);
+        Job job = createJob(conf, input, output);
+
+        long start = System.nanoTime();
+        boolean success = job.waitForCompletion(true);
+        JobReport.print(job, System.nanoTime() - start);
+
+        if (!success) {
+            System.exit(1);
         }
 
-        public String getYear() {
-            return year;
+        // Με περισσότερους από έναν reducers, κάθε part έχει τα δικά του top-K
+        int topK = conf.getInt(TOP_K, 0);
+        if (topK > 0 && job.getNumReduceTasks() > 1) {
+            mergeTopWords(conf, output, topK);
         }
 
-        @Override
-        public String toString() {
-            return "Movie{" +
-                    "movieId=" + movieId +
-                    ", title='" + title + '\'' +
-                    ", year='" + year + '\'' +
-                    ", genres=" + genres +
-                    '}';
+        if (cache != null) {
+            cache.store(output);
         }
+
+        System.exit(0);
     }
 }
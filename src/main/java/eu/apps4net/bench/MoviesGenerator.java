@@ -0,0 +1,451 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Συνθετικό movies.csv οποιουδήποτε μεγέθους, για μετρήσεις κλιμάκωσης
+ *
+ */
+
+package eu.apps4net.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import eu.apps4net.core.MoviesCsvParser;
+import eu.apps4net.core.YearExtractor;
+
+/**
+ * Οι κατανομές βγαίνουν από ένα πραγματικό movies.csv:
+ *
+ *   - τα είδη κάθε ταινίας επιλέγονται ως ολόκληρο πεδίο, με τη συχνότητα που έχει στο
+ *     αρχείο, οπότε κρατιούνται και οι συσχετίσεις μεταξύ των ειδών
+ *   - τα έτη (και οι τίτλοι χωρίς έτος) και το πλήθος των λέξεων κάθε τίτλου έχουν την
+ *     κατανομή του αρχείου
+ *   - οι λέξεις ακολουθούν κατανομή Zipf με εκθέτη 1 πάνω σε ένα λεξιλόγιο 1.000.000
+ *     λέξεων. Οι πρώτες είναι οι λέξεις του αρχείου με σειρά συχνότητας και οι υπόλοιπες
+ *     φτιάχνονται από συλλαβές, ώστε το λεξιλόγιο να μεγαλώνει με το μέγεθος όπως σε
+ *     ένα πραγματικό dataset
+ *   - όσοι τίτλοι έχουν κόμμα ή εισαγωγικά γράφονται σε εισαγωγικά, στο ίδιο ποσοστό
+ *     με το αρχείο
+ *
+ * Το output είναι ένας φάκελος με αρχεία part-NNNNN.csv, το καθένα με την επικεφαλίδα
+ * του movies.csv. Κάθε αρχείο φτιάχνεται από ένα thread με δικό του SplittableRandom,
+ * που ξεκινάει από το seed και τον αριθμό του αρχείου, οπότε με το ίδιο seed και το ίδιο
+ * πλήθος αρχείων το output είναι ίδιο για οποιοδήποτε πλήθος threads. Τα id είναι
+ * γραμμή * αρχεία + αρχείο + 1, ώστε να μην επικαλύπτονται.
+ *
+ * Χρήση: MoviesGenerator movies.csv output μέγεθος [seed] [αρχεία] [threads]
+ * Το μέγεθος είναι σε bytes, με προαιρετικό k, m, g ή t (π.χ. 10g). Το seed είναι από
+ * default 42 και τα αρχεία ένα ανά 128MB.
+ */
+public class MoviesGenerator {
+    private static final int VOCABULARY = 1_000_000;
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static final long DEFAULT_PART_BYTES = 128L * 1024 * 1024;
+
+    private static final byte[] HEADER = "movieId,title,genres\n".getBytes(StandardCharsets.UTF_8);
+    private static final String[] CONSONANTS = {"b", "c", "d", "f", "g", "k", "l", "m", "n", "p", "r", "s", "t", "v", "z"};
+    private static final String[] VOWELS = {"a", "e", "i", "o", "u", "ou", "ai"};
+
+    private final byte[][] genres;
+    private final Distribution genreDistribution;
+    private final byte[][] years;
+    private final Distribution yearDistribution;
+    private final int[] lengths;
+    private final Distribution lengthDistribution;
+    private final byte[][] words;
+    private final Distribution wordDistribution;
+    private final byte[][] syllables;
+    private final byte[][] capitalSyllables;
+    private final double commaRate;
+    private final double quoteRate;
+
+    /**
+     * Διαβάζει τις κατανομές από το source
+     *
+     * @param source
+     */
+    public MoviesGenerator(Path source) throws IOException {
+        Map<String, Integer> genreCounts = new HashMap<>();
+        Map<Integer, Integer> yearCounts = new HashMap<>();
+        Map<Integer, Integer> lengthCounts = new HashMap<>();
+        Map<String, Integer> wordCounts = new HashMap<>();
+        long titles = 0;
+        long commas = 0;
+        long quotes = 0;
+
+        MoviesCsvParser parser = new MoviesCsvParser();
+
+        for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+
+            if (MoviesCsvParser.isHeader(bytes, 0, bytes.length) || !parser.parse(bytes, 0, bytes.length)) {
+                continue;
+            }
+
+            String genre = new String(bytes, parser.getGenresStart(), parser.getGenresEnd() - parser.getGenresStart(), StandardCharsets.UTF_8);
+            genreCounts.merge(genre, 1, Integer::sum);
+
+            String title = parser.getTitle();
+            int year = YearExtractor.getYear(title);
+            yearCounts.merge(year, 1, Integer::sum);
+
+            if (year != YearExtractor.NO_YEAR) {
+                title = title.substring(0, title.lastIndexOf('(')).trim();
+            }
+
+            titles++;
+            commas += title.indexOf(',') >= 0 ? 1 : 0;
+            quotes += title.indexOf('"') >= 0 ? 1 : 0;
+
+            int length = 0;
+            for (String word : title.split(" ")) {
+                word = word.replace(",", "").replace("\"", "");
+
+                if (!word.isEmpty()) {
+                    wordCounts.merge(word, 1, Integer::sum);
+                    length++;
+                }
+            }
+            lengthCounts.merge(Math.max(length, 1), 1, Integer::sum);
+        }
+
+        if (titles == 0) {
+            throw new IOException("No movies found in " + source);
+        }
+
+        // Ταξινομημένα, ώστε η σειρά να μην εξαρτάται από το HashMap
+        String[] genreValues = genreCounts.keySet().stream().sorted().toArray(String[]::new);
+        genres = toBytes(genreValues);
+        genreDistribution = new Distribution(genres.length, i -> genreCounts.get(genreValues[i]));
+
+        // Κάθε έτος ως " (dddd)" και οι τίτλοι χωρίς έτος ως κενό
+        int[] yearValues = yearCounts.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        years = new byte[yearValues.length][];
+        for (int i = 0; i < yearValues.length; i++) {
+            String year = yearValues[i] == YearExtractor.NO_YEAR ? "" : " (" + yearValues[i] + ")";
+            years[i] = year.getBytes(StandardCharsets.UTF_8);
+        }
+        yearDistribution = new Distribution(years.length, i -> yearCounts.get(yearValues[i]));
+
+        lengths = lengthCounts.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        lengthDistribution = new Distribution(lengths.length, i -> lengthCounts.get(lengths[i]));
+
+        // Οι λέξεις του αρχείου με σειρά συχνότητας, ώστε οι συχνότερες να πάρουν τις πρώτες θέσεις του Zipf
+        String[] wordValues = wordCounts.keySet().toArray(new String[0]);
+        Arrays.sort(wordValues, (a, b) -> {
+            int order = Integer.compare(wordCounts.get(b), wordCounts.get(a));
+            return order != 0 ? order : a.compareTo(b);
+        });
+        words = toBytes(wordValues);
+        wordDistribution = new Distribution(Math.max(VOCABULARY, words.length), i -> 1.0 / Math.pow(i + 1, ZIPF_EXPONENT));
+
+        commaRate = (double) commas / titles;
+        quoteRate = (double) quotes / titles;
+
+        syllables = new byte[CONSONANTS.length * VOWELS.length][];
+        capitalSyllables = new byte[syllables.length][];
+        for (int i = 0; i < syllables.length; i++) {
+            String syllable = CONSONANTS[i / VOWELS.length] + VOWELS[i % VOWELS.length];
+
+            syllables[i] = syllable.getBytes(StandardCharsets.UTF_8);
+            capitalSyllables[i] = (Character.toUpperCase(syllable.charAt(0)) + syllable.substring(1)).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[][] toBytes(String[] values) {
+        byte[][] bytes = new byte[values.length][];
+
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        }
+
+        return bytes;
+    }
+
+    private interface Weight {
+        double of(int index);
+    }
+
+    /**
+     * Διακριτή κατανομή με τις αθροιστικές πιθανότητες των βαρών. Ο πίνακας guide κρατάει
+     * για κάθε ένα από τα GUIDE_SIZE ίσα διαστήματα του [0, 1) την πρώτη θέση που πέφτει
+     * σε αυτό, οπότε η δυαδική αναζήτηση γίνεται μόνο σε λίγες θέσεις, που είναι κοντά
+     * στη μνήμη, και όχι σε όλο το λεξιλόγιο του Zipf
+     */
+    private static class Distribution {
+        private static final int GUIDE_SIZE = 1 << 16;
+
+        private final double[] cumulative;
+        private final int[] guide = new int[GUIDE_SIZE + 1];
+
+        Distribution(int size, Weight weight) {
+            cumulative = new double[size];
+            double sum = 0;
+
+            for (int i = 0; i < size; i++) {
+                sum += weight.of(i);
+                cumulative[i] = sum;
+            }
+
+            for (int i = 0; i < size; i++) {
+                cumulative[i] /= sum;
+            }
+            cumulative[size - 1] = 1;
+
+            int index = 0;
+            for (int j = 0; j <= GUIDE_SIZE; j++) {
+                while (index < size - 1 && cumulative[index] <= (double) j / GUIDE_SIZE) {
+                    index++;
+                }
+                guide[j] = index;
+            }
+        }
+
+        /**
+         * Η θέση της πρώτης αθροιστικής πιθανότητας που είναι > από έναν τυχαίο αριθμό
+         */
+        int sample(SplittableRandom random) {
+            double value = random.nextDouble();
+            int bucket = (int) (value * GUIDE_SIZE);
+            int low = guide[bucket];
+            int high = guide[bucket + 1];
+
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+
+                if (cumulative[middle] <= value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+    }
+
+    /**
+     * Η γραμμή που φτιάχνεται, ως UTF-8 bytes. Οι λέξεις, τα είδη και τα έτη είναι ήδη
+     * σε bytes, οπότε δεν φτιάχνεται κανένα String ανά γραμμή
+     */
+    private static class Line {
+        private byte[] bytes = new byte[1024];
+        private int length;
+
+        void append(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        void append(char value) {
+            ensure(1);
+            bytes[length++] = (byte) value;
+        }
+
+        void append(long value) {
+            ensure(20);
+            int start = length;
+
+            do {
+                bytes[length++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+
+            // Τα ψηφία γράφτηκαν ανάποδα
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte digit = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = digit;
+            }
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+
+    /**
+     * Γράφει τη λέξη στη θέση rank του λεξιλογίου. Μετά τις λέξεις του αρχείου, η λέξη
+     * φτιάχνεται από συλλαβές με βάση το rank, οπότε είναι ίδια σε κάθε thread
+     */
+    private void appendWord(Line line, int rank) {
+        if (rank < words.length) {
+            line.append(words[rank]);
+            return;
+        }
+
+        int value = rank - words.length;
+        boolean first = true;
+
+        do {
+            line.append(first ? capitalSyllables[value % capitalSyllables.length] : syllables[value % syllables.length]);
+            value /= syllables.length;
+            first = false;
+        } while (value > 0);
+    }
+
+    /**
+     * Προσθέτει μία γραμμή στο line
+     *
+     * @param line
+     * @param id
+     * @param random
+     */
+    private void appendLine(Line line, long id, SplittableRandom random) {
+        int length = lengths[lengthDistribution.sample(random)];
+        int comma = random.nextDouble() < commaRate && length > 1 ? 1 + random.nextInt(length - 1) : -1;
+        int quote = random.nextDouble() < quoteRate ? random.nextInt(length) : -1;
+        boolean quoted = comma >= 0 || quote >= 0;
+
+        line.append(id);
+        line.append(',');
+        if (quoted) {
+            line.append('"');
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (i == comma) {
+                line.append(',');
+            }
+            if (i > 0) {
+                line.append(' ');
+            }
+
+            // Τα εισαγωγικά μέσα σε πεδίο με εισαγωγικά γράφονται διπλά
+            if (i == quote) {
+                line.append('"');
+                line.append('"');
+                appendWord(line, wordDistribution.sample(random));
+                line.append('"');
+                line.append('"');
+            } else {
+                appendWord(line, wordDistribution.sample(random));
+            }
+        }
+
+        line.append(years[yearDistribution.sample(random)]);
+
+        if (quoted) {
+            line.append('"');
+        }
+        line.append(',');
+        line.append(genres[genreDistribution.sample(random)]);
+        line.append('\n');
+    }
+
+    /**
+     * Γράφει ένα αρχείο με τουλάχιστον targetBytes bytes
+     *
+     * @param file
+     * @param part ο αριθμός του αρχείου
+     * @param parts το πλήθος των αρχείων
+     * @param targetBytes
+     * @param seed
+     * @return long οι γραμμές που γράφτηκαν
+     */
+    public long writePart(Path file, int part, int parts, long targetBytes, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed + part * 0x9E3779B97F4A7C15L);
+        Line line = new Line();
+        long written = HEADER.length;
+        long rows = 0;
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1024 * 1024)) {
+            out.write(HEADER);
+
+            while (written < targetBytes) {
+                line.length = 0;
+                appendLine(line, rows * parts + part + 1, random);
+
+                out.write(line.bytes, 0, line.length);
+                written += line.length;
+                rows++;
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * Μέγεθος σε bytes, με προαιρετικό k, m, g ή t στο τέλος
+     */
+    static long parseSize(String size) {
+        String value = size.trim().toLowerCase(Locale.ROOT);
+        int shift = switch (value.charAt(value.length() - 1)) {
+            case 'k' -> 10;
+            case 'm' -> 20;
+            case 'g' -> 30;
+            case 't' -> 40;
+            default -> 0;
+        };
+
+        if (shift > 0) {
+            value = value.substring(0, value.length() - 1);
+        }
+
+        return (long) (Double.parseDouble(value) * (1L << shift));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path source = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        long size = parseSize(args[2]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        int parts = args.length > 4 ? Integer.parseInt(args[4]) : (int) Math.max(1, (size + DEFAULT_PART_BYTES - 1) / DEFAULT_PART_BYTES);
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+
+        // Όπως και στο Hadoop, το output δεν πρέπει να υπάρχει ήδη
+        if (Files.exists(output)) {
+            throw new IOException("Output directory " + output + " already exists");
+        }
+        Files.createDirectories(output);
+
+        long startTime = System.nanoTime();
+        MoviesGenerator generator = new MoviesGenerator(source);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> results = new ArrayList<>();
+        long rows = 0;
+
+        try {
+            for (int part = 0; part < parts; part++) {
+                int index = part;
+                Path file = output.resolve(String.format(Locale.ROOT, "part-%05d.csv", part));
+
+                // Το υπόλοιπο της διαίρεσης πάει στα πρώτα αρχεία
+                long partBytes = size / parts + (part < size % parts ? 1 : 0);
+
+                results.add(pool.submit(() -> generator.writePart(file, index, parts, partBytes, seed)));
+            }
+
+            for (Future<Long> result : results) {
+                rows += result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf(Locale.ROOT, "Generated %d movies (%d bytes) in %d files with %d threads in %.1f s (%.1f MB/s)%n",
+                rows, size, parts, threads, seconds, size / seconds / (1024 * 1024));
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Ένα μπλοκ ταινιών, αποθηκευμένο ανά στήλη
+ *
+ */
+
+package eu.apps4net.columnar;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import eu.apps4net.core.GenreDictionary;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Κάθε εγγραφή του SequenceFile είναι ένα μπλοκ με μέχρι μερικές χιλιάδες ταινίες.
+ * Μέσα στο μπλοκ οι στήλες (id, έτος, είδη, τίτλος) γράφονται η μία μετά την άλλη,
+ * με το μήκος τους μπροστά, οπότε όταν διαβάζεται μόνο μία στήλη οι υπόλοιπες
+ * προσπερνιούνται χωρίς αποκωδικοποίηση.
+ *
+ * Μορφή: rows, πλήθος δυναμικών ειδών και τα ονόματά τους, και μετά για κάθε στήλη
+ * (μήκος, bytes). Τα id γράφονται ως διαφορές από το προηγούμενο (vlong), το έτος και
+ * τα είδη ως vint και ο τίτλος ως (μήκος, UTF-8 bytes).
+ */
+public class MovieBlockWritable implements Writable, Configurable {
+    public static final String COLUMNS = "movies.columnar.columns";
+
+    public static final int ID = 1;
+    public static final int YEAR = 2;
+    public static final int GENRES = 4;
+    public static final int TITLE = 8;
+    public static final int ALL = ID | YEAR | GENRES | TITLE;
+
+    private static final int[] COLUMN_ORDER = {ID, YEAR, GENRES, TITLE};
+
+    private Configuration conf;
+    private int columns = ALL;
+
+    private final GenreDictionary dictionary = new GenreDictionary();
+
+    private int rows;
+    private long[] ids = new long[1024];
+    private short[] years = new short[1024];
+    private int[] genres = new int[1024];
+    private int[] titleOffsets = new int[1025];
+    private byte[] titles = new byte[1024 * 32];
+
+    private final DataOutputBuffer columnOut = new DataOutputBuffer();
+    private final DataInputBuffer columnIn = new DataInputBuffer();
+    private byte[] columnBytes = new byte[1024];
+
+    /**
+     * Οι στήλες που ορίζονται στο movies.columnar.columns, ως bitmask
+     *
+     * @param names
+     * @return int
+     */
+    public static int parseColumns(String[] names) {
+        int columns = 0;
+
+        for (String name : names) {
+            switch (name.trim().toLowerCase()) {
+                case "id":
+                    columns |= ID;
+                    break;
+                case "year":
+                    columns |= YEAR;
+                    break;
+                case "genres":
+                    columns |= GENRES;
+                    break;
+                case "title":
+                    columns |= TITLE;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown movies column: " + name);
+            }
+        }
+
+        return columns;
+    }
+
+    @Override
+    public void setConf(Configuration conf) {
+        this.conf = conf;
+
+        String[] names = conf.getTrimmedStrings(COLUMNS);
+        columns = names == null || names.length == 0 ? ALL : parseColumns(names);
+    }
+
+    @Override
+    public Configuration getConf() {
+        return conf;
+    }
+
+    /**
+     * Το λεξικό των ειδών του μπλοκ. Στο γράψιμο, τα άγνωστα είδη προστίθενται σε αυτό
+     */
+    public GenreDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public void clear() {
+        rows = 0;
+        dictionary.reset();
+    }
+
+    /**
+     * Προσθήκη μιας ταινίας στο μπλοκ
+     */
+    public void add(long movieId, short year, int genreBitmask, byte[] title, int start, int length) {
+        if (rows == ids.length) {
+            int capacity = rows * 2;
+
+            ids = Arrays.copyOf(ids, capacity);
+            years = Arrays.copyOf(years, capacity);
+            genres = Arrays.copyOf(genres, capacity);
+            titleOffsets = Arrays.copyOf(titleOffsets, capacity + 1);
+        }
+
+        int titleStart = titleOffsets[rows];
+        ensureTitles(titleStart + length);
+        System.arraycopy(title, start, titles, titleStart, length);
+
+        ids[rows] = movieId;
+        years[rows] = year;
+        genres[rows] = genreBitmask;
+        titleOffsets[rows + 1] = titleStart + length;
+        rows++;
+    }
+
+    /**
+     * Γεμίζει το movie με την ταινία στη θέση row
+     *
+     * @param row
+     * @param movie
+     */
+    public void get(int row, MovieWritable movie) {
+        movie.set(ids[row], years[row], genres[row], dictionary);
+
+        if ((columns & TITLE) != 0) {
+            movie.getTitle().set(titles, titleOffsets[row], titleOffsets[row + 1] - titleOffsets[row]);
+        } else {
+            movie.getTitle().clear();
+        }
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVInt(out, rows);
+
+        // Τα είδη που προστέθηκαν στο λεξικό όσο γέμιζε το μπλοκ
+        WritableUtils.writeVInt(out, dictionary.size() - GenreDictionary.BUILTIN_GENRES);
+        for (int id = GenreDictionary.BUILTIN_GENRES; id < dictionary.size(); id++) {
+            byte[] name = dictionary.getName(id);
+
+            WritableUtils.writeVInt(out, name.length);
+            out.write(name);
+        }
+
+        for (int column : COLUMN_ORDER) {
+            columnOut.reset();
+            writeColumn(column, columnOut);
+
+            WritableUtils.writeVInt(out, columnOut.getLength());
+            out.write(columnOut.getData(), 0, columnOut.getLength());
+        }
+    }
+
+    private void writeColumn(int column, DataOutput out) throws IOException {
+        long previousId = 0;
+
+        for (int row = 0; row < rows; row++) {
+            switch (column) {
+                case ID:
+                    WritableUtils.writeVLong(out, ids[row] - previousId);
+                    previousId = ids[row];
+                    break;
+                case YEAR:
+                    WritableUtils.writeVInt(out, years[row]);
+                    break;
+                case GENRES:
+                    WritableUtils.writeVInt(out, genres[row]);
+                    break;
+                default:
+                    int length = titleOffsets[row + 1] - titleOffsets[row];
+                    WritableUtils.writeVInt(out, length);
+                    out.write(titles, titleOffsets[row], length);
+            }
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        clear();
+
+        int count = WritableUtils.readVInt(in);
+        ensureRows(count);
+
+        int extraGenres = WritableUtils.readVInt(in);
+        for (int i = 0; i < extraGenres; i++) {
+            int length = WritableUtils.readVInt(in);
+            ensureColumnBytes(length);
+            in.readFully(columnBytes, 0, length);
+
+            dictionary.add(columnBytes, 0, length);
+        }
+
+        for (int column : COLUMN_ORDER) {
+            int length = WritableUtils.readVInt(in);
+
+            // Οι στήλες που δεν χρειάζονται προσπερνιούνται
+            if ((columns & column) == 0) {
+                WritableUtils.skipFully(in, length);
+                continue;
+            }
+
+            ensureColumnBytes(length);
+            in.readFully(columnBytes, 0, length);
+            columnIn.reset(columnBytes, length);
+
+            readColumn(column, count);
+        }
+
+        rows = count;
+    }
+
+    private void readColumn(int column, int count) throws IOException {
+        long previousId = 0;
+
+        titleOffsets[0] = 0;
+
+        for (int row = 0; row < count; row++) {
+            switch (column) {
+                case ID:
+                    previousId += WritableUtils.readVLong(columnIn);
+                    ids[row] = previousId;
+                    break;
+                case YEAR:
+                    years[row] = (short) WritableUtils.readVInt(columnIn);
+                    break;
+                case GENRES:
+                    genres[row] = WritableUtils.readVInt(columnIn);
+                    break;
+                default:
+                    int length = WritableUtils.readVInt(columnIn);
+                    int start = titleOffsets[row];
+
+                    ensureTitles(start + length);
+                    columnIn.readFully(titles, start, length);
+                    titleOffsets[row + 1] = start + length;
+            }
+        }
+    }
+
+    private void ensureRows(int count) {
+        if (ids.length < count) {
+            ids = new long[count];
+            years = new short[count];
+            genres = new int[count];
+            titleOffsets = new int[count + 1];
+        } else {
+            // Οι στήλες που δεν διαβάζονται πρέπει να μην κρατάνε τιμές από το προηγούμενο μπλοκ
+            Arrays.fill(ids, 0, count, 0);
+            Arrays.fill(years, 0, count, (short) 0);
+            Arrays.fill(genres, 0, count, 0);
+            Arrays.fill(titleOffsets, 0, count + 1, 0);
+        }
+    }
+
+    private void ensureTitles(int length) {
+        if (titles.length < length) {
+            titles = Arrays.copyOf(titles, Math.max(length, titles.length * 2));
+        }
+    }
+
+    private void ensureColumnBytes(int length) {
+        if (columnBytes.length < length) {
+            columnBytes = new byte[Math.max(length, columnBytes.length * 2)];
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Μία ταινία σε δυαδική μορφή
+ *
+ */
+
+package eu.apps4net.columnar;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import eu.apps4net.core.GenreDictionary;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Το movieId ως long, το έτος ως short και τα είδη ως bitmask με τα id του GenreDictionary.
+ * Το ίδιο αντικείμενο ξαναγεμίζει για κάθε ταινία από το MoviesColumnarInputFormat.
+ *
+ * Όταν διαβάζονται μόνο κάποιες στήλες (movies.columnar.columns), τα υπόλοιπα
+ * πεδία μένουν στις προεπιλεγμένες τιμές τους.
+ */
+public class MovieWritable implements Writable {
+    private long movieId;
+    private short year;
+    private int genres;
+    private final Text title = new Text();
+
+    // Το λεξικό με το οποίο είναι γραμμένο το bitmask των ειδών
+    private GenreDictionary dictionary;
+
+    public void set(long movieId, short year, int genres, GenreDictionary dictionary) {
+        this.movieId = movieId;
+        this.year = year;
+        this.genres = genres;
+        this.dictionary = dictionary;
+    }
+
+    public long getMovieId() {
+        return movieId;
+    }
+
+    public short getYear() {
+        return year;
+    }
+
+    public int getGenres() {
+        return genres;
+    }
+
+    public Text getTitle() {
+        return title;
+    }
+
+    public GenreDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVLong(out, movieId);
+        out.writeShort(year);
+        out.writeInt(genres);
+        title.write(out);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        movieId = WritableUtils.readVLong(in);
+        year = in.readShort();
+        genres = in.readInt();
+        title.readFields(in);
+    }
+
+    @Override
+    public String toString() {
+        return "Movie{" +
+                "movieId=" + movieId +
+                ", title='" + title + '\'' +
+                ", year='" + year + '\'' +
+                ", genres=" + Integer.toBinaryString(genres) +
+                '}';
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Διάβασμα των ταινιών από τα αρχεία που γράφει το MoviesToColumnar
+ *
+ */
+
+package eu.apps4net.columnar;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import eu.apps4net.core.MapperStats;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileRecordReader;
+
+/**
+ * Τα splits είναι αυτά του SequenceFile (χωρίζονται στα sync markers), και ο
+ * RecordReader δίνει μία ταινία τη φορά από κάθε μπλοκ, με κλειδί το movieId. Όπως ο
+ * RecordReader του MoviesInputFormat, μετράει τις ταινίες στο PARSED του MapperStats και
+ * τον χρόνο του διαβάσματος των μπλοκ στο PARSE.
+ */
+public class MoviesColumnarInputFormat extends SequenceFileInputFormat<LongWritable, MovieWritable> {
+    private static final byte[] SEQUENCE_FILE_MAGIC = "SEQ".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Ορίζει ποιες στήλες θα διαβαστούν (id, year, genres, title)
+     *
+     * @param job
+     * @param columns
+     */
+    public static void setColumns(Job job, String... columns) {
+        // Έλεγχος των ονομάτων πριν ξεκινήσει το job
+        MovieBlockWritable.parseColumns(columns);
+
+        job.getConfiguration().setStrings(MovieBlockWritable.COLUMNS, columns);
+    }
+
+    /**
+     * Ελέγχει αν το input είναι σε δυαδική μορφή, κοιτώντας την αρχή του πρώτου αρχείου.
+     * Το input μπορεί να είναι και glob (π.χ. movies/*.csv), όπως στο FileInputFormat
+     *
+     * @param conf
+     * @param input
+     * @return boolean false και αν το input δεν υπάρχει ή το glob δεν βρίσκει τίποτα
+     */
+    public static boolean isColumnar(Configuration conf, Path input) throws IOException {
+        FileSystem fs = input.getFileSystem(conf);
+        FileStatus[] matches = fs.globStatus(input, MoviesColumnarInputFormat::isVisible);
+
+        if (matches == null || matches.length == 0) {
+            return false;
+        }
+
+        FileStatus status = matches[0];
+
+        if (status.isDirectory()) {
+            FileStatus[] files = fs.listStatus(status.getPath(), MoviesColumnarInputFormat::isVisible);
+
+            if (files.length == 0 || files[0].isDirectory()) {
+                return false;
+            }
+
+            status = files[0];
+        }
+
+        if (status.getLen() < SEQUENCE_FILE_MAGIC.length) {
+            return false;
+        }
+
+        byte[] magic = new byte[SEQUENCE_FILE_MAGIC.length];
+        try (FSDataInputStream in = fs.open(status.getPath())) {
+            in.readFully(magic);
+        }
+
+        return Arrays.equals(magic, SEQUENCE_FILE_MAGIC);
+    }
+
+    // Τα κρυφά αρχεία (_ ή .) τα αγνοεί και το FileInputFormat
+    private static boolean isVisible(Path path) {
+        return !path.getName().startsWith("_") && !path.getName().startsWith(".");
+    }
+
+    @Override
+    public RecordReader<LongWritable, MovieWritable> createRecordReader(InputSplit split, TaskAttemptContext context) {
+        return new MovieRecordReader();
+    }
+
+    public static class MovieRecordReader extends RecordReader<LongWritable, MovieWritable> {
+        private final SequenceFileRecordReader<NullWritable, MovieBlockWritable> blocks = new SequenceFileRecordReader<>();
+        private final LongWritable key = new LongWritable();
+        private final MovieWritable movie = new MovieWritable();
+
+        private MovieBlockWritable block;
+        private int row;
+
+        private TaskAttemptContext context;
+        private MapperStats stats;
+
+        @Override
+        public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+            this.context = context;
+            stats = new MapperStats(context.getConfiguration());
+
+            blocks.initialize(split, context);
+        }
+
+        @Override
+        public boolean nextKeyValue() throws IOException, InterruptedException {
+            stats.start();
+
+            // Όταν τελειώσει το μπλοκ, διαβάζει το επόμενο
+            while (block == null || row >= block.size()) {
+                if (!blocks.nextKeyValue()) {
+                    return false;
+                }
+
+                block = blocks.getCurrentValue();
+                row = 0;
+            }
+
+            block.get(row++, movie);
+            key.set(movie.getMovieId());
+
+            stats.count(MapperStats.Records.PARSED);
+            stats.stage(MapperStats.Stage.PARSE);
+
+            return true;
+        }
+
+        @Override
+        public LongWritable getCurrentKey() {
+            return key;
+        }
+
+        @Override
+        public MovieWritable getCurrentValue() {
+            return movie;
+        }
+
+        @Override
+        public float getProgress() throws IOException {
+            return blocks.getProgress();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (stats != null) {
+                stats.flush(context);
+            }
+
+            blocks.close();
+        }
+    }
+}
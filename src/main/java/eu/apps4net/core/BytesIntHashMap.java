@@ -0,0 +1,188 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Hash map από κλειδιά bytes σε int μετρητές, χωρίς boxing
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map με linear probing. Τα bytes των κλειδιών αποθηκεύονται
+ * συνεχόμενα σε ένα μόνο byte[], και για κάθε θέση κρατιούνται μόνο primitive
+ * πίνακες (offset, μήκος, hash, μετρητής), οπότε δεν δημιουργείται κανένα αντικείμενο
+ * ανά κλειδί.
+ */
+public class BytesIntHashMap {
+    private static final int EMPTY = -1;
+
+    private int[] offsets;
+    private int[] lengths;
+    private int[] hashes;
+    private int[] counts;
+    private int mask;
+    private int size;
+
+    private byte[] keys;
+    private int keysLength;
+
+    public BytesIntHashMap() {
+        this(1024);
+    }
+
+    public BytesIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+
+        allocate(capacity);
+        keys = new byte[capacity * 8];
+    }
+
+    private void allocate(int capacity) {
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        hashes = new int[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+
+        Arrays.fill(offsets, EMPTY);
+    }
+
+    /**
+     * Προσθέτει το delta στον μετρητή του κλειδιού
+     *
+     * @param bytes
+     * @param start
+     * @param length
+     * @param delta
+     */
+    public void add(byte[] bytes, int start, int length, int delta) {
+        int hash = hash(bytes, start, length);
+        int slot = hash & mask;
+
+        while (offsets[slot] != EMPTY) {
+            if (hashes[slot] == hash && lengths[slot] == length
+                    && Arrays.equals(keys, offsets[slot], offsets[slot] + length, bytes, start, start + length)) {
+                counts[slot] += delta;
+                return;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        // Νέο κλειδί
+        if (keysLength + length > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(keys.length * 2, keysLength + length));
+        }
+
+        System.arraycopy(bytes, start, keys, keysLength, length);
+
+        offsets[slot] = keysLength;
+        lengths[slot] = length;
+        hashes[slot] = hash;
+        counts[slot] = delta;
+        keysLength += length;
+        size++;
+
+        if (size * 4 > offsets.length * 3) {
+            resize();
+        }
+    }
+
+    /**
+     * Ο μετρητής του κλειδιού, ή 0 αν δεν υπάρχει
+     */
+    public int get(byte[] bytes, int start, int length) {
+        int hash = hash(bytes, start, length);
+        int slot = hash & mask;
+
+        while (offsets[slot] != EMPTY) {
+            if (hashes[slot] == hash && lengths[slot] == length
+                    && Arrays.equals(keys, offsets[slot], offsets[slot] + length, bytes, start, start + length)) {
+                return counts[slot];
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return 0;
+    }
+
+    private void resize() {
+        int[] oldOffsets = offsets;
+        int[] oldLengths = lengths;
+        int[] oldHashes = hashes;
+        int[] oldCounts = counts;
+
+        allocate(oldOffsets.length * 2);
+
+        for (int i = 0; i < oldOffsets.length; i++) {
+            if (oldOffsets[i] == EMPTY) {
+                continue;
+            }
+
+            int slot = oldHashes[i] & mask;
+            while (offsets[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+
+            offsets[slot] = oldOffsets[i];
+            lengths[slot] = oldLengths[i];
+            hashes[slot] = oldHashes[i];
+            counts[slot] = oldCounts[i];
+        }
+    }
+
+    private static int hash(byte[] bytes, int start, int length) {
+        int hash = 1;
+
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+
+        // Ανακάτεμα των bits, γιατί το linear probing χρησιμοποιεί μόνο τα χαμηλά
+        return hash ^ (hash >>> 16);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Εκτίμηση της μνήμης που καταλαμβάνουν τα κλειδιά που υπάρχουν στον map, σε bytes.
+     * Κάθε κλειδί κοστίζει τα bytes του συν τέσσερα int, σε πίνακες γεμάτους έως 75%
+     */
+    public long memoryUsage() {
+        return (long) size * 32 + keysLength;
+    }
+
+    /**
+     * Αδειάζει τον map. Οι πίνακες κρατιούνται για να ξαναχρησιμοποιηθούν
+     */
+    public void clear() {
+        Arrays.fill(offsets, EMPTY);
+        size = 0;
+        keysLength = 0;
+    }
+
+    /**
+     * Περνάει όλα τα κλειδιά με τους μετρητές τους στον consumer
+     *
+     * @param consumer
+     */
+    public void forEach(EntryConsumer consumer) throws IOException, InterruptedException {
+        for (int i = 0; i < offsets.length; i++) {
+            if (offsets[i] != EMPTY) {
+                consumer.accept(keys, offsets[i], lengths[i], counts[i]);
+            }
+        }
+    }
+
+    public interface EntryConsumer {
+        void accept(byte[] bytes, int start, int length, int count) throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Συμπίεση του map output και του output των jobs
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.util.Locale;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Ο codec ορίζεται με όνομα:
+ *
+ *   -D movies.compress.map=...     για τα δεδομένα του shuffle (map output και spills)
+ *   -D movies.compress.output=...  για τα part αρχεία του output
+ *
+ * με τιμές snappy, lz4, zstd, deflate, gzip, bzip2 ή none (default), ή το πλήρες όνομα
+ * μιας κλάσης CompressionCodec.
+ *
+ * Αν ο codec χρειάζεται native βιβλιοθήκη που δεν υπάρχει (π.χ. zstd χωρίς libhadoop),
+ * χρησιμοποιείται ο deflate, που χωρίς native zlib δουλεύει με το java.util.zip. Ο έλεγχος
+ * γίνεται στον driver, οπότε οι κόμβοι του cluster πρέπει να έχουν τις ίδιες βιβλιοθήκες.
+ */
+public class Compression {
+    public static final String MAP_OUTPUT_CODEC = "movies.compress.map";
+    public static final String OUTPUT_CODEC = "movies.compress.output";
+
+    public static final String NONE = "none";
+
+    /**
+     * Ρυθμίζει τη συμπίεση του job σύμφωνα με το configuration του
+     *
+     * @param job
+     */
+    public static void configure(Job job) {
+        Configuration conf = job.getConfiguration();
+
+        Class<? extends CompressionCodec> mapCodec = getCodecClass(conf, conf.get(MAP_OUTPUT_CODEC, NONE));
+        if (mapCodec != null) {
+            conf.setBoolean("mapreduce.map.output.compress", true);
+            conf.setClass("mapreduce.map.output.compress.codec", mapCodec, CompressionCodec.class);
+        }
+
+        Class<? extends CompressionCodec> outputCodec = getCodecClass(conf, conf.get(OUTPUT_CODEC, NONE));
+        if (outputCodec != null) {
+            FileOutputFormat.setCompressOutput(job, true);
+            FileOutputFormat.setOutputCompressorClass(job, outputCodec);
+
+            // Στα SequenceFile (MoviesToColumnar) συμπιέζονται ολόκληρα μπλοκ εγγραφών
+            SequenceFileOutputFormat.setOutputCompressionType(job, SequenceFile.CompressionType.BLOCK);
+        }
+    }
+
+    /**
+     * Η κλάση του codec με αυτό το όνομα, ή ο deflate αν ο codec δεν είναι διαθέσιμος
+     *
+     * @param conf
+     * @param name
+     * @return η κλάση ή null για none
+     */
+    public static Class<? extends CompressionCodec> getCodecClass(Configuration conf, String name) {
+        String className;
+
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case NONE:
+            case "":
+                return null;
+            case "snappy":
+                className = "org.apache.hadoop.io.compress.SnappyCodec";
+                break;
+            case "lz4":
+                className = "org.apache.hadoop.io.compress.Lz4Codec";
+                break;
+            case "zstd":
+                className = "org.apache.hadoop.io.compress.ZStandardCodec";
+                break;
+            case "deflate":
+                className = "org.apache.hadoop.io.compress.DefaultCodec";
+                break;
+            case "gzip":
+                className = "org.apache.hadoop.io.compress.GzipCodec";
+                break;
+            case "bzip2":
+                className = "org.apache.hadoop.io.compress.BZip2Codec";
+                break;
+            default:
+                className = name.trim();
+        }
+
+        Class<? extends CompressionCodec> codecClass;
+        try {
+            codecClass = conf.getClassByName(className).asSubclass(CompressionCodec.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IllegalArgumentException("Unknown compression codec " + name, e);
+        }
+
+        if (!isAvailable(conf, codecClass)) {
+            System.err.println("Compression codec " + name + " is not available, using deflate");
+            return DefaultCodec.class;
+        }
+
+        return codecClass;
+    }
+
+    /**
+     * Ελέγχει αν ο codec μπορεί να δημιουργήσει compressor και decompressor. Οι codecs
+     * που χρειάζονται native βιβλιοθήκη πετάνε RuntimeException ή UnsatisfiedLinkError
+     *
+     * @param conf
+     * @param codecClass
+     * @return boolean
+     */
+    public static boolean isAvailable(Configuration conf, Class<? extends CompressionCodec> codecClass) {
+        try {
+            CompressionCodec codec = ReflectionUtils.newInstance(codecClass, conf);
+
+            codec.createCompressor();
+            codec.createDecompressor();
+
+            return true;
+        } catch (RuntimeException | LinkageError e) {
+            return false;
+        }
+    }
+}
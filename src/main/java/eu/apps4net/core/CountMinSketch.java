@@ -0,0 +1,176 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Count-Min Sketch: προσεγγιστικοί μετρητές σε σταθερό χώρο
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Πίνακας depth x width μετρητών. Κάθε κλειδί αυξάνει έναν μετρητή σε κάθε γραμμή και
+ * η εκτίμηση είναι ο μικρότερος από αυτούς, οπότε δεν είναι ποτέ μικρότερη από την
+ * πραγματική τιμή. Με width = ceil(e / epsilon) και depth = ceil(ln(1 / delta)), η
+ * εκτίμηση ξεπερνάει την πραγματική τιμή το πολύ κατά epsilon * N (N το σύνολο όλων
+ * των μετρητών) με πιθανότητα τουλάχιστον 1 - delta.
+ *
+ * Οι θέσεις βγαίνουν από ένα hash 64 bits του κλειδιού (h1 + i * h2), ίδιο σε όλους τους
+ * mappers, οπότε δύο sketches με τις ίδιες διαστάσεις συγχωνεύονται με άθροισμα.
+ */
+public class CountMinSketch {
+    private int width;
+    private int depth;
+    private long[] counts;
+    private long total;
+
+    public CountMinSketch() {
+        this(1, 1);
+    }
+
+    public CountMinSketch(int width, int depth) {
+        allocate(width, depth);
+    }
+
+    /**
+     * Sketch με σφάλμα το πολύ epsilon * N με πιθανότητα 1 - delta
+     *
+     * @param epsilon
+     * @param delta
+     * @return CountMinSketch
+     */
+    public static CountMinSketch withError(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("Count-Min Sketch epsilon and delta must be in (0, 1): " + epsilon + ", " + delta);
+        }
+
+        return new CountMinSketch((int) Math.ceil(Math.E / epsilon), (int) Math.ceil(Math.log(1 / delta)));
+    }
+
+    private void allocate(int width, int depth) {
+        this.width = width;
+        this.depth = depth;
+        counts = new long[width * depth];
+        total = 0;
+    }
+
+    /**
+     * Προσθέτει το count στο κλειδί με αυτό το hash
+     *
+     * @param hash
+     * @param count
+     */
+    public void add(long hash, long count) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+
+        for (int row = 0; row < depth; row++) {
+            counts[row * width + Math.floorMod(h1 + row * h2, width)] += count;
+        }
+
+        total += count;
+    }
+
+    /**
+     * Η εκτίμηση για το κλειδί με αυτό το hash, που είναι >= από την πραγματική τιμή
+     *
+     * @param hash
+     * @return long
+     */
+    public long estimate(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts[row * width + Math.floorMod(h1 + row * h2, width)]);
+        }
+
+        return estimate;
+    }
+
+    /**
+     * Το άθροισμα όλων των προσθηκών (N)
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Το epsilon που αντιστοιχεί στο width, δηλαδή e / width
+     */
+    public double getEpsilon() {
+        return Math.E / width;
+    }
+
+    /**
+     * Το delta που αντιστοιχεί στο depth, δηλαδή e ^ -depth
+     */
+    public double getDelta() {
+        return Math.exp(-depth);
+    }
+
+    /**
+     * Το μέγιστο σφάλμα μιας εκτίμησης, με πιθανότητα 1 - delta
+     */
+    public long getErrorBound() {
+        return (long) Math.ceil(getEpsilon() * total);
+    }
+
+    /**
+     * Προσθέτει τους μετρητές ενός άλλου sketch με τις ίδιες διαστάσεις
+     *
+     * @param other
+     */
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge Count-Min Sketches of " + width + "x" + depth
+                    + " and " + other.width + "x" + other.depth);
+        }
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+
+        total += other.total;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVInt(out, width);
+        WritableUtils.writeVInt(out, depth);
+        WritableUtils.writeVLong(out, total);
+
+        // Οι περισσότεροι μετρητές είναι 0 ή μικροί, οπότε γράφονται σε 1-2 bytes
+        for (long count : counts) {
+            WritableUtils.writeVLong(out, count);
+        }
+    }
+
+    public void readFields(DataInput in) throws IOException {
+        int width = WritableUtils.readVInt(in);
+        int depth = WritableUtils.readVInt(in);
+
+        if (width != this.width || depth != this.depth) {
+            allocate(width, depth);
+        }
+
+        total = WritableUtils.readVLong(in);
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = WritableUtils.readVLong(in);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Μετρητές ταινιών ανά είδος και ανά ζευγάρι ειδών, σε πίνακες με index το id του είδους
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Ο mapper μετράει όλες τις ταινίες του split σε ένα τέτοιο αντικείμενο και το γράφει
+ * μία φορά στο cleanup. Τα id των ειδών που προστέθηκαν δυναμικά διαφέρουν από mapper
+ * σε mapper, γι' αυτό μαζί με τους μετρητές γράφονται και τα ονόματα των ειδών, και η
+ * merge() αντιστοιχίζει τα είδη με βάση το όνομα.
+ *
+ * Οι μετρητές των ζευγαριών κρατιούνται μόνο αν έχει ενεργοποιηθεί η setCountPairs(),
+ * στη θέση i * MAX_GENRES + j με i < j.
+ */
+public class GenreCountsWritable implements Writable {
+    private static final int MAX_GENRES = GenreDictionary.MAX_GENRES;
+
+    private final GenreDictionary dictionary = new GenreDictionary();
+    private final long[] counts = new long[MAX_GENRES];
+    private final long[] pairs = new long[MAX_GENRES * MAX_GENRES];
+    private boolean countPairs;
+
+    // Αντιστοίχιση των id ενός άλλου λεξικού στα id αυτού, για τη merge()
+    private final int[] translation = new int[MAX_GENRES];
+
+    public GenreDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public void setCountPairs(boolean countPairs) {
+        this.countPairs = countPairs;
+    }
+
+    public boolean isCountPairs() {
+        return countPairs;
+    }
+
+    /**
+     * Μετράει μία ταινία με τα είδη του bitmask
+     *
+     * @param bitmask
+     */
+    public void add(int bitmask) {
+        add(bitmask, 1);
+    }
+
+    public void add(int bitmask, long times) {
+        for (int rest = bitmask; rest != 0; rest &= rest - 1) {
+            int id = Integer.numberOfTrailingZeros(rest);
+
+            counts[id] += times;
+
+            if (countPairs) {
+                // Τα επόμενα είδη του bitmask σχηματίζουν ζευγάρι με το id
+                for (int others = rest & (rest - 1); others != 0; others &= others - 1) {
+                    pairs[id * MAX_GENRES + Integer.numberOfTrailingZeros(others)] += times;
+                }
+            }
+        }
+    }
+
+    /**
+     * Μετράει μία ταινία με bitmask γραμμένο με τα id ενός άλλου λεξικού
+     *
+     * @param other
+     * @param bitmask
+     */
+    public void add(GenreDictionary other, int bitmask) {
+        add(dictionary.translate(other, bitmask));
+    }
+
+    public long getCount(int id) {
+        return counts[id];
+    }
+
+    /**
+     * Πόσες ταινίες έχουν και τα δύο είδη
+     */
+    public long getPairCount(int first, int second) {
+        return first < second ? pairs[first * MAX_GENRES + second] : pairs[second * MAX_GENRES + first];
+    }
+
+    /**
+     * Προσθέτει τους μετρητές του other, αντιστοιχίζοντας τα είδη με βάση το όνομα
+     *
+     * @param other
+     */
+    public void merge(GenreCountsWritable other) {
+        GenreDictionary otherDictionary = other.getDictionary();
+
+        for (int id = 0; id < otherDictionary.size(); id++) {
+            byte[] name = otherDictionary.getName(id);
+            translation[id] = dictionary.add(name, 0, name.length);
+            counts[translation[id]] += other.counts[id];
+        }
+
+        if (!countPairs || !other.countPairs) {
+            return;
+        }
+
+        for (int first = 0; first < otherDictionary.size(); first++) {
+            for (int second = first + 1; second < otherDictionary.size(); second++) {
+                long count = other.pairs[first * MAX_GENRES + second];
+
+                if (count == 0) {
+                    continue;
+                }
+
+                int a = Math.min(translation[first], translation[second]);
+                int b = Math.max(translation[first], translation[second]);
+                pairs[a * MAX_GENRES + b] += count;
+            }
+        }
+    }
+
+    public void clear() {
+        dictionary.reset();
+        Arrays.fill(counts, 0);
+        Arrays.fill(pairs, 0);
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        int size = dictionary.size();
+
+        WritableUtils.writeVInt(out, size);
+        out.writeBoolean(countPairs);
+
+        for (int id = 0; id < size; id++) {
+            byte[] name = dictionary.getName(id);
+
+            WritableUtils.writeVInt(out, name.length);
+            out.write(name);
+            WritableUtils.writeVLong(out, counts[id]);
+        }
+
+        if (countPairs) {
+            for (int first = 0; first < size; first++) {
+                for (int second = first + 1; second < size; second++) {
+                    WritableUtils.writeVLong(out, pairs[first * MAX_GENRES + second]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        clear();
+
+        int size = WritableUtils.readVInt(in);
+        countPairs = in.readBoolean();
+
+        byte[] name = new byte[64];
+        for (int id = 0; id < size; id++) {
+            int length = WritableUtils.readVInt(in);
+            if (name.length < length) {
+                name = new byte[length];
+            }
+            in.readFully(name, 0, length);
+
+            // Τα ονόματα γράφονται με τη σειρά των id, οπότε το λεξικό ξαναχτίζεται ίδιο
+            dictionary.add(name, 0, length);
+            counts[id] = WritableUtils.readVLong(in);
+        }
+
+        if (countPairs) {
+            for (int first = 0; first < size; first++) {
+                for (int second = first + 1; second < size; second++) {
+                    pairs[first * MAX_GENRES + second] = WritableUtils.readVLong(in);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Αντιστοίχιση των ειδών των ταινιών σε μικρούς ακέραιους
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Κάθε είδος παίρνει ένα id από 0 έως 31, ώστε τα είδη μιας ταινίας να χωράνε σε ένα
+ * int bitmask. Τα είδη του MovieLens έχουν πάντα τα ίδια id. Είδη που δεν υπάρχουν
+ * στη λίστα προστίθενται δυναμικά με την add(), μέχρι να γεμίσουν οι 32 θέσεις.
+ *
+ * Τα ονόματα συγκρίνονται χωρίς διάκριση πεζών-κεφαλαίων (ASCII), όπως τα μετρούσε το
+ * MoviesInGenres με toLowerCase(), οπότε τα "Action" και "action" έχουν το ίδιο id. Η
+ * getName() δίνει το όνομα όπως γράφτηκε την πρώτη φορά. Ένα 33ο είδος δεν χωράει στο
+ * bitmask, οπότε η add() πετάει GenreOverflowException αντί να χαθούν οι μετρητές του.
+ */
+public class GenreDictionary {
+    public static final int MAX_GENRES = 32;
+    public static final int NOT_FOUND = -1;
+
+    private static final String[] MOVIELENS_GENRES = {
+            "Action", "Adventure", "Animation", "Children", "Comedy", "Crime", "Documentary",
+            "Drama", "Fantasy", "Film-Noir", "Horror", "IMAX", "Musical", "Mystery", "Romance",
+            "Sci-Fi", "Thriller", "War", "Western", "(no genres listed)"
+    };
+
+    public static final int BUILTIN_GENRES = MOVIELENS_GENRES.length;
+
+    private final byte[][] names = new byte[MAX_GENRES][];
+    private final byte[][] lowerCaseNames = new byte[MAX_GENRES][];
+    private int size;
+
+    public GenreDictionary() {
+        for (String genre : MOVIELENS_GENRES) {
+            byte[] name = genre.getBytes(StandardCharsets.UTF_8);
+            add(name, 0, name.length);
+        }
+    }
+
+    /**
+     * Το id του είδους, ή NOT_FOUND αν δεν υπάρχει στο λεξικό
+     *
+     * @param bytes
+     * @param start
+     * @param length
+     * @return int
+     */
+    public int idOf(byte[] bytes, int start, int length) {
+        for (int id = 0; id < size; id++) {
+            if (equalsIgnoreCase(lowerCaseNames[id], bytes, start, length)) {
+                return id;
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * Το id του είδους. Αν δεν υπάρχει, προστίθεται στο λεξικό
+     *
+     * @param bytes
+     * @param start
+     * @param length
+     * @return int
+     * @throws GenreOverflowException αν το είδος είναι νέο και το λεξικό είναι γεμάτο
+     */
+    public int add(byte[] bytes, int start, int length) {
+        int id = idOf(bytes, start, length);
+
+        if (id != NOT_FOUND) {
+            return id;
+        }
+
+        if (size == MAX_GENRES) {
+            throw new GenreOverflowException(new String(bytes, start, length, StandardCharsets.UTF_8));
+        }
+
+        names[size] = Arrays.copyOfRange(bytes, start, start + length);
+        lowerCaseNames[size] = toLowerCase(names[size]);
+
+        return size++;
+    }
+
+    /**
+     * Το bitmask με τα είδη της ταινίας που έχει διαβάσει ο parser.
+     * Τα άγνωστα είδη προστίθενται στο λεξικό
+     *
+     * @param parser
+     * @return int
+     */
+    public int toBitmask(MoviesCsvParser parser) {
+        int bitmask = 0;
+        byte[] bytes = parser.getBytes();
+
+        for (int i = 0; i < parser.getGenreCount(); i++) {
+            int start = parser.getGenreStart(i);
+            bitmask |= 1 << add(bytes, start, parser.getGenreEnd(i) - start);
+        }
+
+        return bitmask;
+    }
+
+    /**
+     * Μετατρέπει το bitmask από τα id του other στα id αυτού του λεξικού. Τα είδη του
+     * MovieLens έχουν τα ίδια id σε όλα τα λεξικά, ενώ τα υπόλοιπα αντιστοιχίζονται με
+     * βάση το όνομα και προστίθενται αν δεν υπάρχουν
+     *
+     * @param other
+     * @param bitmask
+     * @return int
+     */
+    public int translate(GenreDictionary other, int bitmask) {
+        int builtin = bitmask & ((1 << BUILTIN_GENRES) - 1);
+        int translated = builtin;
+
+        for (int rest = bitmask ^ builtin; rest != 0; rest &= rest - 1) {
+            byte[] name = other.getName(Integer.numberOfTrailingZeros(rest));
+            translated |= 1 << add(name, 0, name.length);
+        }
+
+        return translated;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] getName(int id) {
+        return names[id];
+    }
+
+    public byte[] getLowerCaseName(int id) {
+        return lowerCaseNames[id];
+    }
+
+    /**
+     * Επαναφορά στα είδη του MovieLens, αφαιρώντας όσα προστέθηκαν δυναμικά
+     */
+    public void reset() {
+        for (int id = BUILTIN_GENRES; id < size; id++) {
+            names[id] = null;
+            lowerCaseNames[id] = null;
+        }
+
+        size = BUILTIN_GENRES;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] lowerCaseName, byte[] bytes, int start, int length) {
+        if (lowerCaseName.length != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (lowerCaseName[i] != toLowerCase(bytes[start + i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return (b >= 'A' && b <= 'Z') ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static byte[] toLowerCase(byte[] name) {
+        byte[] lower = new byte[name.length];
+
+        for (int i = 0; i < name.length; i++) {
+            lower[i] = toLowerCase(name[i]);
+        }
+
+        return lower;
+    }
+
+    /**
+     * Ένα νέο είδος όταν το λεξικό έχει ήδη MAX_GENRES είδη. Τα είδη μιας ταινίας είναι
+     * bitmask σε int, οπότε το είδος δεν μπορεί να μετρηθεί
+     */
+    public static class GenreOverflowException extends IllegalStateException {
+        public GenreOverflowException(String genre) {
+            super("More than " + MAX_GENRES + " distinct genres, cannot count genre '" + genre + "'");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Μια γραμμή (stripe) ενός πίνακα με στήλες τα είδη, π.χ. οι ταινίες ενός έτους ανά είδος
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Ο mapper γράφει κάθε γραμμή των πινάκων του μία φορά στο cleanup, με κλειδί τη γραμμή
+ * και τιμή όλους τους μετρητές της, αντί για ένα ζευγάρι (γραμμή, στήλη) ανά κελί. Ο
+ * reducer αθροίζει τα stripes στοιχείο προς στοιχείο.
+ *
+ * Τα είδη του MovieLens έχουν τα ίδια id σε κάθε mapper, οπότε γράφονται μόνο τα ονόματα
+ * των ειδών που προστέθηκαν δυναμικά, και η merge() αντιστοιχίζει αυτά με βάση το όνομα
+ * χωρίς διάκριση πεζών-κεφαλαίων, όπως το GenreCountsWritable. Οι μετρητές γράφονται ως
+ * VLong, οπότε τα άδεια κελιά πιάνουν ένα byte.
+ */
+public class GenreStripeWritable implements Writable {
+    private static final int MAX_GENRES = GenreDictionary.MAX_GENRES;
+
+    private final GenreDictionary dictionary = new GenreDictionary();
+    private final long[] counts = new long[MAX_GENRES];
+
+    /**
+     * Αντιγράφει τα είδη του source και τους μετρητές row[offset, offset + source.size())
+     *
+     * @param source
+     * @param row
+     * @param offset
+     */
+    public void set(GenreDictionary source, int[] row, int offset) {
+        clear();
+
+        for (int id = GenreDictionary.BUILTIN_GENRES; id < source.size(); id++) {
+            byte[] name = source.getName(id);
+            dictionary.add(name, 0, name.length);
+        }
+
+        for (int id = 0; id < source.size(); id++) {
+            counts[id] = row[offset + id];
+        }
+    }
+
+    public GenreDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public long getCount(int id) {
+        return counts[id];
+    }
+
+    /**
+     * Προσθέτει τους μετρητές του other, αντιστοιχίζοντας τα είδη με βάση το όνομα
+     *
+     * @param other
+     */
+    public void merge(GenreStripeWritable other) {
+        GenreDictionary otherDictionary = other.getDictionary();
+
+        for (int id = 0; id < otherDictionary.size(); id++) {
+            byte[] name = otherDictionary.getName(id);
+            int translated = id < GenreDictionary.BUILTIN_GENRES ? id : dictionary.add(name, 0, name.length);
+            counts[translated] += other.counts[id];
+        }
+    }
+
+    public void clear() {
+        dictionary.reset();
+        Arrays.fill(counts, 0);
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        int size = dictionary.size();
+
+        WritableUtils.writeVInt(out, size);
+
+        for (int id = GenreDictionary.BUILTIN_GENRES; id < size; id++) {
+            byte[] name = dictionary.getName(id);
+
+            WritableUtils.writeVInt(out, name.length);
+            out.write(name);
+        }
+
+        for (int id = 0; id < size; id++) {
+            WritableUtils.writeVLong(out, counts[id]);
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        clear();
+
+        int size = WritableUtils.readVInt(in);
+
+        byte[] name = new byte[64];
+        for (int id = GenreDictionary.BUILTIN_GENRES; id < size; id++) {
+            int length = WritableUtils.readVInt(in);
+            if (name.length < length) {
+                name = new byte[length];
+            }
+            in.readFully(name, 0, length);
+
+            // Τα ονόματα γράφονται με τη σειρά των id, οπότε το λεξικό ξαναχτίζεται ίδιο
+            dictionary.add(name, 0, length);
+        }
+
+        for (int id = 0; id < size; id++) {
+            counts[id] = WritableUtils.readVLong(in);
+        }
+    }
+}
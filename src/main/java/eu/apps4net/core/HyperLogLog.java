@@ -0,0 +1,129 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * HyperLogLog: εκτίμηση του πλήθους των διαφορετικών κλειδιών σε σταθερό χώρο
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Τα πρώτα precision bits του hash διαλέγουν έναν από τους m = 2^precision registers,
+ * που κρατάει τα περισσότερα μηδενικά στην αρχή των υπόλοιπων bits. Το τυπικό σφάλμα
+ * είναι 1.04 / sqrt(m), π.χ. 0.8% με precision 14 (16KB). Για λίγα κλειδιά, όσο
+ * υπάρχουν άδειοι registers, η εκτίμηση γίνεται με linear counting.
+ *
+ * Η συγχώνευση είναι το μέγιστο ανά register, οπότε δεν εξαρτάται από τη σειρά
+ * και ένα κλειδί που υπάρχει σε πολλούς mappers μετράει μία φορά.
+ */
+public class HyperLogLog {
+    private int precision;
+    private byte[] registers;
+
+    public HyperLogLog() {
+        this(14);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18: " + precision);
+        }
+
+        this.precision = precision;
+        registers = new byte[1 << precision];
+    }
+
+    /**
+     * Προσθέτει το κλειδί με αυτό το hash
+     *
+     * @param hash
+     */
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+
+        // Το 1 στο τέλος περιορίζει το πλήθος των μηδενικών όταν τα υπόλοιπα bits είναι 0
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Το εκτιμώμενο πλήθος των διαφορετικών κλειδιών
+     *
+     * @return long
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+
+        return Math.round(estimate);
+    }
+
+    /**
+     * Το τυπικό σφάλμα της estimate(), ως κλάσμα
+     */
+    public double getStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog of precision " + precision
+                    + " and " + other.precision);
+        }
+
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVInt(out, precision);
+        out.write(registers);
+    }
+
+    public void readFields(DataInput in) throws IOException {
+        int precision = WritableUtils.readVInt(in);
+
+        if (precision != this.precision) {
+            this.precision = precision;
+            registers = new byte[1 << precision];
+        }
+
+        in.readFully(registers);
+    }
+}
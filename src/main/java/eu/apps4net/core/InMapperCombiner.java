@@ -0,0 +1,103 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Άθροιση των μετρητών μέσα στον mapper, πριν γραφτούν στο context
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+/**
+ * Αντί για ένα (κλειδί, 1) για κάθε εμφάνιση, ο mapper μαζεύει τους μετρητές σε
+ * BytesIntHashMap και τους γράφει στο context μία φορά ανά κλειδί, στο cleanup()
+ * ή νωρίτερα αν ο map ξεπεράσει το όριο μνήμης movies.inmapper.max.bytes.
+ *
+ * Με -D movies.inmapper.enabled=false κάθε εμφάνιση γράφεται κατευθείαν στο context.
+ */
+public class InMapperCombiner implements KeyCounter, BytesIntHashMap.EntryConsumer {
+    public static final String ENABLED = "movies.inmapper.enabled";
+    public static final String MAX_BYTES = "movies.inmapper.max.bytes";
+
+    private final TaskInputOutputContext<?, ?, Text, IntWritable> context;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final BytesIntHashMap counts;
+
+    private final Text word = new Text();
+    private final IntWritable count = new IntWritable();
+
+    public InMapperCombiner(TaskInputOutputContext<?, ?, Text, IntWritable> context) {
+        Configuration conf = context.getConfiguration();
+
+        this.context = context;
+        this.enabled = conf.getBoolean(ENABLED, true);
+        this.maxBytes = conf.getLong(MAX_BYTES, 32L * 1024 * 1024);
+        this.counts = enabled ? new BytesIntHashMap() : null;
+    }
+
+    public void add(Text key) throws IOException, InterruptedException {
+        add(key.getBytes(), 0, key.getLength());
+    }
+
+    /**
+     * Μετράει μία εμφάνιση του κλειδιού
+     *
+     * @param bytes
+     * @param start
+     * @param length
+     */
+    @Override
+    public void add(byte[] bytes, int start, int length) throws IOException, InterruptedException {
+        if (!enabled) {
+            word.set(bytes, start, length);
+            count.set(1);
+
+            context.write(word, count);
+            return;
+        }
+
+        counts.add(bytes, start, length, 1);
+
+        // Αν ο map γέμισε, γράφει ό,τι έχει μαζέψει μέχρι τώρα και ξεκινάει από την αρχή
+        if (counts.memoryUsage() > maxBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Το στάδιο του MapperStats για την add(): AGGREGATE, ή EMIT αν κάθε εμφάνιση
+     * γράφεται κατευθείαν στο context
+     */
+    public MapperStats.Stage getAddStage() {
+        return enabled ? MapperStats.Stage.AGGREGATE : MapperStats.Stage.EMIT;
+    }
+
+    /**
+     * Γράφει όλους τους μετρητές στο context και αδειάζει τον map
+     */
+    public void flush() throws IOException, InterruptedException {
+        if (!enabled || counts.size() == 0) {
+            return;
+        }
+
+        counts.forEach(this);
+        counts.clear();
+    }
+
+    @Override
+    public void accept(byte[] bytes, int start, int length, int total) throws IOException, InterruptedException {
+        word.set(bytes, start, length);
+        count.set(total);
+
+        context.write(word, count);
+    }
+}
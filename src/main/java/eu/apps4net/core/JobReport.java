@@ -0,0 +1,146 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Σύνοψη των μετρητών του MapperStats στο τέλος ενός job
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+
+/**
+ * Τυπώνει τους μετρητές των γραμμών, τις γραμμές ανά δευτερόλεπτο και το ποσοστό του
+ * χρόνου του map σε κάθε στάδιο. Με -D movies.report.json=path η ίδια σύνοψη γράφεται
+ * και ως JSON στο path, σε όποιο FileSystem ανήκει.
+ */
+public class JobReport {
+    public static final String JSON = "movies.report.json";
+
+    private final String name;
+    private final double seconds;
+    private final long[] records = new long[MapperStats.Records.values().length];
+    private final long[] nanos = new long[MapperStats.Stage.values().length];
+    private final long totalNanos;
+
+    private JobReport(Job job, long elapsedNanos) throws IOException {
+        Counters counters = job.getCounters();
+
+        name = job.getJobName();
+        seconds = elapsedNanos / 1e9;
+
+        for (MapperStats.Records record : MapperStats.Records.values()) {
+            records[record.ordinal()] = counters.findCounter(record).getValue();
+        }
+
+        long sum = 0;
+        for (MapperStats.Stage stage : MapperStats.Stage.values()) {
+            nanos[stage.ordinal()] = counters.findCounter(stage).getValue();
+            sum += nanos[stage.ordinal()];
+        }
+        totalNanos = sum;
+    }
+
+    /**
+     * Τυπώνει τη σύνοψη του job και τη γράφει στο movies.report.json, αν έχει οριστεί
+     *
+     * @param job
+     * @param elapsedNanos ο χρόνος του waitForCompletion
+     */
+    public static void print(Job job, long elapsedNanos) throws IOException {
+        JobReport report = new JobReport(job, elapsedNanos);
+
+        System.out.print(report.toText());
+
+        Configuration conf = job.getConfiguration();
+        String json = conf.get(JSON);
+        if (json != null) {
+            Path path = new Path(json);
+            FileSystem fs = path.getFileSystem(conf);
+
+            try (Writer writer = new OutputStreamWriter(fs.create(path, true), StandardCharsets.UTF_8)) {
+                writer.write(report.toJson());
+            }
+        }
+    }
+
+    /**
+     * Όλες οι γραμμές που διάβασαν οι mappers
+     */
+    private long getInputRecords() {
+        return records[MapperStats.Records.PARSED.ordinal()]
+                + records[MapperStats.Records.HEADERS.ordinal()]
+                + records[MapperStats.Records.MALFORMED.ordinal()];
+    }
+
+    private double getRecordsPerSecond() {
+        return seconds > 0 ? getInputRecords() / seconds : 0;
+    }
+
+    private double getShare(MapperStats.Stage stage) {
+        return totalNanos > 0 ? (double) nanos[stage.ordinal()] / totalNanos : 0;
+    }
+
+    private String toText() {
+        StringBuilder text = new StringBuilder();
+
+        text.append(String.format(Locale.ROOT, "%s: %d records in %.1f s (%.0f records/s)%n",
+                name, getInputRecords(), seconds, getRecordsPerSecond()));
+
+        for (MapperStats.Records record : MapperStats.Records.values()) {
+            text.append(String.format(Locale.ROOT, "  %-16s %d%n", record, records[record.ordinal()]));
+        }
+
+        if (totalNanos == 0) {
+            return text.toString();
+        }
+
+        text.append("Map time per stage:").append(System.lineSeparator());
+        for (MapperStats.Stage stage : MapperStats.Stage.values()) {
+            text.append(String.format(Locale.ROOT, "  %-16s %.1f ms (%.1f%%)%n",
+                    stage, nanos[stage.ordinal()] / 1e6, getShare(stage) * 100));
+        }
+
+        return text.toString();
+    }
+
+    private String toJson() {
+        StringBuilder json = new StringBuilder();
+
+        json.append("{\"job\":\"").append(name.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        json.append(String.format(Locale.ROOT, ",\"seconds\":%.3f,\"records\":%d,\"recordsPerSecond\":%.1f",
+                seconds, getInputRecords(), getRecordsPerSecond()));
+
+        json.append(",\"counters\":{");
+        for (MapperStats.Records record : MapperStats.Records.values()) {
+            if (record.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append('"').append(record).append("\":").append(records[record.ordinal()]);
+        }
+
+        json.append("},\"stages\":{");
+        for (MapperStats.Stage stage : MapperStats.Stage.values()) {
+            if (stage.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append(String.format(Locale.ROOT, "\"%s\":{\"nanos\":%d,\"share\":%.4f}",
+                    stage, nanos[stage.ordinal()], getShare(stage)));
+        }
+        json.append("}}\n");
+
+        return json.toString();
+    }
+}
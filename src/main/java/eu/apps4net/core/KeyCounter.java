@@ -0,0 +1,27 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Κοινό σημείο όπου η λογική των mappers μετράει τα κλειδιά που βγάζει
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.IOException;
+
+/**
+ * Στα Hadoop jobs υλοποιείται από τον InMapperCombiner, ενώ στην τοπική εκτέλεση
+ * απευθείας από έναν BytesIntHashMap, οπότε η ίδια λογική χρησιμοποιείται και στα δύο.
+ */
+public interface KeyCounter {
+    /**
+     * Μετράει μία εμφάνιση του κλειδιού
+     *
+     * @param bytes
+     * @param start
+     * @param length
+     */
+    void add(byte[] bytes, int start, int length) throws IOException, InterruptedException;
+}
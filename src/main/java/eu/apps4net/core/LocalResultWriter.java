@@ -0,0 +1,92 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Γράψιμο αποτελεσμάτων σε τοπικό φάκελο, στο format του output των jobs
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Για τις εκτελέσεις χωρίς Hadoop (LocalMoviesEngine, MoviesStreaming). Οι μετρητές
+ * μαζεύονται με την add() και η write() γράφει ένα part-r-00000 με γραμμές
+ * "κλειδί\tπλήθος", ταξινομημένες με βάση τα UTF-8 bytes του κλειδιού, όπως τα Text
+ * στο shuffle, και ένα _SUCCESS, όπως ένας reducer.
+ */
+public class LocalResultWriter {
+    public static final String PART = "part-r-00000";
+    public static final String SUCCESS = "_SUCCESS";
+
+    private final List<byte[]> keys = new ArrayList<>();
+    private final List<Long> counts = new ArrayList<>();
+
+    public void add(byte[] bytes, int start, int length, long count) {
+        keys.add(Arrays.copyOfRange(bytes, start, start + length));
+        counts.add(count);
+    }
+
+    public void add(String key, long count) {
+        keys.add(key.getBytes(StandardCharsets.UTF_8));
+        counts.add(count);
+    }
+
+    /**
+     * Γράφει τους μετρητές στο directory, ταξινομημένους με το κλειδί
+     *
+     * @param directory
+     */
+    public void write(Path directory) throws IOException {
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(keys.get(a), keys.get(b)));
+
+        try (BufferedWriter writer = createPart(directory)) {
+            for (int i : order) {
+                writer.write(new String(keys.get(i), StandardCharsets.UTF_8));
+                writer.write('\t');
+                writer.write(String.valueOf(counts.get(i)));
+                writer.write('\n');
+            }
+        }
+
+        Files.createFile(directory.resolve(SUCCESS));
+    }
+
+    /**
+     * Γράφει τις ταινίες ανά έτος, με index το έτος, σε αριθμητική σειρά όπως το
+     * MoviesInYear, χωρίς τα έτη με 0 ταινίες
+     *
+     * @param directory
+     * @param years
+     */
+    public static void writeYears(Path directory, long[] years) throws IOException {
+        try (BufferedWriter writer = createPart(directory)) {
+            for (int year = 0; year < years.length; year++) {
+                if (years[year] > 0) {
+                    writer.write(year + "\t" + years[year] + "\n");
+                }
+            }
+        }
+
+        Files.createFile(directory.resolve(SUCCESS));
+    }
+
+    private static BufferedWriter createPart(Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        return Files.newBufferedWriter(directory.resolve(PART), StandardCharsets.UTF_8);
+    }
+}
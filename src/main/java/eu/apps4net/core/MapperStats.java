@@ -0,0 +1,144 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Μετρητές των γραμμών και χρόνοι των σταδίων του mapper, ως Hadoop Counters
+ *
+ */
+
+package eu.apps4net.core;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+/**
+ * Οι μετρητές κρατιούνται σε πίνακες μέσα στον mapper και προστίθενται στους Counters
+ * του job μία φορά, στο cleanup, ώστε ο map να μην ψάχνει counter σε κάθε γραμμή.
+ *
+ * Οι χρόνοι μετριούνται σε μία γραμμή κάθε movies.timing.sample (default 100, με 0 δεν
+ * μετριούνται). Στη γραμμή που μετριέται, η start() κρατάει το System.nanoTime() και κάθε
+ * stage() προσθέτει στο στάδιο τον χρόνο από το προηγούμενο σημάδι. Στο flush() ο χρόνος
+ * των δειγμάτων ανάγεται σε όλες τις γραμμές, οπότε οι Counters του Stage έχουν τα
+ * εκτιμώμενα nanoseconds κάθε σταδίου.
+ */
+public class MapperStats {
+    public static final String SAMPLE = "movies.timing.sample";
+
+    /**
+     * Μετρητές των γραμμών του input
+     */
+    public enum Records {
+        PARSED,
+        HEADERS,
+        NO_YEAR,
+        NO_GENRES,
+        MALFORMED,
+        // Λέξεις που ήταν μικρότερες από TitleTokenizer.MINIMUM_LENGTH
+        TOKENS_FILTERED
+    }
+
+    /**
+     * Στάδια του map. Οι Counters έχουν nanoseconds
+     */
+    public enum Stage {
+        PARSE,
+        // Εξαγωγή του έτους και των ειδών από την εγγραφή
+        EXTRACT,
+        TOKENIZE,
+        // Πρόσθεση στους μετρητές του mapper, χωρίς γράψιμο στο context
+        AGGREGATE,
+        // Γράψιμο στο context
+        EMIT
+    }
+
+    private final long[] records = new long[Records.values().length];
+    private final long[] sampledNanos = new long[Stage.values().length];
+    private final long[] fullNanos = new long[Stage.values().length];
+
+    private final int sampleEvery;
+    private int untilSample = 1;
+    private long total;
+    private long timed;
+
+    private boolean timing;
+    private long mark;
+
+    public MapperStats(Configuration conf) {
+        this.sampleEvery = conf.getInt(SAMPLE, 100);
+    }
+
+    public void count(Records record) {
+        records[record.ordinal()]++;
+    }
+
+    public void count(Records record, long value) {
+        records[record.ordinal()] += value;
+    }
+
+    /**
+     * Αρχή μιας γραμμής. Αποφασίζει αν η γραμμή θα χρονομετρηθεί
+     */
+    public void start() {
+        total++;
+        timing = sampleEvery > 0 && --untilSample == 0;
+
+        if (timing) {
+            untilSample = sampleEvery;
+            timed++;
+            mark = System.nanoTime();
+        }
+    }
+
+    /**
+     * Τέλος ενός σταδίου της γραμμής. Ο χρόνος από το προηγούμενο σημάδι πάει στο stage
+     *
+     * @param stage
+     */
+    public void stage(Stage stage) {
+        if (!timing) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        sampledNanos[stage.ordinal()] += now - mark;
+        mark = now;
+    }
+
+    /**
+     * Χρόνος που δεν ανήκει σε μία γραμμή, όπως το flush των μετρητών στο cleanup,
+     * και μετριέται πάντα ολόκληρος
+     *
+     * @param stage
+     * @param nanos
+     */
+    public void add(Stage stage, long nanos) {
+        fullNanos[stage.ordinal()] += nanos;
+    }
+
+    /**
+     * Προσθέτει τους μετρητές στους Counters του job
+     *
+     * @param context
+     */
+    public void flush(TaskAttemptContext context) {
+        // Οι γραμμές που μετρήθηκαν αντιπροσωπεύουν όλες τις γραμμές του mapper
+        double scale = timed > 0 ? (double) total / timed : 0;
+
+        for (Stage stage : Stage.values()) {
+            long nanos = fullNanos[stage.ordinal()] + (long) (sampledNanos[stage.ordinal()] * scale);
+
+            context.getCounter(stage).increment(nanos);
+            sampledNanos[stage.ordinal()] = 0;
+            fullNanos[stage.ordinal()] = 0;
+        }
+
+        for (Records record : Records.values()) {
+            context.getCounter(record).increment(records[record.ordinal()]);
+            records[record.ordinal()] = 0;
+        }
+
+        total = 0;
+        timed = 0;
+    }
+}
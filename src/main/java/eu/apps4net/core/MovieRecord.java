@@ -0,0 +1,60 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Μια ταινία του movies.csv, όπως τη δίνει το MoviesInputFormat
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Τα πεδία της ταινίας είναι τα όρια που κρατάει ο MoviesCsvParser, πάνω στον buffer
+ * του RecordReader, οπότε δεν γίνεται καμία αντιγραφή της γραμμής. Το ίδιο αντικείμενο
+ * δίνεται σε κάθε map() και ισχύει μόνο μέχρι την επόμενη εγγραφή. Τα είδη είναι κι
+ * αυτά όρια σε έναν int[] που ξαναχρησιμοποιείται, και όχι μια λίστα από String.
+ *
+ * Ως Writable γράφεται η γραμμή όπως είναι. Η readFields() τη διαβάζει σε δικό της
+ * buffer, που μεγαλώνει μόνο όταν χρειαστεί, και την ξαναδιαβάζει με τον ίδιο parser,
+ * οπότε μια ταινία μπορεί να περάσει από το shuffle ή να γραφτεί σε SequenceFile χωρίς
+ * δεύτερη υλοποίηση του parsing.
+ */
+public class MovieRecord extends MoviesCsvParser implements Writable {
+    private byte[] buffer = new byte[256];
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        int length = getEnd() - getStart();
+
+        WritableUtils.writeVInt(out, length);
+        out.write(getBytes(), getStart(), length);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        int length = WritableUtils.readVInt(in);
+
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        in.readFully(buffer, 0, length);
+
+        if (!parse(buffer, 0, length)) {
+            throw new IOException("Malformed movie record: " + new String(buffer, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(getBytes(), getStart(), getEnd() - getStart(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Πίνακας από movieId σε είδη και έτος, για το join με άλλα αρχεία του MovieLens
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+
+/**
+ * Open addressing hash map με linear probing, όπως ο BytesIntHashMap. Για κάθε θέση
+ * κρατιούνται το movieId, το bitmask των ειδών (ids του GenreDictionary) και το έτος,
+ * σε primitive πίνακες, δηλαδή 14 bytes ανά θέση. Το movies.csv του MovieLens με
+ * ~60.000 ταινίες χρειάζεται περίπου 2MB.
+ */
+public class MovieTable {
+    public static final int NOT_FOUND = -1;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] ids;
+    private int[] genres;
+    private short[] years;
+    private int mask;
+    private int size;
+
+    public MovieTable() {
+        this(1024);
+    }
+
+    public MovieTable(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1);
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        genres = new int[capacity];
+        years = new short[capacity];
+        mask = capacity - 1;
+
+        Arrays.fill(ids, EMPTY);
+    }
+
+    /**
+     * Διαβάζει όλες τις ταινίες του αρχείου με το MoviesInputFormat. Τα είδη που δεν
+     * υπάρχουν στο λεξικό προστίθενται σε αυτό
+     *
+     * @param conf
+     * @param file
+     * @param dictionary
+     * @return MovieTable
+     */
+    public static MovieTable load(Configuration conf, Path file, GenreDictionary dictionary) throws IOException, InterruptedException {
+        FileSystem fs = file.getFileSystem(conf);
+        FileSplit split = new FileSplit(file, 0, fs.getFileStatus(file).getLen(), null);
+
+        // Ξεχωριστό context, ώστε οι μετρητές του reader να μη μπαίνουν στους μετρητές του job
+        TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+
+        MovieTable table = new MovieTable();
+        YearExtractor years = new YearExtractor();
+
+        try (RecordReader<LongWritable, MovieRecord> reader = new MoviesInputFormat().createRecordReader(split, context)) {
+            reader.initialize(split, context);
+
+            while (reader.nextKeyValue()) {
+                MovieRecord movie = reader.getCurrentValue();
+                int year = years.extract(movie.getBytes(), movie.getTitleStart(), movie.getTitleEnd());
+
+                table.put(movie.getMovieId(), dictionary.toBitmask(movie), year);
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * Προσθέτει ή αντικαθιστά την ταινία
+     *
+     * @param movieId
+     * @param genreBitmask
+     * @param year
+     */
+    public void put(long movieId, int genreBitmask, int year) {
+        int slot = hash(movieId) & mask;
+
+        while (ids[slot] != EMPTY && ids[slot] != movieId) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (ids[slot] == EMPTY) {
+            ids[slot] = movieId;
+            size++;
+        }
+
+        genres[slot] = genreBitmask;
+        years[slot] = (short) year;
+
+        if (size * 4 > ids.length * 3) {
+            resize();
+        }
+    }
+
+    /**
+     * Η θέση της ταινίας, για τις getGenres() και getYear(), ή NOT_FOUND
+     *
+     * @param movieId
+     * @return int
+     */
+    public int indexOf(long movieId) {
+        int slot = hash(movieId) & mask;
+
+        while (ids[slot] != EMPTY) {
+            if (ids[slot] == movieId) {
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return NOT_FOUND;
+    }
+
+    public int getGenres(int index) {
+        return genres[index];
+    }
+
+    public int getYear(int index) {
+        return years[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] oldIds = ids;
+        int[] oldGenres = genres;
+        short[] oldYears = years;
+
+        allocate(oldIds.length * 2);
+
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] == EMPTY) {
+                continue;
+            }
+
+            int slot = hash(oldIds[i]) & mask;
+            while (ids[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+
+            ids[slot] = oldIds[i];
+            genres[slot] = oldGenres[i];
+            years[slot] = oldYears[i];
+        }
+    }
+
+    /**
+     * Τα movieId είναι σχεδόν συνεχόμενα, οπότε ανακατεύονται πριν από τη μάσκα
+     */
+    private static int hash(long movieId) {
+        long h = movieId * 0x9E3779B97F4A7C15L;
+
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,341 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Διάβασμα μιας γραμμής του movies.csv με ένα μόνο πέρασμα πάνω στα bytes της
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Parser για τις γραμμές του movies.csv (movieId,title,genres).
+ *
+ * Σαρώνει τα bytes της γραμμής μία φορά και κρατάει μόνο τα όρια (offsets) των πεδίων,
+ * χωρίς να δημιουργεί ενδιάμεσα String[] ή αντικείμενα Movie. Το ίδιο αντικείμενο
+ * ξαναχρησιμοποιείται για κάθε γραμμή, οπότε δεν είναι thread safe.
+ *
+ * Τα πεδία μπορεί να είναι μέσα σε εισαγωγικά, και μέσα σε αυτά τα "" σημαίνουν ένα ".
+ */
+public class MoviesCsvParser {
+    private static final byte[] HEADER = "movieId,".getBytes(StandardCharsets.UTF_8);
+
+    private byte[] bytes;
+
+    private int end;
+    private int idStart;
+    private int idEnd;
+    private int titleStart;
+    private int titleEnd;
+    private boolean titleEscaped;
+    private int genresStart;
+    private int genresEnd;
+    private long movieId;
+
+    // Τα όρια κάθε είδους, σε ζευγάρια (αρχή, τέλος)
+    private int[] genreBounds = new int[32];
+    private int genreCount;
+
+    // Buffer για την αντιγραφή πεδίων που χρειάζονται μετατροπή
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Ελέγχει αν η γραμμή είναι η επικεφαλίδα του αρχείου
+     *
+     * @param line
+     * @return boolean
+     */
+    public static boolean isHeader(Text line) {
+        return isHeader(line.getBytes(), 0, line.getLength());
+    }
+
+    public static boolean isHeader(byte[] bytes, int start, int end) {
+        if (end - start < HEADER.length) {
+            return false;
+        }
+
+        for (int i = 0; i < HEADER.length; i++) {
+            if (bytes[start + i] != HEADER[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public boolean parse(Text line) {
+        return parse(line.getBytes(), 0, line.getLength());
+    }
+
+    /**
+     * Διάβασμα μιας γραμμής. Επιστρέφει false αν η γραμμή δεν έχει τα τρία πεδία
+     * ή αν το movieId δεν είναι αριθμός
+     *
+     * @param bytes
+     * @param start
+     * @param end
+     * @return boolean
+     */
+    public boolean parse(byte[] bytes, int start, int end) {
+        this.bytes = bytes;
+        genreCount = 0;
+
+        // Αγνοεί το \r στο τέλος, αν το αρχείο έχει windows line endings
+        while (end > start && (bytes[end - 1] == '\r' || bytes[end - 1] == '\n')) {
+            end--;
+        }
+
+        this.end = end;
+
+        // Πεδίο 1: movieId
+        idStart = start;
+        int pos = scanField(bytes, start, end);
+        idEnd = pos;
+        if (pos >= end) {
+            return false;
+        }
+
+        // Πεδίο 2: title
+        titleStart = pos + 1;
+        pos = scanField(bytes, titleStart, end);
+        titleEnd = pos;
+        if (pos >= end) {
+            return false;
+        }
+
+        // Αν ο τίτλος είναι σε εισαγωγικά, κρατάει μόνο το περιεχόμενό τους
+        titleEscaped = false;
+        if (titleEnd - titleStart >= 2 && bytes[titleStart] == '"' && bytes[titleEnd - 1] == '"') {
+            titleStart++;
+            titleEnd--;
+
+            for (int i = titleStart; i < titleEnd; i++) {
+                if (bytes[i] == '"') {
+                    titleEscaped = true;
+                    break;
+                }
+            }
+        }
+
+        // Πεδίο 3: genres. Ό,τι ακολουθεί μετά από επόμενο κόμμα αγνοείται
+        genresStart = pos + 1;
+        genresEnd = scanField(bytes, genresStart, end);
+
+        if (!parseMovieId()) {
+            return false;
+        }
+
+        splitGenres();
+
+        return true;
+    }
+
+    /**
+     * Βρίσκει το τέλος του πεδίου που ξεκινάει στο start, δηλαδή το επόμενο κόμμα
+     * που δεν βρίσκεται μέσα σε εισαγωγικά, ή το end
+     */
+    private static int scanField(byte[] bytes, int start, int end) {
+        boolean quoted = false;
+
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+
+            if (b == '"') {
+                // Το "" μέσα σε εισαγωγικά είναι escaped εισαγωγικό και αφήνει
+                // την κατάσταση ίδια, οπότε αρκεί η εναλλαγή
+                quoted = !quoted;
+            } else if (b == ',' && !quoted) {
+                return i;
+            }
+        }
+
+        return end;
+    }
+
+    private boolean parseMovieId() {
+        if (idStart == idEnd || idEnd - idStart > 18) {
+            return false;
+        }
+
+        long id = 0;
+
+        for (int i = idStart; i < idEnd; i++) {
+            int digit = bytes[i] - '0';
+
+            if (digit < 0 || digit > 9) {
+                return false;
+            }
+
+            id = id * 10 + digit;
+        }
+
+        movieId = id;
+
+        return true;
+    }
+
+    private void splitGenres() {
+        int start = genresStart;
+
+        for (int i = genresStart; i <= genresEnd; i++) {
+            if (i == genresEnd || bytes[i] == '|') {
+                if (i > start) {
+                    if (genreCount * 2 == genreBounds.length) {
+                        int[] bigger = new int[genreBounds.length * 2];
+                        System.arraycopy(genreBounds, 0, bigger, 0, genreBounds.length);
+                        genreBounds = bigger;
+                    }
+
+                    genreBounds[genreCount * 2] = start;
+                    genreBounds[genreCount * 2 + 1] = i;
+                    genreCount++;
+                }
+
+                start = i + 1;
+            }
+        }
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Η αρχή της γραμμής μέσα στον buffer
+     */
+    public int getStart() {
+        return idStart;
+    }
+
+    /**
+     * Το τέλος της γραμμής μέσα στον buffer, χωρίς το \r\n
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    public long getMovieId() {
+        return movieId;
+    }
+
+    /**
+     * Η αρχή του τίτλου (χωρίς τα εισαγωγικά) μέσα στον buffer της γραμμής
+     */
+    public int getTitleStart() {
+        return titleStart;
+    }
+
+    /**
+     * Το τέλος του τίτλου (χωρίς τα εισαγωγικά) μέσα στον buffer της γραμμής
+     */
+    public int getTitleEnd() {
+        return titleEnd;
+    }
+
+    /**
+     * Αν ο τίτλος περιέχει escaped εισαγωγικά ("") και δεν μπορεί να
+     * χρησιμοποιηθεί αυτούσιος από τον buffer
+     */
+    public boolean isTitleEscaped() {
+        return titleEscaped;
+    }
+
+    /**
+     * Αντιγράφει τον τίτλο στο target, μετατρέποντας τα "" σε "
+     *
+     * @param target
+     */
+    public void getTitle(Text target) {
+        if (!titleEscaped) {
+            target.set(bytes, titleStart, titleEnd - titleStart);
+            return;
+        }
+
+        int length = unescape(bytes, titleStart, titleEnd);
+        target.set(scratch, 0, length);
+    }
+
+    public String getTitle() {
+        if (!titleEscaped) {
+            return new String(bytes, titleStart, titleEnd - titleStart, StandardCharsets.UTF_8);
+        }
+
+        int length = unescape(bytes, titleStart, titleEnd);
+
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int unescape(byte[] source, int start, int end) {
+        ensureScratch(end - start);
+
+        int length = 0;
+
+        for (int i = start; i < end; i++) {
+            scratch[length++] = source[i];
+
+            if (source[i] == '"' && i + 1 < end && source[i + 1] == '"') {
+                i++;
+            }
+        }
+
+        return length;
+    }
+
+    public int getGenresStart() {
+        return genresStart;
+    }
+
+    public int getGenresEnd() {
+        return genresEnd;
+    }
+
+    public int getGenreCount() {
+        return genreCount;
+    }
+
+    public int getGenreStart(int index) {
+        return genreBounds[index * 2];
+    }
+
+    public int getGenreEnd(int index) {
+        return genreBounds[index * 2 + 1];
+    }
+
+    /**
+     * Αντιγράφει το είδος στη θέση index στο target, σε lowercase.
+     * Τα είδη είναι ASCII, οπότε αρκεί η μετατροπή byte προς byte
+     *
+     * @param index
+     * @param target
+     */
+    public void getGenreLowerCase(int index, Text target) {
+        int start = getGenreStart(index);
+        int length = getGenreEnd(index) - start;
+
+        ensureScratch(length);
+
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[start + i];
+            scratch[i] = (b >= 'A' && b <= 'Z') ? (byte) (b + ('a' - 'A')) : b;
+        }
+
+        target.set(scratch, 0, length);
+    }
+
+    public String getGenre(int index) {
+        int start = getGenreStart(index);
+
+        return new String(bytes, start, getGenreEnd(index) - start, StandardCharsets.UTF_8);
+    }
+
+    private void ensureScratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+    }
+}
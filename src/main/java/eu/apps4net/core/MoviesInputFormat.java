@@ -0,0 +1,264 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Διάβασμα του movies.csv απευθείας σε MovieRecord
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
+
+/**
+ * Κάθε εγγραφή τελειώνει στο πρώτο \n που δεν είναι μέσα σε εισαγωγικά, οπότε ένας
+ * τίτλος σε εισαγωγικά μπορεί να έχει και αλλαγές γραμμής. Ο RecordReader διαβάζει
+ * το αρχείο σε έναν μεγάλο buffer (movies.input.buffer.bytes, default 1MB), κάνει parse
+ * κάθε εγγραφή πάνω σε αυτόν και δίνει στον mapper μόνο τις έγκυρες ταινίες, με κλειδί
+ * το offset τους στο αρχείο. Οι mappers δεν ελέγχουν ούτε επικεφαλίδα ούτε parse.
+ *
+ * Όπως στο LineRecordReader, ένα split διαβάζει τις εγγραφές που ξεκινάνε στο (start, end]
+ * (και στο 0 για το πρώτο split). Τα όρια των εγγραφών και η αρχή κάθε split βρίσκονται
+ * από το MoviesRecordScanner, που περιγράφει και πώς προσπερνιούνται οι γραμμές που είναι
+ * συνέχεια ενός τίτλου με αλλαγή γραμμής. Με σωστό CSV οι εγγραφές είναι ίδιες για κάθε
+ * μέγεθος split, και το ίδιο ισχύει για τις περισσότερες γραμμές με εισαγωγικό που λείπει.
+ * Μια γραμμή που μοιάζει με το τέλος ενός τίτλου, π.χ. 10,Title 12",Drama, μπορεί όμως να
+ * χαθεί μαζί με την προηγούμενη ταινία όταν ένα split ξεκινάει ακριβώς πριν από αυτές.
+ *
+ * Η επικεφαλίδα ελέγχεται μόνο στην πρώτη εγγραφή του αρχείου. Οι επικεφαλίδες, οι
+ * άκυρες γραμμές, οι ταινίες και ο χρόνος του parse μετράνε στους Counters του MapperStats.
+ *
+ * Αν λείπει το εισαγωγικό που κλείνει ένα πεδίο, η εγγραφή θα έφτανε μέχρι το επόμενο
+ * εισαγωγικό. Γι' αυτό, μετά από movies.input.max.record.bytes (default 64KB) η εγγραφή
+ * τελειώνει στο πρώτο \n, όπως θα τελείωνε μια γραμμή του TextInputFormat.
+ *
+ * Τα συμπιεσμένα αρχεία (π.χ. movies.csv.gz) αποσυμπιέζονται κατά το διάβασμα και
+ * διαβάζονται ολόκληρα από έναν mapper. Εξαίρεση είναι οι codecs που χωρίζονται σε splits,
+ * όπως ο bzip2, όπου τα όρια των splits είναι τα μπλοκ του codec. Εκεί οι γραμμές
+ * διαβάζονται με το LineRecordReader του Hadoop, οπότε κάθε εγγραφή είναι μία γραμμή.
+ */
+public class MoviesInputFormat extends FileInputFormat<LongWritable, MovieRecord> {
+    public static final String BUFFER_BYTES = "movies.input.buffer.bytes";
+    public static final String MAX_RECORD_BYTES = "movies.input.max.record.bytes";
+
+    @Override
+    public RecordReader<LongWritable, MovieRecord> createRecordReader(InputSplit split, TaskAttemptContext context) {
+        Path file = ((FileSplit) split).getPath();
+        CompressionCodec codec = new CompressionCodecFactory(context.getConfiguration()).getCodec(file);
+
+        if (codec instanceof SplittableCompressionCodec) {
+            return new LineMoviesRecordReader();
+        }
+
+        return new MoviesRecordReader();
+    }
+
+    /**
+     * Τα συμπιεσμένα αρχεία χωρίζονται σε splits μόνο αν το υποστηρίζει ο codec
+     */
+    @Override
+    protected boolean isSplitable(JobContext context, Path file) {
+        CompressionCodec codec = new CompressionCodecFactory(context.getConfiguration()).getCodec(file);
+
+        return codec == null || codec instanceof SplittableCompressionCodec;
+    }
+
+    public static class MoviesRecordReader extends RecordReader<LongWritable, MovieRecord> {
+        private final LongWritable key = new LongWritable();
+        private final MovieRecord movie = new MovieRecord();
+
+        private FSDataInputStream fileIn;
+        private InputStream in;
+        private MoviesRecordScanner scanner;
+        private TaskAttemptContext context;
+        private MapperStats stats;
+
+        private long start;
+        private long length;
+        private boolean compressed;
+
+        @Override
+        public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+            FileSplit fileSplit = (FileSplit) split;
+            Configuration conf = context.getConfiguration();
+            Path file = fileSplit.getPath();
+            FileSystem fs = file.getFileSystem(conf);
+
+            this.context = context;
+            stats = new MapperStats(conf);
+
+            start = fileSplit.getStart();
+            length = fileSplit.getLength();
+            long end = start + length;
+            fileIn = fs.open(file);
+
+            CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(file);
+            if (codec != null) {
+                // Το split είναι όλο το αρχείο και οι θέσεις είναι στα αποσυμπιεσμένα bytes
+                compressed = true;
+                in = codec.createInputStream(fileIn);
+                end = Long.MAX_VALUE;
+            } else {
+                fileIn.seek(start);
+                in = fileIn;
+            }
+
+            // Οι εγγραφές που ξεκινάνε στο (start, end] ανήκουν στο split
+            scanner = new MoviesRecordScanner(in, start, end,
+                    conf.getInt(BUFFER_BYTES, 1024 * 1024), conf.getInt(MAX_RECORD_BYTES, 64 * 1024));
+        }
+
+        @Override
+        public boolean nextKeyValue() throws IOException {
+            while (scanner.next()) {
+                byte[] bytes = scanner.getBytes();
+                int recordStart = scanner.getRecordStart();
+                int recordEnd = scanner.getRecordEnd();
+
+                if (scanner.getRecordOffset() == 0 && MoviesCsvParser.isHeader(bytes, recordStart, recordEnd)) {
+                    stats.count(MapperStats.Records.HEADERS);
+                    continue;
+                }
+
+                stats.start();
+
+                if (!movie.parse(bytes, recordStart, recordEnd)) {
+                    stats.count(MapperStats.Records.MALFORMED);
+                    continue;
+                }
+
+                stats.count(MapperStats.Records.PARSED);
+                stats.stage(MapperStats.Stage.PARSE);
+
+                key.set(scanner.getRecordOffset());
+
+                return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        public LongWritable getCurrentKey() {
+            return key;
+        }
+
+        @Override
+        public MovieRecord getCurrentValue() {
+            return movie;
+        }
+
+        @Override
+        public float getProgress() throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+
+            // Στα συμπιεσμένα αρχεία η πρόοδος μετριέται στα συμπιεσμένα bytes
+            long read = compressed ? fileIn.getPos() - start : scanner.getPosition() - start;
+
+            return Math.min(1.0f, read / (float) length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (stats != null) {
+                stats.flush(context);
+            }
+
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * RecordReader για αρχεία με codec που χωρίζεται σε splits (bzip2). Το LineRecordReader
+     * ξέρει πού ξεκινάει και πού τελειώνει κάθε split στα μπλοκ του codec, και εδώ γίνεται
+     * μόνο το parse κάθε γραμμής, πάνω στο Text του, χωρίς αντιγραφή
+     */
+    public static class LineMoviesRecordReader extends RecordReader<LongWritable, MovieRecord> {
+        private final LineRecordReader lines = new LineRecordReader();
+        private final MovieRecord movie = new MovieRecord();
+
+        private TaskAttemptContext context;
+        private MapperStats stats;
+
+        @Override
+        public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+            this.context = context;
+            stats = new MapperStats(context.getConfiguration());
+
+            lines.initialize(split, context);
+        }
+
+        @Override
+        public boolean nextKeyValue() throws IOException {
+            while (lines.nextKeyValue()) {
+                Text line = lines.getCurrentValue();
+
+                if (lines.getCurrentKey().get() == 0 && MoviesCsvParser.isHeader(line)) {
+                    stats.count(MapperStats.Records.HEADERS);
+                    continue;
+                }
+
+                stats.start();
+
+                if (!movie.parse(line)) {
+                    stats.count(MapperStats.Records.MALFORMED);
+                    continue;
+                }
+
+                stats.count(MapperStats.Records.PARSED);
+                stats.stage(MapperStats.Stage.PARSE);
+
+                return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        public LongWritable getCurrentKey() {
+            return lines.getCurrentKey();
+        }
+
+        @Override
+        public MovieRecord getCurrentValue() {
+            return movie;
+        }
+
+        @Override
+        public float getProgress() throws IOException {
+            return lines.getProgress();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (stats != null) {
+                stats.flush(context);
+            }
+
+            lines.close();
+        }
+    }
+}
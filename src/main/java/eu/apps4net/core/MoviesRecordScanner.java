@@ -0,0 +1,463 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Εύρεση των εγγραφών του movies.csv σε ένα κομμάτι του αρχείου, με τίτλους σε
+ * εισαγωγικά που μπορεί να έχουν αλλαγές γραμμής
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Η λογική των splits του MoviesInputFormat, χωρίς Hadoop, ώστε να τη χρησιμοποιεί και
+ * το LocalMoviesEngine για τα κομμάτια του αρχείου. Το κομμάτι έχει τις εγγραφές που
+ * ξεκινάνε στο (start, end] (και στο 0 για το πρώτο κομμάτι), και το stream ξεκινάει στο
+ * byte start του αρχείου και μπορεί να διαβαστεί και μετά το end, για να ολοκληρωθεί η
+ * τελευταία εγγραφή. Η next() δίνει μία εγγραφή τη φορά, ως bytes του buffer, χωρίς το \n.
+ *
+ * Κάθε εγγραφή τελειώνει στο πρώτο \n που δεν είναι μέσα σε εισαγωγικά. Ένα κομμάτι που
+ * δεν ξεκινάει στο 0 ξεκινάει από το πρώτο \n μετά το start, και προσπερνάει τις γραμμές
+ * που είναι συνέχεια ενός τίτλου με αλλαγή γραμμής: μια εγγραφή ξεκινάει με ψηφία και
+ * κόμμα, και αν έχει αλλαγή γραμμής μέσα της πρέπει να είναι σωστό CSV, με εισαγωγικά
+ * μόνο γύρω από ολόκληρα πεδία. Επιπλέον, η επόμενη έγκυρη εγγραφή πρέπει να βρεθεί πριν
+ * από γραμμή με εισαγωγικό που περισσεύει, οπότε μόνο ένας τίτλος με δύο συνεχόμενες
+ * γραμμές που μοιάζουν με ταινίες θα μπορούσε να μπερδέψει την αρχή του κομματιού.
+ *
+ * Αν λείπει το εισαγωγικό που κλείνει ένα πεδίο, η εγγραφή θα έφτανε μέχρι το επόμενο
+ * εισαγωγικό, που μπορεί να είναι σε άλλη εγγραφή. Γι' αυτό μια εγγραφή με αλλαγή γραμμής
+ * κρατιέται μόνο αν είναι σωστό CSV και δεν ξεπερνάει τα maxRecordBytes. Αλλιώς τελειώνει
+ * στο πρώτο \n, όπως μια γραμμή του TextInputFormat, οπότε τα όριά της δεν εξαρτώνται
+ * από το τι υπάρχει πριν από αυτή. Ένα κομμάτι που ξεκινάει πριν από μια τέτοια γραμμή
+ * τη θεωρεί αρχή εγγραφής όταν το πρώτο της εισαγωγικό (εκτός από τα "") ανοίγει πεδίο.
+ *
+ * Όταν όμως το εισαγωγικό ακολουθείται από κόμμα ή από το τέλος της γραμμής, π.χ.
+ * 10,Title 12",Drama, η γραμμή είναι ίδια με το τέλος ενός τίτλου με αλλαγή γραμμής και
+ * δεν θεωρείται αρχή εγγραφής. Αν ένα κομμάτι ξεκινάει λίγο πριν από μια τέτοια γραμμή,
+ * χάνεται αυτή και μπορεί να χαθεί και η έγκυρη εγγραφή πριν από αυτή, οπότε το αποτέλεσμα
+ * εξαρτάται από το μέγεθος των splits. Επίσης, μια γραμμή που δεν γίνεται parse στην αρχή
+ * ενός κομματιού δεν δίνεται από τη next(), αλλά τέτοιες εγγραφές δεν φτάνουν ούτε αλλιώς
+ * στους mappers.
+ */
+public class MoviesRecordScanner {
+    // Πόσες εγγραφές μετά την αρχή ενός κομματιού ελέγχονται, μέχρι να βρεθεί μία έγκυρη
+    private static final int LOOKAHEAD_RECORDS = 8;
+
+    private final InputStream in;
+    private final long end;
+    private final int maxRecordBytes;
+    private final MoviesCsvParser parser = new MoviesCsvParser();
+
+    // Τα bytes [position, limit) του buffer δεν έχουν διαβαστεί ακόμα.
+    // Το buffer[0] είναι το byte bufferOffset του αρχείου
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private long bufferOffset;
+    private boolean eof;
+
+    // Το τέλος της πρώτης γραμμής της τελευταίας findRecord(), σε σχέση με το position,
+    // αν η εγγραφή έχει αλλαγή γραμμής μέσα σε εισαγωγικά, αλλιώς -1
+    private int firstLineEnd;
+
+    // Αν η τελευταία findRecord() έδωσε μόνο την πρώτη γραμμή, επειδή το εισαγωγικό δεν έκλεισε
+    private boolean unclosedQuote;
+
+    // Η εγγραφή της τελευταίας next()
+    private long recordOffset;
+    private int recordStart;
+    private int recordEnd;
+
+    /**
+     * @param in το αρχείο από το byte start
+     * @param start
+     * @param end
+     * @param bufferBytes το αρχικό μέγεθος του buffer, που μεγαλώνει αν δεν χωράει μία εγγραφή
+     * @param maxRecordBytes
+     */
+    public MoviesRecordScanner(InputStream in, long start, long end, int bufferBytes, int maxRecordBytes) throws IOException {
+        this.in = in;
+        this.end = end;
+        this.maxRecordBytes = maxRecordBytes;
+
+        buffer = new byte[bufferBytes];
+        bufferOffset = start;
+
+        if (start != 0) {
+            skipToFirstRecord();
+        }
+    }
+
+    /**
+     * Προχωράει στην επόμενη εγγραφή του κομματιού
+     *
+     * @return boolean false αν δεν υπάρχουν άλλες εγγραφές
+     */
+    public boolean next() throws IOException {
+        if (bufferOffset + position > end) {
+            return false;
+        }
+
+        if (position == limit && !fill()) {
+            return false;
+        }
+
+        recordOffset = bufferOffset + position;
+        int recordLength = findRecord();
+        recordStart = position;
+        recordEnd = position + recordLength;
+
+        // Η επόμενη εγγραφή ξεκινάει μετά το \n
+        position = Math.min(recordEnd + 1, limit);
+
+        return true;
+    }
+
+    /**
+     * Ο buffer με την τρέχουσα εγγραφή. Αλλάζει στην επόμενη next()
+     */
+    public byte[] getBytes() {
+        return buffer;
+    }
+
+    public int getRecordStart() {
+        return recordStart;
+    }
+
+    public int getRecordEnd() {
+        return recordEnd;
+    }
+
+    /**
+     * Η θέση της τρέχουσας εγγραφής στο αρχείο
+     */
+    public long getRecordOffset() {
+        return recordOffset;
+    }
+
+    /**
+     * Η θέση στο αρχείο μέχρι την οποία έχουν δοθεί εγγραφές
+     */
+    public long getPosition() {
+        return bufferOffset + position;
+    }
+
+    /**
+     * Πηγαίνει στην πρώτη εγγραφή που ξεκινάει μετά το start
+     */
+    private void skipToFirstRecord() throws IOException {
+        while (skipLine() && bufferOffset + position <= end && !isRecordStart()) {
+            // Η γραμμή είναι συνέχεια μιας εγγραφής του προηγούμενου κομματιού
+        }
+    }
+
+    /**
+     * Βρίσκει το τέλος της εγγραφής που ξεκινάει στο position, δηλαδή το πρώτο \n που
+     * δεν είναι μέσα σε εισαγωγικά ή το τέλος του αρχείου. Το position δεν αλλάζει,
+     * αλλά ο buffer μπορεί να μετακινηθεί
+     *
+     * @return int το μήκος της εγγραφής χωρίς το \n
+     */
+    private int findRecord() throws IOException {
+        return findRecord(0);
+    }
+
+    /**
+     * Όπως η findRecord(), για την εγγραφή που ξεκινάει στο position + from
+     *
+     * @param from
+     * @return int το μήκος της εγγραφής χωρίς το \n
+     */
+    private int findRecord(int from) throws IOException {
+        boolean quoted = false;
+        firstLineEnd = -1;
+        unclosedQuote = false;
+
+        int i = 0;
+        while (true) {
+            if (position + from + i == limit && !fill()) {
+                // Αν το αρχείο τελείωσε μέσα σε εισαγωγικά, το εισαγωγικό ήταν λάθος
+                if (quoted && firstLineEnd < 0) {
+                    unclosedQuote = true;
+
+                    return i;
+                }
+
+                return quoted ? endFirstLine() : endRecord(from, i);
+            }
+
+            byte b = buffer[position + from + i];
+
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n') {
+                if (!quoted) {
+                    return endRecord(from, i);
+                }
+
+                if (firstLineEnd < 0) {
+                    firstLineEnd = i;
+                }
+            }
+
+            i++;
+
+            if (quoted && firstLineEnd >= 0 && i > maxRecordBytes) {
+                return endFirstLine();
+            }
+        }
+    }
+
+    /**
+     * Μια εγγραφή με αλλαγή γραμμής κρατιέται μόνο αν είναι σωστό CSV. Αλλιώς κάποιο
+     * εισαγωγικό της ήταν λάθος και η εγγραφή τελειώνει στην πρώτη της γραμμή
+     *
+     * @param from
+     * @param length το μήκος μέχρι το \n που δεν είναι μέσα σε εισαγωγικά
+     * @return int το μήκος της εγγραφής
+     */
+    private int endRecord(int from, int length) {
+        if (firstLineEnd < 0 || isStrictCsv(position + from, position + from + length)) {
+            return length;
+        }
+
+        return endFirstLine();
+    }
+
+    /**
+     * Η εγγραφή της findRecord() τελειώνει στην πρώτη της γραμμή
+     *
+     * @return int το μήκος της πρώτης γραμμής
+     */
+    private int endFirstLine() {
+        int lineEnd = firstLineEnd;
+        firstLineEnd = -1;
+        unclosedQuote = true;
+
+        return lineEnd;
+    }
+
+    /**
+     * Προσπερνάει τα bytes μέχρι και το επόμενο \n
+     *
+     * @return boolean false αν τελείωσε το αρχείο
+     */
+    private boolean skipLine() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return false;
+            }
+
+            if (buffer[position++] == '\n') {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ελέγχει αν στο position ξεκινάει μια εγγραφή ή αν είναι συνέχεια ενός τίτλου.
+     * Ελέγχονται και οι εγγραφές που ακολουθούν, μέχρι την πρώτη έγκυρη, ώστε μια
+     * γραμμή του τίτλου που μοιάζει με εγγραφή να μη θεωρηθεί αρχή
+     */
+    private boolean isRecordStart() throws IOException {
+        if (!isRecord(0)) {
+            return false;
+        }
+
+        int next = 0;
+        for (int checked = 0; checked < LOOKAHEAD_RECORDS; checked++) {
+            next += findRecord(next) + 1;
+
+            while (position + next >= limit) {
+                if (!fill()) {
+                    return true;
+                }
+            }
+
+            if (isRecord(next)) {
+                return true;
+            }
+
+            // Μια άκυρη γραμμή χωρίς εισαγωγικά είναι απλώς λάθος γραμμή του αρχείου.
+            // Με εισαγωγικά, είναι μάλλον το τέλος του τίτλου που είχε την αλλαγή γραμμής
+            if (hasQuote(next)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean hasQuote(int from) throws IOException {
+        int recordLength = findRecord(from);
+
+        for (int i = position + from; i < position + from + recordLength; i++) {
+            if (buffer[i] == '"') {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Ελέγχει αν η εγγραφή στο position + from είναι έγκυρη ταινία
+     *
+     * @param from
+     * @return boolean
+     */
+    private boolean isRecord(int from) throws IOException {
+        // Το movieId και το κόμμα μετά από αυτό
+        int i = 0;
+        while (true) {
+            if (position + from + i == limit && !fill()) {
+                return false;
+            }
+
+            byte b = buffer[position + from + i];
+
+            if (b == ',') {
+                if (i == 0) {
+                    return false;
+                }
+                break;
+            }
+
+            if (b < '0' || b > '9') {
+                return false;
+            }
+
+            i++;
+        }
+
+        // Η findRecord() μπορεί να μετακινήσει τον buffer, οπότε το position διαβάζεται μετά
+        int recordLength = findRecord(from);
+        int start = position + from;
+        int end = start + recordLength;
+
+        if (unclosedQuote) {
+            return opensQuote(start + i + 1, end);
+        }
+
+        // Μια εγγραφή με αλλαγή γραμμής έχει ήδη ελεγχθεί ότι είναι σωστό CSV στη findRecord()
+        return firstLineEnd >= 0 || parser.parse(buffer, start, end);
+    }
+
+    /**
+     * Για μια γραμμή με εισαγωγικό που δεν κλείνει, ελέγχει αν το πρώτο εισαγωγικό της
+     * (εκτός από τα "") ανοίγει κάτι ή αν κλείνει τον τίτλο μιας προηγούμενης γραμμής,
+     * οπότε ακολουθείται από κόμμα ή από το τέλος της γραμμής
+     *
+     * @param from
+     * @param to
+     * @return boolean true αν η γραμμή είναι αρχή εγγραφής
+     */
+    private boolean opensQuote(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] != '"') {
+                continue;
+            }
+
+            if (i + 1 < to && buffer[i + 1] == '"') {
+                i++;
+                continue;
+            }
+
+            return i + 1 < to && buffer[i + 1] != ',' && !(buffer[i + 1] == '\r' && i + 2 == to);
+        }
+
+        return false;
+    }
+
+    /**
+     * Ελέγχει αν τα buffer[from, to) είναι τουλάχιστον τρία πεδία CSV, με εισαγωγικά
+     * μόνο γύρω από ολόκληρα πεδία και αλλαγές γραμμής μόνο μέσα σε εισαγωγικά
+     */
+    private boolean isStrictCsv(int from, int to) {
+        int fields = 0;
+        int i = from;
+
+        while (true) {
+            if (i < to && buffer[i] == '"') {
+                i++;
+
+                while (true) {
+                    if (i >= to) {
+                        return false;
+                    }
+
+                    if (buffer[i] == '"') {
+                        if (i + 1 < to && buffer[i + 1] == '"') {
+                            i += 2;
+                            continue;
+                        }
+
+                        i++;
+                        break;
+                    }
+
+                    i++;
+                }
+            } else {
+                while (i < to && buffer[i] != ',') {
+                    if (buffer[i] == '"' || buffer[i] == '\n') {
+                        return false;
+                    }
+
+                    i++;
+                }
+            }
+
+            fields++;
+
+            if (i >= to || (buffer[i] == '\r' && i + 1 == to)) {
+                return fields >= 3;
+            }
+
+            if (buffer[i] != ',') {
+                return false;
+            }
+
+            i++;
+        }
+    }
+
+    /**
+     * Μετακινεί τα αδιάβαστα bytes στην αρχή του buffer και διαβάζει όσα χωράνε.
+     * Αν ο buffer είναι γεμάτος από μία εγγραφή, τον μεγαλώνει
+     *
+     * @return boolean false αν τελείωσε το αρχείο
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            bufferOffset += position;
+            limit -= position;
+            position = 0;
+        }
+
+        if (limit == buffer.length) {
+            byte[] bigger = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, bigger, 0, limit);
+            buffer = bigger;
+        }
+
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read <= 0) {
+            eof = true;
+            return false;
+        }
+
+        limit += read;
+
+        return true;
+    }
+}
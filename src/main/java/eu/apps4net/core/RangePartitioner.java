@@ -0,0 +1,273 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Μοίρασμα των κλειδιών σε περιοχές, με όρια από δείγμα του input
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.ShortWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Με -D mapreduce.job.reduces=N (N > 1) ο driver διαβάζει ένα δείγμα του input, μετράει
+ * τα κλειδιά που θα έβγαζαν οι mappers και χωρίζει το ταξινομημένο σύνολό τους σε N
+ * περιοχές με περίπου ίδιο άθροισμα εμφανίσεων. Ο reducer i παίρνει τα κλειδιά της
+ * περιοχής i, οπότε τα part αρχεία στη σειρά είναι ταξινομημένα ως σύνολο.
+ *
+ * Με το HashPartitioner τα συχνά κλειδιά (π.χ. "love", "man", τα έτη μετά το 2000) πέφτουν
+ * τυχαία μαζί στον ίδιο reducer. Εδώ ένα συχνό κλειδί μένει μόνο του στην περιοχή του.
+ * Ένα κλειδί με περισσότερο από 1/N των εμφανίσεων δεν μπορεί να μοιραστεί, οπότε κάποιες
+ * περιοχές μένουν άδειες και οι αντίστοιχοι reducers δεν βγάζουν γραμμές.
+ *
+ * Το βάρος είναι οι εμφανίσεις στο δείγμα, δηλαδή το input του reducer χωρίς combining.
+ * Με τον combiner τα συχνά κλειδιά φτάνουν στον reducer μία φορά ανά mapper, οπότε το
+ * μοίρασμα είναι πιο συντηρητικό από όσο χρειάζεται.
+ */
+public class RangePartitioner {
+    // Πόσες εγγραφές διαβάζονται για το δείγμα και από πόσα splits
+    public static final String SAMPLE_RECORDS = "movies.partition.sample.records";
+    public static final int DEFAULT_SAMPLE_RECORDS = 100000;
+    public static final String SAMPLE_SPLITS = "movies.partition.sample.splits";
+    public static final int DEFAULT_SAMPLE_SPLITS = 20;
+
+    // Τα όρια των περιοχών, γράφονται από τον driver
+    public static final String SPLIT_POINTS = "movies.partition.points";
+
+    /**
+     * Η λογική του mapper που μετράει τα κλειδιά μιας εγγραφής του δείγματος
+     */
+    public interface RecordSampler<V> {
+        void sample(V value) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Διαβάζει τις πρώτες εγγραφές από έως SAMPLE_SPLITS splits, σε ίσες αποστάσεις μέσα
+     * στο input, με το InputFormat του job
+     *
+     * @param job
+     * @param sampler
+     * @return long οι εγγραφές που διαβάστηκαν
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> long sample(Job job, RecordSampler<V> sampler) throws IOException, InterruptedException {
+        Configuration conf = job.getConfiguration();
+
+        InputFormat<?, V> format;
+        try {
+            format = (InputFormat<?, V>) ReflectionUtils.newInstance(job.getInputFormatClass(), conf);
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+
+        List<InputSplit> splits = format.getSplits(job);
+        if (splits.isEmpty()) {
+            return 0;
+        }
+
+        int maxRecords = conf.getInt(SAMPLE_RECORDS, DEFAULT_SAMPLE_RECORDS);
+        int sampledSplits = Math.min(splits.size(), Math.max(1, conf.getInt(SAMPLE_SPLITS, DEFAULT_SAMPLE_SPLITS)));
+        int recordsPerSplit = Math.max(1, maxRecords / sampledSplits);
+
+        TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+        long records = 0;
+
+        for (int i = 0; i < sampledSplits; i++) {
+            InputSplit split = splits.get((int) ((long) i * splits.size() / sampledSplits));
+
+            try (RecordReader<?, V> reader = format.createRecordReader(split, context)) {
+                reader.initialize(split, context);
+
+                for (int n = 0; n < recordsPerSplit && reader.nextKeyValue(); n++) {
+                    sampler.sample(reader.getCurrentValue());
+                    records++;
+                }
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * Τα σημεία όπου αρχίζει κάθε περιοχή, εκτός από την πρώτη. Το όριο j μπαίνει στο
+     * πρώτο κλειδί μετά από j/partitions του συνολικού βάρους
+     *
+     * @param weights τα βάρη των κλειδιών, στη σειρά ταξινόμησης
+     * @param partitions
+     * @return int[] θέσεις στο weights, το πολύ partitions - 1, αύξουσες
+     */
+    static int[] cut(long[] weights, int partitions) {
+        long total = 0;
+        for (long weight : weights) {
+            total += weight;
+        }
+
+        int[] points = new int[Math.max(0, partitions - 1)];
+        int count = 0;
+        int boundary = 1;
+        long sum = 0;
+
+        for (int i = 0; i < weights.length && count < points.length; i++) {
+            // Ένα κλειδί με βάρος τουλάχιστον μιας περιοχής ξεκινάει δική του περιοχή
+            if (i > 0 && weights[i] * partitions >= total && (count == 0 || points[count - 1] != i)) {
+                points[count++] = i;
+
+                if (count == points.length) {
+                    break;
+                }
+            }
+
+            sum += weights[i];
+
+            if (i == weights.length - 1 || sum * partitions < total * boundary) {
+                continue;
+            }
+
+            points[count++] = i + 1;
+
+            // Ένα κλειδί που ξεπερνάει πολλά όρια κλείνει μόνο μία περιοχή
+            while (boundary < partitions && sum * partitions >= total * boundary) {
+                boundary++;
+            }
+        }
+
+        return Arrays.copyOf(points, count);
+    }
+
+    /**
+     * Οι λέξεις (Text) κατά σειρά bytes, όπως τις ταξινομεί το Hadoop
+     */
+    public static class TextKeys<V> extends Partitioner<Text, V> implements Configurable {
+        private Configuration conf;
+        private byte[][] points = new byte[0][];
+
+        /**
+         * Ορίζει τον partitioner και τα όρια από τους μετρητές του δείγματος
+         *
+         * @param job
+         * @param counts
+         */
+        public static void configure(Job job, BytesIntHashMap counts) throws IOException, InterruptedException {
+            List<byte[]> keys = new ArrayList<>(counts.size());
+            counts.forEach((bytes, start, length, count) -> keys.add(Arrays.copyOfRange(bytes, start, start + length)));
+            keys.sort((a, b) -> WritableComparator.compareBytes(a, 0, a.length, b, 0, b.length));
+
+            long[] sorted = new long[keys.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                byte[] key = keys.get(i);
+                sorted[i] = counts.get(key, 0, key.length);
+            }
+
+            // Οι λέξεις έχουν μόνο γράμματα και ψηφία, οπότε χωράνε σε λίστα με κόμματα
+            int[] cut = cut(sorted, job.getNumReduceTasks());
+            String[] points = new String[cut.length];
+            for (int i = 0; i < cut.length; i++) {
+                points[i] = new String(keys.get(cut[i]), StandardCharsets.UTF_8);
+            }
+
+            job.getConfiguration().setStrings(SPLIT_POINTS, points);
+            job.setPartitionerClass(TextKeys.class);
+        }
+
+        @Override
+        public void setConf(Configuration conf) {
+            this.conf = conf;
+
+            String[] values = conf.getTrimmedStrings(SPLIT_POINTS);
+            points = new byte[values.length][];
+            for (int i = 0; i < values.length; i++) {
+                points[i] = values[i].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        @Override
+        public Configuration getConf() {
+            return conf;
+        }
+
+        @Override
+        public int getPartition(Text key, V value, int partitions) {
+            // Το πλήθος των ορίων που είναι <= key
+            int low = 0;
+            int high = points.length;
+
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                byte[] point = points[middle];
+
+                if (WritableComparator.compareBytes(point, 0, point.length, key.getBytes(), 0, key.getLength()) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return Math.min(low, partitions - 1);
+        }
+    }
+
+    /**
+     * Τα έτη (ShortWritable) σε αριθμητική σειρά
+     */
+    public static class ShortKeys<V> extends Partitioner<ShortWritable, V> implements Configurable {
+        private Configuration conf;
+        private int[] points = new int[0];
+
+        /**
+         * Ορίζει τον partitioner και τα όρια από τους μετρητές του δείγματος
+         *
+         * @param job
+         * @param counts οι εμφανίσεις κάθε τιμής, με index την τιμή
+         */
+        public static void configure(Job job, long[] counts) {
+            int[] cut = cut(counts, job.getNumReduceTasks());
+            String[] points = new String[cut.length];
+            for (int i = 0; i < cut.length; i++) {
+                points[i] = Integer.toString(cut[i]);
+            }
+
+            job.getConfiguration().setStrings(SPLIT_POINTS, points);
+            job.setPartitionerClass(ShortKeys.class);
+        }
+
+        @Override
+        public void setConf(Configuration conf) {
+            this.conf = conf;
+            points = conf.getInts(SPLIT_POINTS);
+        }
+
+        @Override
+        public Configuration getConf() {
+            return conf;
+        }
+
+        @Override
+        public int getPartition(ShortWritable key, V value, int partitions) {
+            int index = Arrays.binarySearch(points, key.get());
+            int partition = index >= 0 ? index + 1 : -index - 1;
+
+            return Math.min(partition, partitions - 1);
+        }
+    }
+}
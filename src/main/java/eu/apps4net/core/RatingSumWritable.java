@@ -0,0 +1,87 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Μερικό άθροισμα βαθμολογιών: άθροισμα και πλήθος
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Locale;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Ο μέσος όρος δεν αθροίζεται, το ζευγάρι (άθροισμα, πλήθος) όμως ναι, οπότε τα μερικά
+ * αθροίσματα συγχωνεύονται με οποιαδήποτε σειρά, στον mapper, στον combiner και στον
+ * reducer. Οι βαθμολογίες κρατιούνται σε χιλιοστά (3.5 -> 3500), ώστε το άθροισμα να
+ * είναι ακριβές και το αποτέλεσμα ίδιο, όπως κι αν μοιραστούν οι εγγραφές.
+ *
+ * Στο TextOutputFormat γράφεται ως "πλήθος\tμέσος όρος".
+ */
+public class RatingSumWritable implements Writable {
+    public static final int SCALE = 1000;
+
+    private long sum;
+    private long count;
+
+    public void set(long sum, long count) {
+        this.sum = sum;
+        this.count = count;
+    }
+
+    /**
+     * Προσθέτει μία βαθμολογία
+     *
+     * @param rating σε χιλιοστά
+     */
+    public void add(long rating) {
+        sum += rating;
+        count++;
+    }
+
+    public void merge(RatingSumWritable other) {
+        sum += other.sum;
+        count += other.count;
+    }
+
+    public void clear() {
+        sum = 0;
+        count = 0;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getAverage() {
+        return count == 0 ? 0 : (double) sum / SCALE / count;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVLong(out, sum);
+        WritableUtils.writeVLong(out, count);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        sum = WritableUtils.readVLong(in);
+        count = WritableUtils.readVLong(in);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d\t%.4f", count, getAverage());
+    }
+}
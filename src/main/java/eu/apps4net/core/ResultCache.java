@@ -0,0 +1,288 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Cache των αποτελεσμάτων των jobs, για επαναλαμβανόμενες εκτελέσεις στο ίδιο input
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileChecksum;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+
+/**
+ * Πριν από το job, ο driver υπολογίζει ένα fingerprint από το όνομα του driver, τις
+ * παραμέτρους movies.* και το πλήθος των reducers, και για κάθε αρχείο του input το
+ * path, το μέγεθος και την ώρα τροποποίησης. Αν υπάρχει αποθηκευμένο αποτέλεσμα με το
+ * ίδιο fingerprint, αντιγράφεται στο output και δεν τρέχει κανένα job. Αλλιώς, μετά από
+ * ένα επιτυχημένο job, το output αντιγράφεται στο cache.
+ *
+ *   -D movies.cache.dir=path          ο φάκελος του cache. Χωρίς αυτό το cache δεν χρησιμοποιείται
+ *   -D movies.cache.max.bytes=...     το μέγιστο μέγεθος του cache (1GB)
+ *   -D movies.cache.checksum=true     το fingerprint περιέχει και hash του περιεχομένου
+ *                                     των αρχείων, και όχι μόνο μέγεθος και ώρα
+ *   -D movies.cache.bypass=true       τρέχει κανονικά το job, χωρίς να διαβάσει ή να
+ *                                     γράψει στο cache
+ *
+ * Κάθε αποτέλεσμα είναι ένας φάκελος με όνομα το fingerprint. Η ώρα τροποποίησης του
+ * φακέλου ανανεώνεται σε κάθε χρήση, οπότε όταν το cache ξεπεράσει το μέγεθος σβήνονται
+ * πρώτα τα αποτελέσματα που χρησιμοποιήθηκαν παλιότερα (LRU). Ένα νέο αποτέλεσμα γράφεται
+ * πρώτα σε προσωρινό φάκελο και μετά μετονομάζεται, ώστε ένας άλλος driver να μη βρει
+ * ποτέ μισό αποτέλεσμα.
+ */
+public class ResultCache {
+    public static final String DIRECTORY = "movies.cache.dir";
+    public static final String MAX_BYTES = "movies.cache.max.bytes";
+    public static final String CHECKSUM = "movies.cache.checksum";
+    public static final String BYPASS = "movies.cache.bypass";
+
+    private static final String PREFIX = "movies.";
+    private static final String TEMPORARY_PREFIX = "_tmp-";
+
+    // Παράμετροι που δεν αλλάζουν το αποτέλεσμα
+    private static final String[] IGNORED = {
+            PREFIX + "cache.", JobReport.JSON, MapperStats.SAMPLE, RangePartitioner.SPLIT_POINTS
+    };
+
+    private final Configuration conf;
+    private final Path directory;
+    private final String key;
+
+    private ResultCache(Configuration conf, Path directory, String key) {
+        this.conf = conf;
+        this.directory = directory;
+        this.key = key;
+    }
+
+    /**
+     * Υπολογίζει το fingerprint του job. Επιστρέφει null αν το cache δεν έχει οριστεί ή
+     * έχει δοθεί το movies.cache.bypass
+     *
+     * @param conf οι παράμετροι του job, μαζί με όσες δόθηκαν ως ορίσματα
+     * @param driver
+     * @param inputs
+     * @return ResultCache
+     */
+    public static ResultCache open(Configuration conf, Class<?> driver, Path... inputs) throws IOException {
+        String directory = conf.get(DIRECTORY);
+
+        if (directory == null || conf.getBoolean(BYPASS, false)) {
+            return null;
+        }
+
+        MessageDigest digest = newDigest();
+        update(digest, driver.getName());
+        update(digest, "reduces=" + conf.getInt("mapreduce.job.reduces", 1));
+
+        // Ταξινομημένες, ώστε η σειρά των -D να μην αλλάζει το fingerprint
+        Map<String, String> parameters = new TreeMap<>();
+        for (Map.Entry<String, String> entry : conf) {
+            if (entry.getKey().startsWith(PREFIX) && !isIgnored(entry.getKey())) {
+                parameters.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            update(digest, parameter.getKey() + "=" + parameter.getValue());
+        }
+
+        boolean checksum = conf.getBoolean(CHECKSUM, false);
+        for (Path input : inputs) {
+            for (FileStatus file : listFiles(input.getFileSystem(conf), input)) {
+                update(digest, file.getPath().toString());
+                update(digest, file.getLen() + "\t" + file.getModificationTime());
+
+                if (checksum) {
+                    updateContent(digest, file.getPath().getFileSystem(conf), file.getPath());
+                }
+            }
+        }
+
+        return new ResultCache(conf, new Path(directory), toHex(digest.digest()));
+    }
+
+    /**
+     * Αντιγράφει το αποθηκευμένο αποτέλεσμα στο output, αν υπάρχει
+     *
+     * @param output
+     * @return true αν βρέθηκε το αποτέλεσμα
+     */
+    public boolean restore(Path output) throws IOException {
+        FileSystem fs = directory.getFileSystem(conf);
+        FileSystem outputFs = output.getFileSystem(conf);
+        Path entry = new Path(directory, key);
+
+        // Ένα υπάρχον output το αφήνουμε στο job, που θα αποτύχει με το συνηθισμένο μήνυμα
+        if (!fs.exists(entry) || outputFs.exists(output)) {
+            return false;
+        }
+
+        if (!FileUtil.copy(fs, entry, outputFs, output, false, conf)) {
+            return false;
+        }
+
+        fs.setTimes(entry, System.currentTimeMillis(), -1);
+        System.out.println("Result cache hit " + key + ", copied to " + output);
+
+        return true;
+    }
+
+    /**
+     * Αντιγράφει το output ενός επιτυχημένου job στο cache και σβήνει τα παλιότερα
+     * αποτελέσματα, αν το cache ξεπέρασε το μέγεθος
+     *
+     * @param output
+     */
+    public void store(Path output) throws IOException {
+        FileSystem fs = directory.getFileSystem(conf);
+        Path entry = new Path(directory, key);
+        Path temporary = new Path(directory, TEMPORARY_PREFIX + key + "-" + System.nanoTime());
+
+        fs.mkdirs(directory);
+        FileUtil.copy(output.getFileSystem(conf), output, fs, temporary, false, conf);
+
+        // Αν κάποιος άλλος driver το αποθήκευσε στο μεταξύ, κρατάμε το δικό του
+        if (fs.exists(entry) || !fs.rename(temporary, entry)) {
+            fs.delete(temporary, true);
+        }
+
+        evict(fs);
+    }
+
+    /**
+     * Σβήνει τα αποτελέσματα που χρησιμοποιήθηκαν παλιότερα, μέχρι το cache να χωράει
+     * στο movies.cache.max.bytes
+     */
+    private void evict(FileSystem fs) throws IOException {
+        long maxBytes = conf.getLong(MAX_BYTES, 1024L * 1024 * 1024);
+
+        List<FileStatus> entries = new ArrayList<>();
+        for (FileStatus status : fs.listStatus(directory)) {
+            if (status.isDirectory() && !status.getPath().getName().startsWith(TEMPORARY_PREFIX)) {
+                entries.add(status);
+            }
+        }
+        entries.sort(Comparator.comparingLong(FileStatus::getModificationTime));
+
+        long[] sizes = new long[entries.size()];
+        long total = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = fs.getContentSummary(entries.get(i).getPath()).getLength();
+            total += sizes[i];
+        }
+
+        for (int i = 0; i < sizes.length && total > maxBytes; i++) {
+            fs.delete(entries.get(i).getPath(), true);
+            total -= sizes[i];
+            System.out.println("Result cache evicted " + entries.get(i).getPath().getName());
+        }
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Τα αρχεία του input με τη σειρά του path, χωρίς τα κρυφά (_ ή .), όπως τα
+     * αγνοεί και το FileInputFormat. Το input μπορεί να είναι και glob (π.χ. movies/*.csv),
+     * οπότε επεκτείνεται πρώτα, και κάθε φάκελος που ταιριάζει διαβάζεται ολόκληρος
+     */
+    private static List<FileStatus> listFiles(FileSystem fs, Path input) throws IOException {
+        FileStatus[] matches = fs.globStatus(input, ResultCache::isVisible);
+
+        if (matches == null || matches.length == 0) {
+            throw new FileNotFoundException("Input path does not exist or matches no files: " + input);
+        }
+
+        List<FileStatus> files = new ArrayList<>();
+
+        for (FileStatus match : matches) {
+            RemoteIterator<LocatedFileStatus> iterator = fs.listFiles(match.getPath(), true);
+            while (iterator.hasNext()) {
+                LocatedFileStatus file = iterator.next();
+
+                if (isVisible(file.getPath())) {
+                    files.add(file);
+                }
+            }
+        }
+
+        files.sort(Comparator.comparing(file -> file.getPath().toString()));
+
+        return files;
+    }
+
+    private static boolean isVisible(Path path) {
+        return !path.getName().startsWith("_") && !path.getName().startsWith(".");
+    }
+
+    /**
+     * Το checksum του FileSystem, αν υπάρχει (στο HDFS υπολογίζεται από τα checksums
+     * των blocks χωρίς να διαβαστεί το αρχείο), αλλιώς hash όλου του αρχείου
+     */
+    private static void updateContent(MessageDigest digest, FileSystem fs, Path file) throws IOException {
+        FileChecksum checksum = fs.getFileChecksum(file);
+
+        if (checksum != null) {
+            update(digest, checksum.getAlgorithmName());
+            digest.update(checksum.getBytes());
+            return;
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = fs.open(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static boolean isIgnored(String name) {
+        return Arrays.stream(IGNORED).anyMatch(name::startsWith);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Με το \n ως διαχωριστικό, ώστε τα "ab","c" και "a","bc" να διαφέρουν
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+
+        return hex.toString();
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Σπάσιμο του τίτλου σε λέξεις, απευθείας πάνω στα UTF-8 bytes
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.IOException;
+
+/**
+ * Οι λέξεις χωρίζονται με τους ίδιους χαρακτήρες με το StringTokenizer (κενό, \t, \n,
+ * \r, \f). Κάθε λέξη γράφεται σε lowercase σε έναν buffer που ξαναχρησιμοποιείται,
+ * χωρίς τους χαρακτήρες που δεν είναι γράμματα ή ψηφία, και περνάει στον counter αν
+ * έχει τουλάχιστον MINIMUM_LENGTH χαρακτήρες. Δεν δημιουργούνται αντικείμενα ανά λέξη.
+ *
+ * Χωρίς unicode κρατιούνται μόνο τα a-z και 0-9, όπως το παλιό replaceAll("[^a-zA-Z0-9]", "").
+ * Με unicode κρατιούνται όλα τα γράμματα και ψηφία (Character.isLetterOrDigit), οπότε οι
+ * τίτλοι με τόνους ή σε άλλα αλφάβητα δεν χάνουν χαρακτήρες.
+ */
+public class TitleTokenizer {
+    public static final int MINIMUM_LENGTH = 4;
+
+    private final boolean unicode;
+
+    private byte[] buffer = new byte[256];
+
+    // Μήκος της τρέχουσας λέξης σε bytes και σε χαρακτήρες
+    private int length;
+    private int characters;
+
+    // Λέξεις που δεν μετρήθηκαν επειδή είχαν λιγότερους από MINIMUM_LENGTH χαρακτήρες
+    private long filteredTokens;
+
+    public TitleTokenizer(boolean unicode) {
+        this.unicode = unicode;
+    }
+
+    public boolean isUnicode() {
+        return unicode;
+    }
+
+    /**
+     * Οι λέξεις που απορρίφθηκαν λόγω μήκους από την αρχή ή από την τελευταία κλήση.
+     * Δεν μετράνε όσες δεν είχαν κανένα γράμμα ή ψηφίο, π.χ. ένα "-"
+     *
+     * @return long
+     */
+    public long takeFilteredTokens() {
+        long filtered = filteredTokens;
+        filteredTokens = 0;
+
+        return filtered;
+    }
+
+    /**
+     * Σπάει τον τίτλο bytes[start, end) σε λέξεις και τις μετράει στον counter.
+     * Αν ο τίτλος τελειώνει σε " (year)", ακόμα και με κενά μετά, το έτος δεν μετράει ως λέξη
+     *
+     * @param bytes
+     * @param start
+     * @param end
+     * @param year
+     * @param counter
+     */
+    public void tokenize(byte[] bytes, int start, int end, int year, KeyCounter counter) throws IOException, InterruptedException {
+        while (end > start && isDelimiter(bytes[end - 1])) {
+            end--;
+        }
+
+        // Σε μερικούς τίτλους το έτος υπάρχει δύο φορές, π.χ. "Don Quixote (1973) (1973)"
+        int withoutYear;
+        while ((withoutYear = withoutYear(bytes, start, end, year)) != end) {
+            end = withoutYear;
+        }
+
+        length = 0;
+        characters = 0;
+
+        int i = start;
+        while (i < end) {
+            int b = bytes[i] & 0xff;
+
+            if (isDelimiter(b)) {
+                emit(counter);
+                i++;
+            } else if (b < 0x80) {
+                if (b >= 'A' && b <= 'Z') {
+                    append((byte) (b + ('a' - 'A')));
+                } else if ((b >= 'a' && b <= 'z') || (b >= '0' && b <= '9')) {
+                    append((byte) b);
+                }
+                i++;
+            } else {
+                i = appendMultiByte(bytes, i, end);
+            }
+        }
+
+        emit(counter);
+    }
+
+    /**
+     * Το τέλος του τίτλου χωρίς το " (year)"
+     */
+    private static int withoutYear(byte[] bytes, int start, int end, int year) {
+        // " (" + 4 ψηφία + ")"
+        if (year < 1000 || year > 9999 || end - start < 7 || bytes[end - 1] != ')'
+                || bytes[end - 6] != '(' || bytes[end - 7] != ' ') {
+            return end;
+        }
+
+        int value = 0;
+        for (int i = end - 5; i < end - 1; i++) {
+            value = value * 10 + bytes[i] - '0';
+        }
+
+        return value == year ? end - 7 : end;
+    }
+
+    private static boolean isDelimiter(int b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+    }
+
+    /**
+     * Διαβάζει έναν χαρακτήρα UTF-8 με περισσότερα από ένα bytes. Χωρίς unicode κρατιέται
+     * μόνο αν το lowercase του είναι a-z, όπως το İ, που με το toLowerCase() γινόταν i
+     *
+     * @return int η θέση μετά τον χαρακτήρα
+     */
+    private int appendMultiByte(byte[] bytes, int i, int end) {
+        int b = bytes[i] & 0xff;
+        int size = b >= 0xf0 ? 4 : b >= 0xe0 ? 3 : b >= 0xc0 ? 2 : 1;
+
+        if (size == 1 || i + size > end) {
+            // Συνέχεια χαρακτήρα ή κομμένος χαρακτήρας
+            return Math.min(i + size, end);
+        }
+
+        int codePoint = b & (0xff >> (size + 1));
+        for (int j = 1; j < size; j++) {
+            codePoint = (codePoint << 6) | (bytes[i + j] & 0x3f);
+        }
+
+        int lowerCase = Character.toLowerCase(codePoint);
+
+        if (unicode ? Character.isLetterOrDigit(codePoint) : lowerCase >= 'a' && lowerCase <= 'z') {
+            appendCodePoint(lowerCase);
+        }
+
+        return i + size;
+    }
+
+    private void append(byte b) {
+        ensureCapacity(1);
+        buffer[length++] = b;
+        characters++;
+    }
+
+    private void appendCodePoint(int codePoint) {
+        ensureCapacity(4);
+
+        if (codePoint < 0x80) {
+            buffer[length++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            buffer[length++] = (byte) (0xc0 | (codePoint >> 6));
+            buffer[length++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else if (codePoint < 0x10000) {
+            buffer[length++] = (byte) (0xe0 | (codePoint >> 12));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            buffer[length++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else {
+            buffer[length++] = (byte) (0xf0 | (codePoint >> 18));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            buffer[length++] = (byte) (0x80 | (codePoint & 0x3f));
+        }
+
+        characters++;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (buffer.length < length + extra) {
+            byte[] bigger = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, bigger, 0, length);
+            buffer = bigger;
+        }
+    }
+
+    /**
+     * Μετράει την τρέχουσα λέξη, αν είναι αρκετά μεγάλη, και ξεκινάει νέα
+     */
+    private void emit(KeyCounter counter) throws IOException, InterruptedException {
+        if (characters >= MINIMUM_LENGTH) {
+            counter.add(buffer, 0, length);
+        } else if (characters > 0) {
+            filteredTokens++;
+        }
+
+        length = 0;
+        characters = 0;
+    }
+}
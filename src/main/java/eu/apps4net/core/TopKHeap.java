@@ -0,0 +1,163 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Κρατάει τα K κλειδιά με τους μεγαλύτερους μετρητές
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Min-heap σταθερού μεγέθους. Στη ρίζα βρίσκεται το μικρότερο από τα K καλύτερα κλειδιά,
+ * οπότε κάθε νέο κλειδί συγκρίνεται μόνο με αυτό. Οι πίνακες των κλειδιών που βγαίνουν
+ * από τον heap ξαναχρησιμοποιούνται.
+ *
+ * Σε ισοβαθμία προηγείται το κλειδί που είναι μικρότερο λεξικογραφικά, για να είναι
+ * το αποτέλεσμα ίδιο σε κάθε εκτέλεση.
+ */
+public class TopKHeap {
+    private final byte[][] keys;
+    private final int[] lengths;
+    private final int[] counts;
+    private int size;
+
+    public TopKHeap(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Top-K capacity must be positive: " + capacity);
+        }
+
+        keys = new byte[capacity][];
+        lengths = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    /**
+     * Προσθήκη ενός κλειδιού, αν ανήκει στα K καλύτερα
+     *
+     * @param bytes
+     * @param start
+     * @param length
+     * @param count
+     */
+    public void offer(byte[] bytes, int start, int length, int count) {
+        int slot;
+
+        if (size < keys.length) {
+            slot = size++;
+        } else if (compare(count, bytes, start, length, 0) > 0) {
+            // Αντικαθιστά τη ρίζα, που είναι το χειρότερο από τα K
+            slot = 0;
+        } else {
+            return;
+        }
+
+        if (keys[slot] == null || keys[slot].length < length) {
+            keys[slot] = new byte[Math.max(length, 16)];
+        }
+
+        System.arraycopy(bytes, start, keys[slot], 0, length);
+        lengths[slot] = length;
+        counts[slot] = count;
+
+        if (slot == 0 && size == keys.length) {
+            siftDown(0);
+        } else {
+            siftUp(slot);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Περνάει τα κλειδιά στον consumer από το μεγαλύτερο προς το μικρότερο.
+     * Ο heap αδειάζει
+     *
+     * @param consumer
+     */
+    public void drainDescending(BytesIntHashMap.EntryConsumer consumer) throws IOException, InterruptedException {
+        int count = size;
+
+        // Heap sort: η ρίζα (το χειρότερο) πηγαίνει κάθε φορά στο τέλος,
+        // οπότε στο τέλος ο πίνακας είναι ταξινομημένος από το καλύτερο προς το χειρότερο
+        while (size > 0) {
+            swap(0, --size);
+            siftDown(0);
+        }
+
+        for (int slot = 0; slot < count; slot++) {
+            consumer.accept(keys[slot], 0, lengths[slot], counts[slot]);
+        }
+    }
+
+    /**
+     * Θετικό αν το (count, key) είναι καλύτερο από το κλειδί στη θέση slot
+     */
+    private int compare(int count, byte[] key, int start, int length, int slot) {
+        if (count != counts[slot]) {
+            return Integer.compare(count, counts[slot]);
+        }
+
+        return -Arrays.compareUnsigned(key, start, start + length, keys[slot], 0, lengths[slot]);
+    }
+
+    private boolean better(int a, int b) {
+        return compare(counts[a], keys[a], 0, lengths[a], b) > 0;
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) / 2;
+
+            if (!better(parent, slot)) {
+                return;
+            }
+
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int left = slot * 2 + 1;
+            int right = left + 1;
+            int worst = slot;
+
+            if (left < size && better(worst, left)) {
+                worst = left;
+            }
+
+            if (right < size && better(worst, right)) {
+                worst = right;
+            }
+
+            if (worst == slot) {
+                return;
+            }
+
+            swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        byte[] key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+
+        int length = lengths[a];
+        lengths[a] = lengths[b];
+        lengths[b] = length;
+
+        int count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+    }
+}
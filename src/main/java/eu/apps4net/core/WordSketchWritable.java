@@ -0,0 +1,209 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Προσεγγιστική καταμέτρηση των λέξεων ενός mapper σε σταθερό χώρο
+ *
+ */
+
+package eu.apps4net.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Ένα CountMinSketch με τις εμφανίσεις των λέξεων, ένα HyperLogLog για το πλήθος των
+ * διαφορετικών λέξεων και οι υποψήφιες συχνές λέξεις (heavy hitters) του mapper.
+ * Το μέγεθός του εξαρτάται μόνο από τις ρυθμίσεις και όχι από το input:
+ *
+ *   -D movies.words.sketch.epsilon=0.0001   σφάλμα του Count-Min ως κλάσμα όλων των λέξεων
+ *   -D movies.words.sketch.delta=0.01       πιθανότητα να ξεπεραστεί το σφάλμα
+ *   -D movies.words.sketch.precision=14     2^precision registers του HyperLogLog
+ *   -D movies.words.sketch.heavy=1000       πόσες υποψήφιες λέξεις κρατάει κάθε mapper
+ *
+ * Στον mapper οι λέξεις μετριούνται πρώτα ακριβώς σε έναν BytesIntHashMap, που περνάει
+ * στα sketches στο τέλος ή όταν ξεπεράσει το movies.inmapper.max.bytes. Κάθε φορά οι
+ * συχνότερες λέξεις μπαίνουν σε έναν TopKHeap. Μια λέξη με περισσότερες από N/heavy
+ * εμφανίσεις συνολικά τις ξεπερνάει αναλογικά σε κάποιο κομμάτι του input, οπότε
+ * βρίσκεται στις υποψήφιες κάποιου mapper.
+ *
+ * Οι υποψήφιες κρατάνε και το άθροισμα των ακριβών μετρητών τους, που είναι κάτω όριο
+ * της πραγματικής τιμής, ενώ η εκτίμηση του Count-Min είναι άνω όριο.
+ */
+public class WordSketchWritable implements Writable, KeyCounter {
+    public static final String EPSILON = "movies.words.sketch.epsilon";
+    public static final double DEFAULT_EPSILON = 0.0001;
+    public static final String DELTA = "movies.words.sketch.delta";
+    public static final double DEFAULT_DELTA = 0.01;
+    public static final String PRECISION = "movies.words.sketch.precision";
+    public static final int DEFAULT_PRECISION = 14;
+    public static final String HEAVY_HITTERS = "movies.words.sketch.heavy";
+    public static final int DEFAULT_HEAVY_HITTERS = 1000;
+
+    private CountMinSketch counts = new CountMinSketch();
+    private HyperLogLog distinct = new HyperLogLog();
+    private final BytesIntHashMap candidates = new BytesIntHashMap();
+
+    // Μόνο στον mapper
+    private BytesIntHashMap local;
+    private TopKHeap heavy;
+    private long maxBytes;
+
+    /**
+     * Δημιουργεί τα sketches με τις διαστάσεις του configuration. Όλα τα sketches που
+     * συγχωνεύονται πρέπει να έχουν δημιουργηθεί με τις ίδιες ρυθμίσεις
+     *
+     * @param conf
+     */
+    public void configure(Configuration conf) {
+        counts = CountMinSketch.withError(conf.getDouble(EPSILON, DEFAULT_EPSILON), conf.getDouble(DELTA, DEFAULT_DELTA));
+        distinct = new HyperLogLog(conf.getInt(PRECISION, DEFAULT_PRECISION));
+        candidates.clear();
+
+        local = new BytesIntHashMap();
+        heavy = new TopKHeap(conf.getInt(HEAVY_HITTERS, DEFAULT_HEAVY_HITTERS));
+        maxBytes = conf.getLong(InMapperCombiner.MAX_BYTES, 32L * 1024 * 1024);
+    }
+
+    /**
+     * Μετράει μία εμφάνιση της λέξης
+     *
+     * @param bytes
+     * @param start
+     * @param length
+     */
+    @Override
+    public void add(byte[] bytes, int start, int length) throws IOException, InterruptedException {
+        local.add(bytes, start, length, 1);
+
+        if (local.memoryUsage() > maxBytes) {
+            fold();
+        }
+    }
+
+    /**
+     * Περνάει τους ακριβείς μετρητές στα sketches και αδειάζει τον map
+     */
+    private void fold() throws IOException, InterruptedException {
+        local.forEach((bytes, start, length, count) -> {
+            long hash = hash(bytes, start, length);
+
+            counts.add(hash, count);
+            distinct.add(hash);
+            heavy.offer(bytes, start, length, count);
+        });
+
+        local.clear();
+    }
+
+    /**
+     * Στο τέλος του mapper, πριν γραφτεί στο context. Οι λέξεις του TopKHeap γίνονται
+     * οι υποψήφιες
+     */
+    public void finish() throws IOException, InterruptedException {
+        fold();
+        heavy.drainDescending(candidates::add);
+    }
+
+    /**
+     * Προσθέτει ένα sketch ενός άλλου mapper
+     *
+     * @param other
+     */
+    public void merge(WordSketchWritable other) throws IOException, InterruptedException {
+        counts.merge(other.counts);
+        distinct.merge(other.distinct);
+        other.candidates.forEach(candidates::add);
+    }
+
+    /**
+     * Η εκτίμηση του Count-Min για τη λέξη, δηλαδή άνω όριο των εμφανίσεών της
+     *
+     * @param bytes
+     * @param start
+     * @param length
+     * @return long
+     */
+    public long estimate(byte[] bytes, int start, int length) {
+        return counts.estimate(hash(bytes, start, length));
+    }
+
+    /**
+     * Οι υποψήφιες συχνές λέξεις, με μετρητή ένα κάτω όριο των εμφανίσεών τους
+     */
+    public BytesIntHashMap getCandidates() {
+        return candidates;
+    }
+
+    public CountMinSketch getCounts() {
+        return counts;
+    }
+
+    public HyperLogLog getDistinct() {
+        return distinct;
+    }
+
+    /**
+     * FNV-1a 64 bits και στο τέλος το fmix64 του MurmurHash3, ώστε και τα πάνω και τα
+     * κάτω bits να είναι καλά ανακατεμένα. Είναι ίδιο σε κάθε JVM, όπως χρειάζεται για
+     * να συγχωνεύονται τα sketches
+     */
+    static long hash(byte[] bytes, int start, int length) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = start; i < start + length; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        counts.write(out);
+        distinct.write(out);
+
+        WritableUtils.writeVInt(out, candidates.size());
+        try {
+            candidates.forEach((bytes, start, length, count) -> {
+                WritableUtils.writeVInt(out, length);
+                out.write(bytes, start, length);
+                WritableUtils.writeVInt(out, count);
+            });
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        counts.readFields(in);
+        distinct.readFields(in);
+        candidates.clear();
+
+        byte[] word = new byte[64];
+        int size = WritableUtils.readVInt(in);
+        for (int i = 0; i < size; i++) {
+            int length = WritableUtils.readVInt(in);
+            if (word.length < length) {
+                word = new byte[length];
+            }
+            in.readFully(word, 0, length);
+
+            candidates.add(word, 0, length, WritableUtils.readVInt(in));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Εύρεση του έτους στο τέλος του τίτλου, χωρίς substring και exceptions
+ *
+ */
+
+package eu.apps4net.core;
+
+/**
+ * Το έτος είναι το "(dddd)" στο τέλος του τίτλου, π.χ. "Toy Story (1995)". Τα κενά μετά
+ * την παρένθεση αγνοούνται, οπότε και ο "Babe Ruth Story, The (1948) " έχει έτος. Αν ο
+ * τίτλος δεν τελειώνει σε "(dddd)", το έτος είναι 0, όπως και πριν.
+ *
+ * Μετά την extract(), η getTitleEnd() δίνει το τέλος του τίτλου χωρίς το έτος και τα
+ * κενά πριν από αυτό, για όσους χρειάζονται μόνο τον τίτλο (π.χ. το σπάσιμο σε λέξεις).
+ *
+ * Αυτό αλλάζει και τις λέξεις του WordsInMovies σε σχέση με την παλιά getYearFromTitle(),
+ * που έκοβε μόνο ένα " (dddd)" ακριβώς στο τέλος. Οι 154 τίτλοι του movies.csv με κενό
+ * μετά το έτος, π.χ. "Jack's Back (1988) ", δεν βγάζουν πια το έτος ως λέξη "1988", και
+ * οι 6 τίτλοι χωρίς απλό κενό πριν από την παρένθεση, π.χ. "Deadly Advice(1994)" ή με
+ * non-breaking space, δίνουν τη λέξη "advice" αντί για "advice1994". Με το default
+ * movies.words.minimum (100) το αποτέλεσμα είναι ίδιο, αλλά με μικρότερο όριο μερικά
+ * έτη έχουν λιγότερες εμφανίσεις.
+ */
+public class YearExtractor {
+    public static final int NO_YEAR = 0;
+
+    private int year;
+    private int titleEnd;
+
+    /**
+     * Βρίσκει το έτος στον τίτλο bytes[start, end)
+     *
+     * @param bytes
+     * @param start
+     * @param end
+     * @return int το έτος ή NO_YEAR
+     */
+    public int extract(byte[] bytes, int start, int end) {
+        end = skipSpaces(bytes, start, end);
+
+        year = NO_YEAR;
+        titleEnd = end;
+
+        // "(" + 4 ψηφία + ")"
+        if (end - start < 6 || bytes[end - 1] != ')' || bytes[end - 6] != '(') {
+            return year;
+        }
+
+        int value = 0;
+        for (int i = end - 5; i < end - 1; i++) {
+            int digit = bytes[i] - '0';
+
+            if (digit < 0 || digit > 9) {
+                return year;
+            }
+
+            value = value * 10 + digit;
+        }
+
+        year = value;
+        titleEnd = skipSpaces(bytes, start, end - 6);
+
+        return year;
+    }
+
+    /**
+     * Το έτος του τίτλου, για όσους έχουν τον τίτλο ως String
+     *
+     * @param title
+     * @return int το έτος ή NO_YEAR
+     */
+    public static int getYear(CharSequence title) {
+        int end = title.length();
+        while (end > 0 && (title.charAt(end - 1) == ' ' || title.charAt(end - 1) == '\t')) {
+            end--;
+        }
+
+        if (end < 6 || title.charAt(end - 1) != ')' || title.charAt(end - 6) != '(') {
+            return NO_YEAR;
+        }
+
+        int value = 0;
+        for (int i = end - 5; i < end - 1; i++) {
+            int digit = title.charAt(i) - '0';
+
+            if (digit < 0 || digit > 9) {
+                return NO_YEAR;
+            }
+
+            value = value * 10 + digit;
+        }
+
+        return value;
+    }
+
+    /**
+     * Γράφει το έτος ως κείμενο, χωρίς μηδενικά μπροστά, στο target από τη θέση offset
+     *
+     * @param year
+     * @param target
+     * @param offset
+     * @return int η θέση μετά το τελευταίο ψηφίο
+     */
+    public static int writeYear(int year, byte[] target, int offset) {
+        for (int divisor = 1000; divisor > 0; divisor /= 10) {
+            if (year >= divisor || divisor == 1) {
+                target[offset++] = (byte) ('0' + year / divisor % 10);
+            }
+        }
+
+        return offset;
+    }
+
+    /**
+     * Το έτος που βρήκε η τελευταία extract()
+     */
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * Το τέλος του τίτλου χωρίς το " (dddd)" της τελευταίας extract()
+     */
+    public int getTitleEnd() {
+        return titleEnd;
+    }
+
+    private static int skipSpaces(byte[] bytes, int start, int end) {
+        while (end > start && (bytes[end - 1] == ' ' || bytes[end - 1] == '\t')) {
+            end--;
+        }
+
+        return end;
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Tests των ορίων σφάλματος του CountMinSketch
+ *
+ */
+
+package eu.apps4net.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class CountMinSketchTest {
+    // epsilon, delta
+    private static final double[][] ERRORS = {
+            {0.01, 0.05},
+            {0.001, 0.01},
+            {0.0005, 0.001},
+    };
+
+    private static final int KEYS = 20000;
+
+    @Test
+    public void staysWithinErrorBound() {
+        long[] counts = zipfCounts(KEYS);
+
+        for (double[] error : ERRORS) {
+            String name = "epsilon " + error[0] + ", delta " + error[1];
+            CountMinSketch sketch = CountMinSketch.withError(error[0], error[1]);
+
+            for (int i = 0; i < KEYS; i++) {
+                sketch.add(hash(i), counts[i]);
+            }
+
+            assertTrue(sketch.getEpsilon() <= error[0], name);
+            assertTrue(sketch.getDelta() <= error[1], name);
+
+            int over = 0;
+            for (int i = 0; i < KEYS; i++) {
+                long estimate = sketch.estimate(hash(i));
+
+                // Ποτέ μικρότερη από την πραγματική τιμή
+                assertTrue(estimate >= counts[i], name + ", key " + i);
+
+                if (estimate - counts[i] > sketch.getErrorBound()) {
+                    over++;
+                }
+            }
+
+            // Το πολύ delta των εκτιμήσεων ξεπερνάνε το epsilon * N
+            assertTrue(over <= error[1] * KEYS, name + ", " + over + " estimates over the bound");
+        }
+    }
+
+    @Test
+    public void mergesLikeOneSketch() throws IOException {
+        long[] counts = zipfCounts(KEYS);
+        CountMinSketch single = CountMinSketch.withError(0.001, 0.01);
+        CountMinSketch[] parts = new CountMinSketch[4];
+
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = CountMinSketch.withError(0.001, 0.01);
+        }
+
+        // Κάθε κλειδί μοιράζεται σε περισσότερους mappers, όπως στο MoviesWordSketch
+        for (int i = 0; i < KEYS; i++) {
+            single.add(hash(i), counts[i]);
+
+            for (int p = 0; p < parts.length; p++) {
+                parts[p].add(hash(i), counts[i] / parts.length + (p < counts[i] % parts.length ? 1 : 0));
+            }
+        }
+
+        CountMinSketch merged = roundTrip(parts[0]);
+        for (int p = 1; p < parts.length; p++) {
+            merged.merge(roundTrip(parts[p]));
+        }
+
+        assertEquals(single.getTotal(), merged.getTotal());
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(single.estimate(hash(i)), merged.estimate(hash(i)), "key " + i);
+        }
+    }
+
+    @Test
+    public void rejectsInvalidParameters() {
+        double[][] invalid = {{0, 0.01}, {1, 0.01}, {0.01, 0}, {0.01, 1}, {-0.1, 0.5}};
+
+        for (double[] error : invalid) {
+            assertThrows(IllegalArgumentException.class, () -> CountMinSketch.withError(error[0], error[1]));
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new CountMinSketch(100, 3).merge(new CountMinSketch(100, 4)));
+    }
+
+    /**
+     * Μετρητές με κατανομή Zipf, όπως οι λέξεις των τίτλων
+     */
+    private static long[] zipfCounts(int keys) {
+        long[] counts = new long[keys];
+
+        for (int i = 0; i < keys; i++) {
+            counts[i] = 1 + 100000 / (i + 1);
+        }
+
+        return counts;
+    }
+
+    private static long hash(int key) {
+        byte[] bytes = ("word" + key).getBytes(StandardCharsets.UTF_8);
+
+        return WordSketchWritable.hash(bytes, 0, bytes.length);
+    }
+
+    private static CountMinSketch roundTrip(CountMinSketch sketch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.write(new DataOutputStream(bytes));
+
+        CountMinSketch copy = new CountMinSketch();
+        copy.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        return copy;
+    }
+}
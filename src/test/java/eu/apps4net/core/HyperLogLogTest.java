@@ -0,0 +1,116 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Tests των ορίων σφάλματος του HyperLogLog
+ *
+ */
+
+package eu.apps4net.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class HyperLogLogTest {
+    private static final int[] PRECISIONS = {10, 14, 16};
+
+    private static final int[] DISTINCT = {1000, 10000, 100000, 1000000};
+
+    @Test
+    public void staysWithinStandardError() {
+        for (int precision : PRECISIONS) {
+            for (int n : DISTINCT) {
+                HyperLogLog sketch = new HyperLogLog(precision);
+                add(sketch, 0, n);
+
+                // Τρία τυπικά σφάλματα, δηλαδή πρακτικά πάντα
+                double error = Math.abs(sketch.estimate() - n) / (double) n;
+                assertTrue(error <= 3 * sketch.getStandardError(),
+                        "precision " + precision + ", " + n + " keys, estimate " + sketch.estimate());
+            }
+        }
+    }
+
+    @Test
+    public void countsFewKeysAlmostExactly() {
+        // Με άδειους registers η εκτίμηση γίνεται με linear counting
+        int[] small = {0, 1, 2, 10, 100, 500};
+
+        for (int n : small) {
+            HyperLogLog sketch = new HyperLogLog(14);
+            add(sketch, 0, n);
+
+            assertTrue(Math.abs(sketch.estimate() - n) <= Math.max(1, n / 100),
+                    n + " keys, estimate " + sketch.estimate());
+        }
+    }
+
+    @Test
+    public void ignoresDuplicates() {
+        HyperLogLog once = new HyperLogLog(14);
+        HyperLogLog many = new HyperLogLog(14);
+
+        add(once, 0, 50000);
+        for (int i = 0; i < 5; i++) {
+            add(many, 0, 50000);
+        }
+
+        assertEquals(once.estimate(), many.estimate());
+    }
+
+    @Test
+    public void mergesLikeOneSketch() throws IOException {
+        HyperLogLog single = new HyperLogLog(14);
+        add(single, 0, 200000);
+
+        // Mappers με κλειδιά που επικαλύπτονται
+        HyperLogLog merged = new HyperLogLog(14);
+        for (int p = 0; p < 4; p++) {
+            HyperLogLog part = new HyperLogLog(14);
+            add(part, p * 40000, p * 40000 + 80000);
+
+            merged.merge(roundTrip(part));
+        }
+
+        assertEquals(single.estimate(), merged.estimate());
+    }
+
+    @Test
+    public void rejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(19));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(14).merge(new HyperLogLog(12)));
+    }
+
+    /**
+     * Προσθέτει τα κλειδιά word[from], ..., word[to - 1]
+     */
+    private static void add(HyperLogLog sketch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte[] bytes = ("word" + i).getBytes(StandardCharsets.UTF_8);
+
+            sketch.add(WordSketchWritable.hash(bytes, 0, bytes.length));
+        }
+    }
+
+    private static HyperLogLog roundTrip(HyperLogLog sketch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.write(new DataOutputStream(bytes));
+
+        HyperLogLog copy = new HyperLogLog();
+        copy.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        return copy;
+    }
+}
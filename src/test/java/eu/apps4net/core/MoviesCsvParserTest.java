@@ -0,0 +1,150 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Tests του MoviesCsvParser με πίνακα από γραμμές και τα αναμενόμενα πεδία τους
+ *
+ */
+
+package eu.apps4net.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class MoviesCsvParserTest {
+    // Γραμμή, movieId, τίτλος, είδη
+    private static final Object[][] VALID = {
+            {"1,Toy Story (1995),Adventure|Animation|Children", 1L, "Toy Story (1995)",
+                    new String[]{"Adventure", "Animation", "Children"}},
+            // Κόμμα μέσα σε εισαγωγικά
+            {"11,\"American President, The (1995)\",Comedy|Drama|Romance", 11L, "American President, The (1995)",
+                    new String[]{"Comedy", "Drama", "Romance"}},
+            // Το "" μέσα σε εισαγωγικά είναι ένα "
+            {"2,\"The \"\"Great\"\" Escape (1963)\",Drama", 2L, "The \"Great\" Escape (1963)",
+                    new String[]{"Drama"}},
+            {"3,\"\"\"Quoted\"\", Title\",War", 3L, "\"Quoted\", Title", new String[]{"War"}},
+            // Windows line endings
+            {"4,Heat (1995),Action|Crime\r", 4L, "Heat (1995)", new String[]{"Action", "Crime"}},
+            {"5,Heat (1995),Action|Crime\r\n", 5L, "Heat (1995)", new String[]{"Action", "Crime"}},
+            // Χωρίς είδη
+            {"6,No Genres (2000),", 6L, "No Genres (2000)", new String[0]},
+            {"7,Listed (2000),(no genres listed)", 7L, "Listed (2000)", new String[]{"(no genres listed)"}},
+            // Άδεια είδη ανάμεσα στα | παραλείπονται, όπως και ό,τι ακολουθεί μετά από κόμμα
+            {"8,Gaps,|Action||Drama|", 8L, "Gaps", new String[]{"Action", "Drama"}},
+            {"9,Extra,Drama,ignored", 9L, "Extra", new String[]{"Drama"}},
+            // Τίτλος με αλλαγή γραμμής, όπως τον δίνει το MoviesInputFormat
+            {"10,\"Two\nLines (2001)\",Drama", 10L, "Two\nLines (2001)", new String[]{"Drama"}},
+            {"12,\"Ελληνικά, με UTF-8 (2004)\",Drama", 12L, "Ελληνικά, με UTF-8 (2004)", new String[]{"Drama"}},
+            // Το μεγαλύτερο movieId που δεχόμαστε, 18 ψηφία
+            {"999999999999999999,Big Id,Drama", 999999999999999999L, "Big Id", new String[]{"Drama"}},
+    };
+
+    private static final String[] MALFORMED = {
+            "",
+            "\r\n",
+            "13",
+            "13,Title Without Genres Field",
+            ",No Id,Drama",
+            "abc,Letters,Drama",
+            "-1,Negative,Drama",
+            " 14,Space,Drama",
+            // 19 ψηφία δεν χωράνε με ασφάλεια σε long
+            "1000000000000000000,Too Big,Drama",
+            "99999999999999999999,Way Too Big,Drama",
+            // Το κόμμα του τίτλου είναι μέσα σε εισαγωγικά που δεν κλείνουν, οπότε λείπουν πεδία
+            "15,\"Unclosed, Title,Drama",
+    };
+
+    @Test
+    public void parsesValidLines() {
+        MoviesCsvParser parser = new MoviesCsvParser();
+
+        for (Object[] row : VALID) {
+            String line = (String) row[0];
+
+            assertTrue(parser.parse(bytes(line), 0, bytes(line).length), line);
+            assertEquals((long) row[1], parser.getMovieId(), line);
+            assertEquals(row[2], parser.getTitle(), line);
+            assertArrayEquals((String[]) row[3], genres(parser), line);
+        }
+    }
+
+    @Test
+    public void rejectsMalformedLines() {
+        MoviesCsvParser parser = new MoviesCsvParser();
+
+        for (String line : MALFORMED) {
+            assertFalse(parser.parse(bytes(line), 0, bytes(line).length), line);
+        }
+    }
+
+    @Test
+    public void parsesLineInsideBuffer() {
+        // Οι γραμμές διαβάζονται πάνω στον buffer του RecordReader, με offsets
+        MoviesCsvParser parser = new MoviesCsvParser();
+
+        for (Object[] row : VALID) {
+            String line = (String) row[0];
+            byte[] buffer = bytes("xx,\"junk\"," + line + ",\"more\"\n");
+            int start = 10;
+            int end = start + bytes(line).length;
+
+            assertTrue(parser.parse(buffer, start, end), line);
+            assertEquals((long) row[1], parser.getMovieId(), line);
+            assertEquals(start, parser.getStart(), line);
+            assertEquals(row[2], parser.getTitle(), line);
+            assertArrayEquals((String[]) row[3], genres(parser), line);
+        }
+    }
+
+    @Test
+    public void marksEscapedTitles() {
+        MoviesCsvParser parser = new MoviesCsvParser();
+
+        byte[] plain = bytes("11,\"American President, The (1995)\",Comedy");
+        assertTrue(parser.parse(plain, 0, plain.length));
+        assertFalse(parser.isTitleEscaped());
+
+        byte[] escaped = bytes("2,\"The \"\"Great\"\" Escape (1963)\",Drama");
+        assertTrue(parser.parse(escaped, 0, escaped.length));
+        assertTrue(parser.isTitleEscaped());
+    }
+
+    @Test
+    public void detectsHeader() {
+        String[][] lines = {
+                {"movieId,title,genres", "true"},
+                {"movieId,title,genres\r", "true"},
+                {"movieId", "false"},
+                {"1,movieId,genres", "false"},
+                {"MovieId,title,genres", "false"},
+        };
+
+        for (String[] line : lines) {
+            byte[] bytes = bytes(line[0]);
+
+            assertEquals(Boolean.parseBoolean(line[1]), MoviesCsvParser.isHeader(bytes, 0, bytes.length), line[0]);
+        }
+    }
+
+    private static String[] genres(MoviesCsvParser parser) {
+        String[] genres = new String[parser.getGenreCount()];
+
+        for (int i = 0; i < genres.length; i++) {
+            genres[i] = parser.getGenre(i);
+        }
+
+        return genres;
+    }
+
+    private static byte[] bytes(String line) {
+        return line.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Tests των ορίων των splits του MoviesInputFormat, μέσω του MoviesRecordScanner
+ *
+ */
+
+package eu.apps4net.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class MoviesRecordScannerTest {
+    // Μικρός buffer, ώστε να μετακινείται και να μεγαλώνει μέσα στις εγγραφές
+    private static final int BUFFER_BYTES = 16;
+
+    private static final String MULTILINE = "movieId,title,genres\n"
+            + "1,Toy Story (1995),Adventure|Animation|Children\n"
+            + "2,\"Two\nLines (2001)\",Drama\n"
+            // Γραμμή του τίτλου που ξεκινάει σαν εγγραφή
+            + "3,\"Numbers\n4,5,6 (2002)\",Comedy\n"
+            + "7,\"American President, The (1995)\",Comedy|Drama|Romance\n"
+            + "8,\"The \"\"Great\"\"\nEscape (1963)\",Drama\r\n"
+            + "9,\"Three\n\nLines, Really (2003)\",(no genres listed)\r\n"
+            + "10,Heat (1995),Action|Crime\r\n"
+            + "11,\"Ελληνικός\nτίτλος (2004)\",Drama\n"
+            + "12,Last (2005),War";
+
+    private static final String[] MULTILINE_RECORDS = {
+            "movieId,title,genres",
+            "1,Toy Story (1995),Adventure|Animation|Children",
+            "2,\"Two\nLines (2001)\",Drama",
+            "3,\"Numbers\n4,5,6 (2002)\",Comedy",
+            "7,\"American President, The (1995)\",Comedy|Drama|Romance",
+            "8,\"The \"\"Great\"\"\nEscape (1963)\",Drama\r",
+            "9,\"Three\n\nLines, Really (2003)\",(no genres listed)\r",
+            "10,Heat (1995),Action|Crime\r",
+            "11,\"Ελληνικός\nτίτλος (2004)\",Drama",
+            "12,Last (2005),War",
+    };
+
+    // Εισαγωγικό που δεν κλείνει: μετά από MAX_RECORD_BYTES η εγγραφή τελειώνει στο πρώτο \n
+    private static final String UNCLOSED = "movieId,title,genres\n"
+            + "1,\"Broken, Title (1999),Drama\n"
+            + "2,Next (2000),Comedy\n"
+            + "3,After (2001),Horror\n"
+            + "4,\"Fine\nTitle (2002)\",Drama\n"
+            + "5,\"Unclosed at the end,Drama\n"
+            + "6,Last (2003),War\n";
+
+    private static final String[] UNCLOSED_RECORDS = {
+            "movieId,title,genres",
+            "1,\"Broken, Title (1999),Drama",
+            "2,Next (2000),Comedy",
+            "3,After (2001),Horror",
+            "4,\"Fine\nTitle (2002)\",Drama",
+            "5,\"Unclosed at the end,Drama",
+            "6,Last (2003),War",
+    };
+
+    // Εισαγωγικό που δεν κλείνει, αλλά το επόμενο εισαγωγικό είναι λίγες γραμμές μετά,
+    // μέσα στα MAX_RECORD_BYTES: η εγγραφή δεν είναι σωστό CSV και τελειώνει στην πρώτη γραμμή
+    private static final String CLOSED_LATER = "movieId,title,genres\n"
+            + "1,\"Broken (1999),Drama\n"
+            + "2,A (2000),War\n"
+            + "3,\"B, The (2001)\",Comedy\n"
+            + "4,Inch 12\" (2002),Drama\n"
+            + "5,C (2003),Horror\n"
+            + "6,\"Two\nLines (2004)\",Drama\n";
+
+    private static final String[] CLOSED_LATER_RECORDS = {
+            "movieId,title,genres",
+            "1,\"Broken (1999),Drama",
+            "2,A (2000),War",
+            "3,\"B, The (2001)\",Comedy",
+            "4,Inch 12\" (2002),Drama",
+            "5,C (2003),Horror",
+            "6,\"Two\nLines (2004)\",Drama",
+    };
+
+    private static final int MAX_RECORD_BYTES = 32;
+
+    // Γραμμές για τα τυχαία αρχεία, με %d το movieId
+    private static final String[] PIECES = {
+            "%d,Title (2000),Drama",
+            "%d,\"Title, The (2000)\",Drama",
+            "%d,\"The \"\"Big\"\" One (2000)\",Drama",
+            "%d,\"Two\nLines (2000)\",Drama",
+            "%d,\"Numbers\n4,5,6 (2002)\",Comedy",
+            "%d,\"Broken title (2000),Drama",
+            "%d,Title 12\" screen (2000),Drama",
+            "%d,\"\"\"Broken\"\" title (2000),Drama",
+            "%d,not a movie",
+    };
+
+    @Test
+    public void readsWholeFile() throws IOException {
+        assertEquals(Arrays.asList(MULTILINE_RECORDS), texts(read(bytes(MULTILINE), 0, 1024)));
+        assertEquals(Arrays.asList(UNCLOSED_RECORDS), texts(read(bytes(UNCLOSED), 0, MAX_RECORD_BYTES)));
+        assertEquals(Arrays.asList(CLOSED_LATER_RECORDS), texts(read(bytes(CLOSED_LATER), 0, 1024)));
+    }
+
+    @Test
+    public void splitsAtEveryOffset() throws IOException {
+        checkEveryOffset(bytes(MULTILINE), 1024);
+    }
+
+    @Test
+    public void splitsAtEveryOffsetWithUnclosedQuote() throws IOException {
+        checkEveryOffset(bytes(UNCLOSED), MAX_RECORD_BYTES);
+    }
+
+    @Test
+    public void splitsAtEveryOffsetWithQuoteClosedLater() throws IOException {
+        checkEveryOffset(bytes(CLOSED_LATER), 1024);
+    }
+
+    @Test
+    public void splitsRandomFilesAtEveryOffset() throws IOException {
+        Random random = new Random(11);
+
+        for (int run = 0; run < 300; run++) {
+            StringBuilder file = new StringBuilder("movieId,title,genres\n");
+            int lines = 2 + random.nextInt(10);
+
+            for (int i = 1; i <= lines; i++) {
+                file.append(String.format(PIECES[random.nextInt(PIECES.length)], i * 10));
+                file.append(random.nextInt(4) == 0 ? "\r\n" : "\n");
+            }
+
+            // Οι γραμμές που δεν γίνονται parse δεν φτάνουν στους mappers, και στην αρχή
+            // ενός split προσπερνιούνται, οπότε συγκρίνονται μόνο οι ταινίες
+            checkEveryOffset(bytes(file.toString()), random.nextBoolean() ? MAX_RECORD_BYTES : 1024, true);
+        }
+    }
+
+    @Test
+    public void splitsIntoManyPieces() throws IOException {
+        Random random = new Random(3);
+        byte[][] files = {bytes(MULTILINE), bytes(UNCLOSED)};
+        int[] maxRecordBytes = {1024, MAX_RECORD_BYTES};
+
+        for (int f = 0; f < files.length; f++) {
+            byte[] file = files[f];
+            List<String> whole = read(file, 0, maxRecordBytes[f]);
+
+            for (int run = 0; run < 500; run++) {
+                long[] points = random.longs(1 + random.nextInt(6), 1, file.length).sorted().distinct().toArray();
+
+                List<String> records = new ArrayList<>();
+                long start = 0;
+                for (long point : points) {
+                    records.addAll(read(file, start, point, maxRecordBytes[f]));
+                    start = point;
+                }
+                records.addAll(read(file, start, file.length, maxRecordBytes[f]));
+
+                assertEquals(whole, records, Arrays.toString(points));
+            }
+        }
+    }
+
+    /**
+     * Για κάθε k, οι εγγραφές του [0, k] και του (k, τέλος] είναι όλες οι εγγραφές
+     * του αρχείου από ένα split, χωρίς να χάνεται ή να επαναλαμβάνεται καμία
+     */
+    private static void checkEveryOffset(byte[] file, int maxRecordBytes) throws IOException {
+        checkEveryOffset(file, maxRecordBytes, false);
+    }
+
+    private static void checkEveryOffset(byte[] file, int maxRecordBytes, boolean movies) throws IOException {
+        List<String> whole = read(file, 0, file.length, maxRecordBytes, movies);
+
+        for (int k = 1; k < file.length; k++) {
+            List<String> records = new ArrayList<>(read(file, 0, k, maxRecordBytes, movies));
+            records.addAll(read(file, k, file.length, maxRecordBytes, movies));
+
+            assertEquals(whole, records, new String(file, StandardCharsets.UTF_8) + "\nsplit at " + k);
+        }
+    }
+
+    private static List<String> read(byte[] file, long start, int maxRecordBytes) throws IOException {
+        return read(file, start, file.length, maxRecordBytes);
+    }
+
+    private static List<String> read(byte[] file, long start, long end, int maxRecordBytes) throws IOException {
+        return read(file, start, end, maxRecordBytes, false);
+    }
+
+    /**
+     * Οι εγγραφές ενός split ως "offset:κείμενο", ή μόνο οι ταινίες αν movies
+     */
+    private static List<String> read(byte[] file, long start, long end, int maxRecordBytes, boolean movies)
+            throws IOException {
+        MoviesCsvParser parser = new MoviesCsvParser();
+        ByteArrayInputStream in = new ByteArrayInputStream(file, (int) start, file.length - (int) start);
+        MoviesRecordScanner scanner = new MoviesRecordScanner(in, start, end, BUFFER_BYTES, maxRecordBytes);
+
+        List<String> records = new ArrayList<>();
+        while (scanner.next()) {
+            if (movies && !parser.parse(scanner.getBytes(), scanner.getRecordStart(), scanner.getRecordEnd())) {
+                continue;
+            }
+
+            String text = new String(scanner.getBytes(), scanner.getRecordStart(),
+                    scanner.getRecordEnd() - scanner.getRecordStart(), StandardCharsets.UTF_8);
+
+            records.add(scanner.getRecordOffset() + ":" + text);
+        }
+
+        return records;
+    }
+
+    private static List<String> texts(List<String> records) {
+        List<String> texts = new ArrayList<>();
+
+        for (String record : records) {
+            texts.add(record.substring(record.indexOf(':') + 1));
+        }
+
+        return texts;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Tests του μοιράσματος των κλειδιών σε περιοχές, RangePartitioner.cut()
+ *
+ */
+
+package eu.apps4net.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class RangePartitionerTest {
+    // Βάρη, πλήθος περιοχών, αναμενόμενα όρια
+    private static final Object[][] CUTS = {
+            {new long[]{1, 1, 1, 1, 1, 1, 1, 1}, 4, new int[]{2, 4, 6}},
+            {new long[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, 3, new int[]{6, 9}},
+            // Ένα συχνό κλειδί μένει μόνο του στην περιοχή του
+            {new long[]{1, 1, 10, 1, 1}, 3, new int[]{2, 3}},
+            {new long[]{1, 1, 1, 1, 10}, 3, new int[]{4}},
+            {new long[]{100, 1, 1, 1, 100, 1, 1, 1}, 4, new int[]{1, 4, 5}},
+            // Ένα κλειδί με πάνω από 1/N του βάρους αφήνει άδειες περιοχές
+            {new long[]{10, 1, 1, 1, 1}, 3, new int[]{1}},
+            // Λιγότερα κλειδιά από περιοχές
+            {new long[]{1, 1}, 4, new int[]{1}},
+            {new long[]{5}, 4, new int[0]},
+            {new long[0], 4, new int[0]},
+            // Ένας reducer, χωρίς όρια
+            {new long[]{3, 3, 3}, 1, new int[0]},
+    };
+
+    @Test
+    public void cutsKnownWeights() {
+        for (Object[] row : CUTS) {
+            long[] weights = (long[]) row[0];
+            int partitions = (int) row[1];
+
+            assertArrayEquals((int[]) row[2], RangePartitioner.cut(weights, partitions),
+                    Arrays.toString(weights) + " / " + partitions);
+        }
+    }
+
+    @Test
+    public void keepsRangesBalanced() {
+        Random random = new Random(42);
+
+        for (int run = 0; run < 500; run++) {
+            long[] weights = new long[1 + random.nextInt(200)];
+            for (int i = 0; i < weights.length; i++) {
+                // Κατανομή με μερικά πολύ συχνά κλειδιά, όπως οι λέξεις των τίτλων
+                weights[i] = 1 + (long) (1000 / Math.pow(1 + random.nextInt(weights.length), 1.2));
+            }
+            int partitions = 1 + random.nextInt(16);
+
+            checkRanges(weights, partitions, RangePartitioner.cut(weights, partitions));
+        }
+    }
+
+    /**
+     * Τα όρια είναι αύξοντα, μέσα στον πίνακα και το πολύ partitions - 1. Κάθε περιοχή
+     * εκτός από την τελευταία, χωρίς το τελευταίο της κλειδί, έχει λιγότερο από 1/N του
+     * βάρους, δηλαδή κλείνει μόλις ξεπεράσει το μερίδιό της
+     */
+    private static void checkRanges(long[] weights, int partitions, int[] points) {
+        String name = Arrays.toString(weights) + " / " + partitions + " -> " + Arrays.toString(points);
+        long total = Arrays.stream(weights).sum();
+
+        assertTrue(points.length <= Math.max(0, partitions - 1), name);
+
+        int start = 0;
+        for (int point : points) {
+            assertTrue(point > start && point < weights.length, name);
+
+            long weight = 0;
+            for (int i = start; i < point - 1; i++) {
+                weight += weights[i];
+            }
+            assertTrue(weight * partitions < total, name);
+
+            start = point;
+        }
+    }
+}
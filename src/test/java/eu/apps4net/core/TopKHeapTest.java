@@ -0,0 +1,145 @@
+/**
+ * Created by Yiannis Kiranis <yiannis.kiranis@gmail.com>
+ * https://apps4net.eu
+ * Date: 17/10/26
+ *
+ * Tests του TopKHeap, με έμφαση στις ισοβαθμίες
+ *
+ */
+
+package eu.apps4net.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TopKHeapTest {
+    // K, τα κλειδιά με τη σειρά που προστίθενται ως "κλειδί:πλήθος", το αναμενόμενο αποτέλεσμα
+    private static final Object[][] TOP = {
+            {3, new String[]{"a:1", "b:5", "c:3", "d:4"}, new String[]{"b:5", "d:4", "c:3"}},
+            // Λιγότερα κλειδιά από K
+            {5, new String[]{"x:2", "y:7"}, new String[]{"y:7", "x:2"}},
+            {1, new String[0], new String[0]},
+            // Σε ισοβαθμία προηγείται το μικρότερο κλειδί, με όποια σειρά κι αν έρθουν
+            {2, new String[]{"c:5", "b:5", "a:5"}, new String[]{"a:5", "b:5"}},
+            {2, new String[]{"a:5", "b:5", "c:5"}, new String[]{"a:5", "b:5"}},
+            {3, new String[]{"love:9", "war:9", "man:9", "day:2"}, new String[]{"love:9", "man:9", "war:9"}},
+            // Με γεμάτο heap, ένα μικρότερο κλειδί με ίδιο πλήθος αντικαθιστά τη ρίζα
+            {2, new String[]{"m:4", "z:4", "b:4"}, new String[]{"b:4", "m:4"}},
+            // Ένα μεγαλύτερο κλειδί με ίδιο πλήθος με τη ρίζα δεν μπαίνει
+            {2, new String[]{"b:4", "m:4", "z:4"}, new String[]{"b:4", "m:4"}},
+            // Το πρόθεμα είναι μικρότερο από τη λέξη
+            {2, new String[]{"love:3", "lo:3", "lov:3"}, new String[]{"lo:3", "lov:3"}},
+            // Σύγκριση των UTF-8 bytes χωρίς πρόσημο, όπως τα Text
+            {2, new String[]{"été:2", "zoo:2", "abc:2"}, new String[]{"abc:2", "zoo:2"}},
+            {1, new String[]{"a:1", "b:2", "c:3", "d:2"}, new String[]{"c:3"}},
+    };
+
+    @Test
+    public void keepsTopKeys() throws Exception {
+        for (Object[] row : TOP) {
+            String[] offers = (String[]) row[1];
+            TopKHeap heap = new TopKHeap((int) row[0]);
+
+            for (String offer : offers) {
+                int colon = offer.lastIndexOf(':');
+                offer(heap, offer.substring(0, colon), Integer.parseInt(offer.substring(colon + 1)));
+            }
+
+            assertArrayEquals((String[]) row[2], drain(heap), Arrays.toString(offers));
+        }
+    }
+
+    @Test
+    public void matchesSortedCounts() throws Exception {
+        Random random = new Random(7);
+
+        for (int run = 0; run < 200; run++) {
+            int capacity = 1 + random.nextInt(20);
+            int keys = random.nextInt(100);
+
+            // Λίγες διαφορετικές τιμές, ώστε να υπάρχουν πολλές ισοβαθμίες
+            List<String> expected = new ArrayList<>();
+            TopKHeap heap = new TopKHeap(capacity);
+            for (int i = 0; i < keys; i++) {
+                String key = "k" + random.nextInt(1000000);
+                int count = random.nextInt(5);
+
+                if (expected.stream().noneMatch(entry -> entry.startsWith(key + ":"))) {
+                    expected.add(key + ":" + count);
+                    offer(heap, key, count);
+                }
+            }
+
+            expected.sort(Comparator.comparingInt(TopKHeapTest::count).reversed()
+                    .thenComparing(entry -> entry.substring(0, entry.lastIndexOf(':'))));
+
+            assertArrayEquals(expected.subList(0, Math.min(capacity, expected.size())).toArray(),
+                    drain(heap), "run " + run);
+        }
+    }
+
+    @Test
+    public void readsKeysInsideBuffer() throws Exception {
+        // Τα κλειδιά έρχονται από τον πίνακα του BytesIntHashMap, με offsets
+        byte[] buffer = "xxloveyywarzzman".getBytes(StandardCharsets.UTF_8);
+        TopKHeap heap = new TopKHeap(2);
+
+        heap.offer(buffer, 2, 4, 3);
+        heap.offer(buffer, 8, 3, 3);
+        heap.offer(buffer, 13, 3, 3);
+
+        assertArrayEquals(new String[]{"love:3", "man:3"}, drain(heap));
+    }
+
+    @Test
+    public void canBeReusedAfterDrain() throws Exception {
+        TopKHeap heap = new TopKHeap(2);
+
+        offer(heap, "a-long-key", 1);
+        offer(heap, "b", 2);
+        drain(heap);
+        assertEquals(0, heap.size());
+
+        offer(heap, "c", 1);
+        offer(heap, "another-long-key", 1);
+        offer(heap, "d", 5);
+        assertEquals(2, heap.size());
+        assertArrayEquals(new String[]{"d:5", "another-long-key:1"}, drain(heap));
+    }
+
+    @Test
+    public void rejectsInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TopKHeap(0));
+        assertThrows(IllegalArgumentException.class, () -> new TopKHeap(-1));
+    }
+
+    private static void offer(TopKHeap heap, String key, int count) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+
+        heap.offer(bytes, 0, bytes.length, count);
+    }
+
+    private static String[] drain(TopKHeap heap) throws IOException, InterruptedException {
+        List<String> entries = new ArrayList<>();
+
+        heap.drainDescending((bytes, start, length, count) ->
+                entries.add(new String(bytes, start, length, StandardCharsets.UTF_8) + ":" + count));
+
+        return entries.toArray(new String[0]);
+    }
+
+    private static int count(String entry) {
+        return Integer.parseInt(entry.substring(entry.lastIndexOf(':') + 1));
+    }
+}